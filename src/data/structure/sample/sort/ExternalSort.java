@@ -0,0 +1,604 @@
+package data.structure.sample.sort;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 外部归并排序，用于数据量超过堆内存的场景
+ * <p>
+ * 输入是定长记录组成的文件或输入流，排序分两个阶段：
+ * <ol>
+ * <li>按内存上限读入一批记录，取出每条记录的long型key，用{@link RadixSort}带下标排序，
+ * 然后通过{@link MappedByteBuffer}按顺序写入临时文件，形成一个有序段</li>
+ * <li>用败者树每次对最多fanIn个有序段做多路归并，直到只剩一个有序段，最后一趟直接写入输出文件</li>
+ * </ol>
+ * 相同key的记录保持输入时的先后顺序。
+ *
+ * @author Neptune
+ * @date 2020/6/24 10:05
+ */
+public class ExternalSort {
+    /**
+     * 每条记录在内存中除了自身字节以外的开销：key、下标以及它们的中转数组
+     */
+    private static final int RECORD_OVERHEAD = 2 * (Long.BYTES + Integer.BYTES);
+    /**
+     * 读写文件时每次映射的最大字节数
+     */
+    private static final int MAP_WINDOW = 64 << 20;
+
+    /**
+     * 从记录中取出排序用的key
+     */
+    public interface KeyExtractor {
+        /**
+         * 取出key
+         *
+         * @param buffer   记录所在的缓冲区
+         * @param position 记录在缓冲区中的起始位置
+         * @return long 排序用的key
+         */
+        long extract(ByteBuffer buffer, int position);
+    }
+
+    /**
+     * 记录长度，单位字节
+     */
+    private final int recordSize;
+    /**
+     * key提取方式
+     */
+    private final KeyExtractor keyExtractor;
+    /**
+     * 第一阶段可以使用的堆内存上限，单位字节
+     */
+    private long memoryLimit = 64L << 20;
+    /**
+     * 每个有序段的记录数，0表示由内存上限决定
+     */
+    private int runRecords;
+    /**
+     * 每趟归并最多同时归并的有序段个数
+     */
+    private int fanIn = 64;
+    /**
+     * 临时文件目录，为null时使用系统临时目录
+     */
+    private File tempDir;
+
+    /**
+     * 已读入的记录数
+     */
+    private final AtomicLong recordsRead = new AtomicLong();
+    /**
+     * 已生成的有序段个数，包括归并产生的中间段
+     */
+    private final AtomicLong runsWritten = new AtomicLong();
+    /**
+     * 归并阶段已输出的记录数
+     */
+    private final AtomicLong recordsMerged = new AtomicLong();
+    /**
+     * 已完成的归并趟数
+     */
+    private final AtomicLong mergePasses = new AtomicLong();
+
+    /**
+     * 创建外部排序
+     *
+     * @param recordSize   记录长度，单位字节
+     * @param keyExtractor key提取方式
+     */
+    public ExternalSort(int recordSize, KeyExtractor keyExtractor) {
+        if (recordSize <= 0) {
+            throw new IllegalArgumentException("记录长度必须大于0");
+        }
+        if (null == keyExtractor) {
+            throw new IllegalArgumentException("key提取方式不能为null");
+        }
+        this.recordSize = recordSize;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * 以记录中指定位置的8字节有符号整数（大端）作为key
+     *
+     * @param offset key在记录中的偏移
+     * @return KeyExtractor key提取方式
+     */
+    public static KeyExtractor longKeyAt(int offset) {
+        return (buffer, position) -> buffer.getLong(position + offset);
+    }
+
+    /**
+     * 以记录中指定位置的4字节有符号整数（大端）作为key
+     *
+     * @param offset key在记录中的偏移
+     * @return KeyExtractor key提取方式
+     */
+    public static KeyExtractor intKeyAt(int offset) {
+        return (buffer, position) -> buffer.getInt(position + offset);
+    }
+
+    /**
+     * 对文件排序
+     *
+     * @param input  输入文件
+     * @param output 输出文件
+     */
+    public void sort(File input, File output) throws IOException {
+        if (!input.isFile()) {
+            throw new FileNotFoundException("输入文件不存在");
+        }
+        try (InputStream in = new FileInputStream(input)) {
+            sort(in, output);
+        }
+    }
+
+    /**
+     * 对输入流排序，输入流由调用方关闭
+     *
+     * @param input  输入流
+     * @param output 输出文件
+     */
+    public void sort(InputStream input, File output) throws IOException {
+        recordsRead.set(0);
+        runsWritten.set(0);
+        recordsMerged.set(0);
+        mergePasses.set(0);
+        List<Run> runs = createRuns(input, output);
+        List<Run> next = new ArrayList<>();
+        try {
+            // 只剩一个有序段但不在输出文件中时，也要做一趟单路归并把它写到输出文件
+            while (runs.size() > 1 || (runs.size() == 1 && !runs.get(0).file.equals(output))) {
+                next = new ArrayList<>();
+                boolean last = runs.size() <= fanIn;
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Run> group = runs.subList(i, Math.min(runs.size(), i + fanIn));
+                    File target = last ? output : createTempFile();
+                    next.add(merge(group, target));
+                    for (Run run : group) {
+                        run.delete();
+                    }
+                }
+                runs = next;
+                mergePasses.incrementAndGet();
+            }
+            if (runs.isEmpty()) {
+                new FileOutputStream(output).close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // 本趟已经归并出的有序段也要删除
+            for (List<Run> list : Arrays.asList(runs, next)) {
+                for (Run run : list) {
+                    if (!run.file.equals(output)) {
+                        run.delete();
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 第一阶段：分批读入、排序并写出有序段，只有一个有序段时直接写入输出文件
+     */
+    private List<Run> createRuns(InputStream input, File output) throws IOException {
+        int perRun = effectiveRunRecords();
+        byte[] chunk = new byte[perRun * recordSize];
+        ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+        long[] keys = new long[perRun];
+        int[] index = new int[perRun];
+        long[] keyScratch = new long[perRun];
+        int[] indexScratch = new int[perRun];
+
+        List<Run> runs = new ArrayList<>();
+        File target = null;
+        int bytes;
+        boolean first = true;
+        try {
+            while ((bytes = readFully(input, chunk)) > 0) {
+                if (bytes % recordSize != 0) {
+                    throw new IOException("输入长度不是记录长度的整数倍");
+                }
+                int count = bytes / recordSize;
+                for (int i = 0; i < count; i++) {
+                    keys[i] = keyExtractor.extract(chunkBuffer, i * recordSize);
+                    index[i] = i;
+                }
+                RadixSort.sort(keys, index, 0, count - 1, keyScratch, indexScratch);
+                // 输入只有一批时省掉归并阶段
+                boolean only = first && bytes < chunk.length;
+                target = only ? output : createTempFile();
+                try (RunWriter writer = new RunWriter(target, (long) count * recordSize)) {
+                    for (int i = 0; i < count; i++) {
+                        writer.write(chunk, index[i] * recordSize, recordSize);
+                    }
+                }
+                runs.add(new Run(target, count));
+                target = null;
+                recordsRead.addAndGet(count);
+                runsWritten.incrementAndGet();
+                first = false;
+                if (bytes < chunk.length) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 删除已经写出的有序段和写了一半的临时文件
+            for (Run run : runs) {
+                if (!run.file.equals(output)) {
+                    run.delete();
+                }
+            }
+            if (null != target && !target.equals(output)) {
+                target.delete();
+            }
+            throw e;
+        }
+        return runs;
+    }
+
+    /**
+     * 第二阶段：用败者树把一组有序段归并到target，失败时关闭所有已打开的有序段并删除写了一半的target
+     */
+    private Run merge(List<Run> group, File target) throws IOException {
+        int k = group.size();
+        RunReader[] readers = new RunReader[k];
+        long total = 0;
+        boolean done = false;
+        try {
+            for (int i = 0; i < k; i++) {
+                readers[i] = new RunReader(group.get(i));
+                total += group.get(i).records;
+            }
+            byte[] record = new byte[recordSize];
+            LoserTree tree = new LoserTree(readers);
+            try (RunWriter writer = new RunWriter(target, total * recordSize)) {
+                for (long n = 0; n < total; n++) {
+                    int winner = tree.winner();
+                    readers[winner].next(record);
+                    writer.write(record, 0, recordSize);
+                    tree.adjust(winner);
+                }
+            }
+            done = true;
+        } finally {
+            IOException closeFailure = null;
+            for (RunReader reader : readers) {
+                if (null != reader) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        closeFailure = e;
+                    }
+                }
+            }
+            if (!done) {
+                target.delete();
+            } else if (null != closeFailure) {
+                throw closeFailure;
+            }
+        }
+        // 每个有序段只累加一次，不在归并的热循环里做原子操作
+        recordsMerged.addAndGet(total);
+        runsWritten.incrementAndGet();
+        return new Run(target, total);
+    }
+
+    private int effectiveRunRecords() {
+        long byMemory = memoryLimit / (recordSize + RECORD_OVERHEAD);
+        long limit = Math.min(byMemory, Integer.MAX_VALUE / Math.max(recordSize, RECORD_OVERHEAD));
+        if (limit < 1) {
+            throw new IllegalArgumentException("内存上限太小，放不下一条记录");
+        }
+        if (runRecords > 0) {
+            if (runRecords > limit) {
+                throw new IllegalArgumentException("有序段记录数超出了内存上限");
+            }
+            return runRecords;
+        }
+        return (int) limit;
+    }
+
+    private File createTempFile() throws IOException {
+        File file = File.createTempFile("sort-run-", ".tmp", tempDir);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (total < buffer.length && (n = input.read(buffer, total, buffer.length - total)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * 一个有序段
+     */
+    private static class Run {
+        private final File file;
+        private final long records;
+
+        Run(File file, long records) {
+            this.file = file;
+            this.records = records;
+        }
+
+        void delete() {
+            // 映射的内存在GC之前不会释放，部分平台上可能删除失败，交给deleteOnExit兜底
+            file.delete();
+        }
+    }
+
+    /**
+     * 按窗口映射有序段文件，顺序读出记录
+     */
+    private class RunReader implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private long mapped;
+        private MappedByteBuffer buffer;
+        /**
+         * 当前记录的key，读完之后不再有效
+         */
+        private long key;
+        private boolean exhausted;
+
+        RunReader(Run run) throws IOException {
+            this.channel = new RandomAccessFile(run.file, "r").getChannel();
+            this.size = run.records * recordSize;
+            try {
+                advance();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * 读出当前记录并移动到下一条
+         */
+        void next(byte[] record) throws IOException {
+            buffer.get(record);
+            advance();
+        }
+
+        private void advance() throws IOException {
+            if (null == buffer || !buffer.hasRemaining()) {
+                if (mapped >= size) {
+                    exhausted = true;
+                    return;
+                }
+                long window = Math.min(size - mapped, windowBytes());
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapped, window);
+                mapped += window;
+            }
+            key = keyExtractor.extract(buffer, buffer.position());
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 按窗口映射输出文件，顺序写入记录
+     */
+    private class RunWriter implements Closeable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long size;
+        private long mapped;
+        private MappedByteBuffer buffer;
+
+        RunWriter(File target, long size) throws IOException {
+            this.file = new RandomAccessFile(target, "rw");
+            try {
+                this.file.setLength(size);
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+            this.channel = file.getChannel();
+            this.size = size;
+        }
+
+        void write(byte[] source, int offset, int length) throws IOException {
+            if (null == buffer || !buffer.hasRemaining()) {
+                long window = Math.min(size - mapped, windowBytes());
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, mapped, window);
+                mapped += window;
+            }
+            buffer.put(source, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (null != buffer) {
+                buffer.force();
+            }
+            channel.close();
+            file.close();
+        }
+    }
+
+    /**
+     * 映射窗口取记录长度的整数倍，保证一条记录不会跨窗口
+     */
+    private long windowBytes() {
+        return (long) Math.max(1, MAP_WINDOW / recordSize) * recordSize;
+    }
+
+    /**
+     * 败者树，内部节点记录败者，tree[0]记录最终胜者
+     * <p>
+     * key相同时下标小的有序段胜出，保证排序稳定
+     */
+    private static class LoserTree {
+        private final RunReader[] readers;
+        private final int[] tree;
+
+        LoserTree(RunReader[] readers) {
+            this.readers = readers;
+            int k = readers.length;
+            this.tree = new int[k];
+            // 先用下标k表示一个比所有记录都小的虚拟段，再依次调整
+            for (int i = 0; i < k; i++) {
+                tree[i] = k;
+            }
+            for (int i = k - 1; i >= 0; i--) {
+                adjust(i);
+            }
+        }
+
+        int winner() {
+            return tree[0];
+        }
+
+        /**
+         * 第s个有序段的当前记录发生变化后，从对应叶子向上重新比赛
+         */
+        void adjust(int s) {
+            int k = readers.length;
+            int t = (s + k) >> 1;
+            while (t > 0) {
+                if (beats(tree[t], s)) {
+                    int temp = s;
+                    s = tree[t];
+                    tree[t] = temp;
+                }
+                t >>= 1;
+            }
+            tree[0] = s;
+        }
+
+        private boolean beats(int a, int b) {
+            int k = readers.length;
+            if (a == k) {
+                return true;
+            }
+            if (b == k) {
+                return false;
+            }
+            if (readers[a].exhausted) {
+                return false;
+            }
+            if (readers[b].exhausted) {
+                return true;
+            }
+            long keyA = readers[a].key;
+            long keyB = readers[b].key;
+            return keyA < keyB || (keyA == keyB && a < b);
+        }
+    }
+
+    public long getRecordsRead() {
+        return recordsRead.get();
+    }
+
+    public long getRunsWritten() {
+        return runsWritten.get();
+    }
+
+    public long getRecordsMerged() {
+        return recordsMerged.get();
+    }
+
+    public long getMergePasses() {
+        return mergePasses.get();
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public void setMemoryLimit(long memoryLimit) {
+        if (memoryLimit <= 0) {
+            throw new IllegalArgumentException("内存上限必须大于0");
+        }
+        this.memoryLimit = memoryLimit;
+    }
+
+    public int getRunRecords() {
+        return runRecords;
+    }
+
+    public void setRunRecords(int runRecords) {
+        if (runRecords < 0) {
+            throw new IllegalArgumentException("有序段记录数不能小于0");
+        }
+        this.runRecords = runRecords;
+    }
+
+    public int getFanIn() {
+        return fanIn;
+    }
+
+    public void setFanIn(int fanIn) {
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("归并路数不能小于2");
+        }
+        this.fanIn = fanIn;
+    }
+
+    public File getTempDir() {
+        return tempDir;
+    }
+
+    public void setTempDir(File tempDir) {
+        this.tempDir = tempDir;
+    }
+}
+
+class TestExternalSort {
+    public static void main(String[] args) throws IOException {
+        // 每条记录16字节：8字节key + 8字节原始序号
+        int count = 1000000;
+        File input = File.createTempFile("external-input-", ".bin");
+        File output = File.createTempFile("external-output-", ".bin");
+        input.deleteOnExit();
+        output.deleteOnExit();
+        Random random = new Random();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(input)))) {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(random.nextInt(1000));
+                out.writeLong(i);
+            }
+        }
+
+        ExternalSort sort = new ExternalSort(16, ExternalSort.longKeyAt(0));
+        sort.setMemoryLimit(1 << 20);
+        sort.setFanIn(8);
+        sort.sort(input, output);
+        System.out.println("runs: " + sort.getRunsWritten() + ", passes: " + sort.getMergePasses());
+
+        boolean sorted = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(output)))) {
+            long lastKey = Long.MIN_VALUE;
+            long lastId = -1;
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                long id = in.readLong();
+                if (key < lastKey || (key == lastKey && id < lastId)) {
+                    sorted = false;
+                    break;
+                }
+                lastKey = key;
+                lastId = id;
+            }
+        }
+        System.out.println(sorted && output.length() == input.length());
+    }
+}
@@ -0,0 +1,397 @@
+package data.structure.sample.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 增量排序，用于数据按批次持续到达、随时需要有序结果的场景
+ * <p>
+ * 每批数据先用{@link TimSort}排序（已经有序的批次只需一次线性扫描），作为一个有序段追加到段列表末尾。
+ * 段列表按从旧到新保存，保持"每个段的长度大于后一个段的两倍"，不满足时由后台线程归并相邻的两个段，
+ * 因此段的个数是O(log n)的，每个元素最多被归并O(log n)次，插入的均摊代价为O(log n)。
+ * 段的个数超过上限时由插入线程自己归并，必要时不考虑长度约束继续归并最新的两个段，插入返回后段的个数不超过上限。
+ * <p>
+ * 有序段创建后不再修改，归并时生成新段替换旧段，所以迭代器和快照取的是当时的段列表，不受后续插入和归并影响。
+ * 相等的元素保持插入时的先后顺序。
+ * <p>
+ * 内存占用：所有段合计n个元素的引用，归并两个段时临时多出这两个段大小的新段。
+ * 未遍历完的迭代器持有创建时的段列表，之后被归并替换掉的旧段要等迭代器不再使用后才能回收，
+ * 长期持有迭代器最多使内存翻倍；{@link #snapshot()}返回的列表是调用方自己的一份拷贝（只有一个段时直接包装这个段）。
+ * <p>
+ * 关闭后不能再加入数据，已有的数据仍然可以归并和读取。
+ *
+ * @author Neptune
+ * @date 2020/7/6 11:20
+ */
+public class IncrementalSort<T> implements AutoCloseable {
+    /**
+     * 默认的段个数上限
+     */
+    public static final int DEFAULT_MAX_RUNS = 64;
+    /**
+     * 数组长度上限，部分虚拟机在数组中保留了头部字，申请更大的数组会失败
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final Comparator<? super T> comparator;
+    /**
+     * 执行后台归并的线程，为null时在插入线程中归并
+     */
+    private final Executor executor;
+    /**
+     * 是否由本对象创建的线程，关闭时需要一起关闭
+     */
+    private final boolean ownExecutor;
+    /**
+     * 段个数上限
+     */
+    private final int maxRuns;
+    /**
+     * 从旧到新的有序段，只在持有this锁时整体替换
+     */
+    private volatile List<Object[]> runs = Collections.emptyList();
+    /**
+     * 同一时间只允许一个线程归并
+     */
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    /**
+     * 是否已经提交了后台归并任务
+     */
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private volatile long size;
+    private volatile boolean closed;
+
+    /**
+     * 使用自己的后台线程创建增量排序
+     *
+     * @param comparator 比较器
+     */
+    public IncrementalSort(Comparator<? super T> comparator) {
+        this(comparator, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "incremental-sort-compaction");
+            thread.setDaemon(true);
+            return thread;
+        }), true, DEFAULT_MAX_RUNS);
+    }
+
+    /**
+     * 创建增量排序
+     *
+     * @param comparator 比较器
+     * @param executor   执行后台归并的线程池，为null时在插入线程中归并
+     * @param maxRuns    段个数上限
+     */
+    public IncrementalSort(Comparator<? super T> comparator, Executor executor, int maxRuns) {
+        this(comparator, executor, false, maxRuns);
+    }
+
+    private IncrementalSort(Comparator<? super T> comparator, Executor executor, boolean ownExecutor, int maxRuns) {
+        if (null == comparator) {
+            throw new IllegalArgumentException("比较器不能为null");
+        }
+        if (maxRuns < 2) {
+            throw new IllegalArgumentException("段个数上限不能小于2");
+        }
+        this.comparator = comparator;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.maxRuns = maxRuns;
+    }
+
+    /**
+     * 加入一批数据，数组会被复制，调用后可以继续使用
+     *
+     * @param batch 新的一批数据
+     * @throws IllegalStateException 已经关闭
+     */
+    public void add(T[] batch) {
+        if (closed) {
+            throw new IllegalStateException("增量排序已关闭，不能再加入数据");
+        }
+        if (batch.length == 0) {
+            return;
+        }
+        T[] run = batch.clone();
+        TimSort.sort(run, comparator);
+        synchronized (this) {
+            List<Object[]> next = new ArrayList<>(runs.size() + 1);
+            next.addAll(runs);
+            next.add(run);
+            runs = Collections.unmodifiableList(next);
+            size += run.length;
+        }
+        if (runs.size() > maxRuns || null == executor) {
+            compact(false);
+        } else if (nextMerge(runs) >= 0 && compactionScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    compactionScheduled.set(false);
+                    compact(false);
+                });
+            } catch (RejectedExecutionException e) {
+                // 与close()并发或者线程池已满，在插入线程中归并
+                compactionScheduled.set(false);
+                compact(false);
+            }
+        }
+    }
+
+    /**
+     * 元素总数
+     *
+     * @return long 元素总数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 当前的有序段个数
+     *
+     * @return int 有序段个数
+     */
+    public int runCount() {
+        return runs.size();
+    }
+
+    /**
+     * 把所有段归并成一个，在调用线程中执行
+     */
+    public void compact() {
+        compact(true);
+    }
+
+    /**
+     * 归并相邻的段
+     *
+     * @param full 为true时归并到只剩一个段，否则归并到满足段长度的约束并且段的个数不超过上限
+     */
+    private void compact(boolean full) {
+        compactionLock.lock();
+        try {
+            while (true) {
+                List<Object[]> current = runs;
+                int i = (full && current.size() > 1) || current.size() > maxRuns
+                        ? current.size() - 1 : nextMerge(current);
+                if (i < 0) {
+                    return;
+                }
+                Object[] older = current.get(i - 1);
+                Object[] newer = current.get(i);
+                Object[] merged = merge(older, newer);
+                // 只有持有归并锁的线程会改动已有的段，其他线程只会在末尾追加，i - 1和i的位置不会变
+                synchronized (this) {
+                    List<Object[]> next = new ArrayList<>(runs);
+                    next.set(i - 1, merged);
+                    next.remove(i);
+                    runs = Collections.unmodifiableList(next);
+                }
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 找到最新的一个违反长度约束的段，返回它的下标，需要与前一个段归并；都满足时返回-1
+     */
+    private static int nextMerge(List<Object[]> runs) {
+        for (int i = runs.size() - 1; i > 0; i--) {
+            if (runs.get(i - 1).length <= 2 * runs.get(i).length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 归并两个有序段，相等时旧段的元素在前
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] merge(Object[] older, Object[] newer) {
+        Object[] merged = new Object[older.length + newer.length];
+        int i = 0, j = 0, k = 0;
+        while (i < older.length && j < newer.length) {
+            if (comparator.compare((T) newer[j], (T) older[i]) < 0) {
+                merged[k++] = newer[j++];
+            } else {
+                merged[k++] = older[i++];
+            }
+        }
+        System.arraycopy(older, i, merged, k, older.length - i);
+        System.arraycopy(newer, j, merged, k + older.length - i, newer.length - j);
+        return merged;
+    }
+
+    /**
+     * 当前所有数据的有序迭代器，对各个段做多路归并，不受之后插入的数据影响
+     *
+     * @return Iterator 有序迭代器
+     */
+    public Iterator<T> iterator() {
+        List<Object[]> snapshot = runs;
+        if (snapshot.size() == 1) {
+            return runIterator(snapshot.get(0));
+        }
+        return new MergeIterator(snapshot);
+    }
+
+    /**
+     * 当前所有数据的有序快照，返回的列表不能修改
+     *
+     * @return List 有序快照
+     * @throws IllegalStateException 元素总数超过数组长度上限时
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<Object[]> snapshot = runs;
+        Object[] all;
+        if (snapshot.size() == 1) {
+            all = snapshot.get(0);
+        } else {
+            long total = 0;
+            for (Object[] run : snapshot) {
+                total += run.length;
+            }
+            if (total > MAX_ARRAY_LENGTH) {
+                throw new IllegalStateException("共有" + total + "个元素，超过了数组长度上限，请使用iterator()");
+            }
+            all = new Object[(int) total];
+            int k = 0;
+            for (Iterator<T> it = new MergeIterator(snapshot); it.hasNext(); ) {
+                all[k++] = it.next();
+            }
+        }
+        return Collections.unmodifiableList((List<T>) Arrays.asList(all));
+    }
+
+    /**
+     * 停止接收新数据，并关闭自己创建的后台线程
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ownExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<T> runIterator(Object[] run) {
+        return (Iterator<T>) Collections.unmodifiableList(Arrays.asList(run)).iterator();
+    }
+
+    /**
+     * 多路归并迭代器，相等时旧段的元素在前
+     */
+    private class MergeIterator implements Iterator<T> {
+        private final PriorityQueue<Cursor> heap;
+
+        MergeIterator(List<Object[]> snapshot) {
+            heap = new PriorityQueue<>(Math.max(1, snapshot.size()), (a, b) -> {
+                int c = comparator.compare(a.head(), b.head());
+                return c != 0 ? c : Integer.compare(a.order, b.order);
+            });
+            for (int i = 0; i < snapshot.size(); i++) {
+                heap.add(new Cursor(snapshot.get(i), i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Cursor cursor = heap.poll();
+            if (null == cursor) {
+                throw new NoSuchElementException();
+            }
+            T value = cursor.head();
+            if (++cursor.position < cursor.run.length) {
+                heap.add(cursor);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 段内的读取位置
+     */
+    private class Cursor {
+        private final Object[] run;
+        /**
+         * 段的新旧顺序，越小越旧
+         */
+        private final int order;
+        private int position;
+
+        Cursor(Object[] run, int order) {
+            this.run = run;
+            this.order = order;
+        }
+
+        @SuppressWarnings("unchecked")
+        T head() {
+            return (T) run[position];
+        }
+    }
+}
+
+class TestIncrementalSort {
+    public static void main(String[] args) throws InterruptedException {
+        Random random = new Random();
+        List<Integer> expected = new ArrayList<>();
+        try (IncrementalSort<Integer> sorter = new IncrementalSort<>(Comparator.naturalOrder())) {
+            // 模拟每批按时间有序、批次之间有交错的数据
+            for (int batch = 0; batch < 1000; batch++) {
+                Integer[] values = new Integer[1000];
+                int base = batch * 100;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = base + random.nextInt(5000);
+                }
+                Arrays.sort(values);
+                sorter.add(values);
+                expected.addAll(Arrays.asList(values));
+            }
+            Thread.sleep(100);
+            System.out.println("size: " + sorter.size() + ", runs: " + sorter.runCount());
+            Collections.sort(expected);
+            System.out.println(expected.equals(sorter.snapshot()));
+            sorter.compact();
+            System.out.println("runs after compact: " + sorter.runCount());
+            List<Integer> iterated = new ArrayList<>();
+            sorter.iterator().forEachRemaining(iterated::add);
+            System.out.println(expected.equals(iterated));
+        }
+
+        // 没有后台线程、段个数上限为2时，每次插入后段的个数都不超过2
+        IncrementalSort<Integer> bounded = new IncrementalSort<>(Comparator.naturalOrder(), null, 2);
+        int maxRuns = 0;
+        for (int batch = 1; batch <= 200; batch++) {
+            bounded.add(new Integer[]{batch, -batch});
+            maxRuns = Math.max(maxRuns, bounded.runCount());
+        }
+        System.out.println("max runs: " + maxRuns);
+        bounded.close();
+        try {
+            bounded.add(new Integer[]{0});
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
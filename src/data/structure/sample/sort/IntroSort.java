@@ -0,0 +1,689 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * 内省排序（Introsort）
+ * <p>
+ * 与{@link Sort#quickSort(Comparable[], int, int)}一样三路划分（荷兰国旗问题）并且只递归较小的一边，另外：
+ * <ul>
+ * <li>递归深度超过2*log(n)时改用堆排序，特意构造的数据也不会退化，最坏情况下是O(n log n)</li>
+ * <li>小区间使用插入排序</li>
+ * </ul>
+ * 排序不稳定。
+ *
+ * @author Neptune
+ * @date 2020/6/22 15:30
+ */
+public class IntroSort {
+    /**
+     * 小于等于这个规模的区间直接使用插入排序
+     */
+    static final int INSERTION_THRESHOLD = 24;
+    /**
+     * int[]版本的小区间：有SIMD版本的{@link SortingNetwork}时用排序网络处理不超过32个元素的区间，否则用插入排序。
+     * 标量的排序网络比插入排序慢；long[]的SIMD排序网络每个向量只有4个通道，实测整体比插入排序慢，都不使用
+     */
+    private static final boolean NETWORK_LEAVES = SortingNetwork.isVectorized();
+    private static final int LEAF_THRESHOLD = NETWORK_LEAVES ? SortingNetwork.MAX_BLOCK : INSERTION_THRESHOLD;
+    /**
+     * 大于这个规模的区间使用九数取中选择基准值
+     */
+    private static final int NINTHER_THRESHOLD = 128;
+
+    /**
+     * 按自然顺序比较，供Comparable[]版本使用
+     */
+    @SuppressWarnings("unchecked")
+    static final Comparator<Comparable> NATURAL_ORDER = (a, b) -> a.compareTo(b);
+
+    private IntroSort() {
+    }
+
+    /**
+     * 对整个数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(Comparable[] array) {
+        sort(array, 0, array.length - 1, NATURAL_ORDER);
+    }
+
+    /**
+     * 对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(Comparable[] array, int start, int end) {
+        sort(array, start, end, NATURAL_ORDER);
+    }
+
+    /**
+     * 使用比较器对整个数组排序
+     *
+     * @param array      要排序的数组
+     * @param comparator 比较器
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator) {
+        sort(array, 0, array.length - 1, comparator);
+    }
+
+    /**
+     * 使用比较器对数组的一部分排序
+     *
+     * @param array      要排序的数组
+     * @param start      要排序部分的起始坐标
+     * @param end        要排序部分的结束坐标
+     * @param comparator 比较器
+     */
+    public static <T> void sort(T[] array, int start, int end, Comparator<? super T> comparator) {
+        if (start >= end) {
+            return;
+        }
+        introSort(array, start, end, depthLimit(end - start + 1), comparator);
+    }
+
+    /**
+     * 深度上限为2*floor(log2(n))
+     */
+    static int depthLimit(int n) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(n));
+    }
+
+    static long bounds(int lt, int gt) {
+        return ((long) lt << 32) | (gt & 0xFFFFFFFFL);
+    }
+
+    static int lowerOf(long bounds) {
+        return (int) (bounds >>> 32);
+    }
+
+    static int upperOf(long bounds) {
+        return (int) bounds;
+    }
+
+    private static <T> void introSort(T[] array, int lo, int hi, int depth, Comparator<? super T> comparator) {
+        while (hi - lo + 1 > INSERTION_THRESHOLD) {
+            if (depth == 0) {
+                heapSort(array, lo, hi, comparator);
+                return;
+            }
+            depth--;
+            long bounds = partition(array, lo, hi, comparator);
+            int lt = lowerOf(bounds);
+            int gt = upperOf(bounds);
+            // 只递归较小的一边，较大的一边继续循环，栈深度不超过log(n)
+            if (lt - lo < hi - gt) {
+                introSort(array, lo, lt - 1, depth, comparator);
+                lo = gt + 1;
+            } else {
+                introSort(array, gt + 1, hi, depth, comparator);
+                hi = lt - 1;
+            }
+        }
+        insertSort(array, lo, hi, comparator);
+    }
+
+    /**
+     * 三路划分，划分后[lo, lt)小于基准值，[lt, gt]等于基准值，(gt, hi]大于基准值
+     *
+     * @return long 高32位为lt，低32位为gt
+     */
+    static <T> long partition(T[] array, int lo, int hi, Comparator<? super T> comparator) {
+        T pivot = array[pivotIndex(array, lo, hi, comparator)];
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            T value = array[i];
+            int cmp = comparator.compare(value, pivot);
+            if (cmp < 0) {
+                array[i++] = array[lt];
+                array[lt++] = value;
+            } else if (cmp > 0) {
+                array[i] = array[gt];
+                array[gt--] = value;
+            } else {
+                i++;
+            }
+        }
+        return bounds(lt, gt);
+    }
+
+    private static <T> int pivotIndex(T[] array, int lo, int hi, Comparator<? super T> comparator) {
+        int mid = (lo + hi) >>> 1;
+        if (hi - lo + 1 > NINTHER_THRESHOLD) {
+            int step = (hi - lo + 1) / 8;
+            int a = median3(array, lo, lo + step, lo + 2 * step, comparator);
+            int b = median3(array, mid - step, mid, mid + step, comparator);
+            int c = median3(array, hi - 2 * step, hi - step, hi, comparator);
+            return median3(array, a, b, c, comparator);
+        }
+        return median3(array, lo, mid, hi, comparator);
+    }
+
+    private static <T> int median3(T[] array, int i, int j, int k, Comparator<? super T> comparator) {
+        if (comparator.compare(array[i], array[j]) < 0) {
+            if (comparator.compare(array[j], array[k]) < 0) {
+                return j;
+            }
+            return comparator.compare(array[i], array[k]) < 0 ? k : i;
+        }
+        if (comparator.compare(array[k], array[j]) < 0) {
+            return j;
+        }
+        return comparator.compare(array[k], array[i]) < 0 ? k : i;
+    }
+
+    static <T> void insertSort(T[] array, int lo, int hi, Comparator<? super T> comparator) {
+        for (int i = lo + 1; i <= hi; i++) {
+            int insertIndex = i - 1;
+            T temp = array[i];
+            while (insertIndex >= lo && comparator.compare(array[insertIndex], temp) > 0) {
+                array[insertIndex + 1] = array[insertIndex];
+                insertIndex--;
+            }
+            array[insertIndex + 1] = temp;
+        }
+    }
+
+    /**
+     * 堆排序，保证最坏情况下也是O(n log n)
+     */
+    static <T> void heapSort(T[] array, int lo, int hi, Comparator<? super T> comparator) {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, lo, i, n, comparator);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            T top = array[lo];
+            array[lo] = array[lo + i];
+            array[lo + i] = top;
+            siftDown(array, lo, 0, i, comparator);
+        }
+    }
+
+    private static <T> void siftDown(T[] array, int offset, int i, int n, Comparator<? super T> comparator) {
+        T value = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && comparator.compare(array[offset + child], array[offset + child + 1]) < 0) {
+                child++;
+            }
+            if (comparator.compare(value, array[offset + child]) >= 0) {
+                break;
+            }
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = value;
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 对整个int数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(int[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对int数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(int[] array, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        introSort(array, start, end, depthLimit(end - start + 1));
+    }
+
+    private static void introSort(int[] array, int lo, int hi, int depth) {
+        while (hi - lo + 1 > LEAF_THRESHOLD) {
+            if (depth == 0) {
+                heapSort(array, lo, hi);
+                return;
+            }
+            depth--;
+            long bounds = partition(array, lo, hi);
+            int lt = lowerOf(bounds);
+            int gt = upperOf(bounds);
+            // 只递归较小的一边，较大的一边继续循环，栈深度不超过log(n)
+            if (lt - lo < hi - gt) {
+                introSort(array, lo, lt - 1, depth);
+                lo = gt + 1;
+            } else {
+                introSort(array, gt + 1, hi, depth);
+                hi = lt - 1;
+            }
+        }
+        leafSort(array, lo, hi);
+    }
+
+    /**
+     * 三路划分，划分后[lo, lt)小于基准值，[lt, gt]等于基准值，(gt, hi]大于基准值
+     *
+     * @return long 高32位为lt，低32位为gt
+     */
+    static long partition(int[] array, int lo, int hi) {
+        int pivot = array[pivotIndex(array, lo, hi)];
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            int value = array[i];
+            if (value < pivot) {
+                array[i++] = array[lt];
+                array[lt++] = value;
+            } else if (value > pivot) {
+                array[i] = array[gt];
+                array[gt--] = value;
+            } else {
+                i++;
+            }
+        }
+        return bounds(lt, gt);
+    }
+
+    private static int pivotIndex(int[] array, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (hi - lo + 1 > NINTHER_THRESHOLD) {
+            int step = (hi - lo + 1) / 8;
+            int a = median3(array, lo, lo + step, lo + 2 * step);
+            int b = median3(array, mid - step, mid, mid + step);
+            int c = median3(array, hi - 2 * step, hi - step, hi);
+            return median3(array, a, b, c);
+        }
+        return median3(array, lo, mid, hi);
+    }
+
+    private static int median3(int[] array, int i, int j, int k) {
+        if (array[i] < array[j]) {
+            return array[j] < array[k] ? j : (array[i] < array[k] ? k : i);
+        }
+        return array[k] < array[j] ? j : (array[k] < array[i] ? k : i);
+    }
+
+    /**
+     * 不超过{@link #LEAF_THRESHOLD}个元素的小区间
+     */
+    static void leafSort(int[] array, int lo, int hi) {
+        if (NETWORK_LEAVES) {
+            SortingNetwork.sortSmall(array, lo, hi + 1);
+        } else {
+            insertSort(array, lo, hi);
+        }
+    }
+
+    /**
+     * 小区间的插入排序，不经过{@link Sort#insertSort(int[], int, int)}，打开{@link SortStats}时不会为每个小区间单独记录一次排序
+     */
+    static void insertSort(int[] array, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            int insertIndex = i - 1;
+            int temp = array[i];
+            while (insertIndex >= lo && array[insertIndex] > temp) {
+                array[insertIndex + 1] = array[insertIndex];
+                insertIndex--;
+            }
+            array[insertIndex + 1] = temp;
+        }
+    }
+
+    /**
+     * 堆排序，保证最坏情况下也是O(n log n)
+     */
+    static void heapSort(int[] array, int lo, int hi) {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, lo, i, n);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int top = array[lo];
+            array[lo] = array[lo + i];
+            array[lo + i] = top;
+            siftDown(array, lo, 0, i);
+        }
+    }
+
+    private static void siftDown(int[] array, int offset, int i, int n) {
+        int value = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && array[offset + child] < array[offset + child + 1]) {
+                child++;
+            }
+            if (value >= array[offset + child]) {
+                break;
+            }
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = value;
+    }
+
+    // ==================== long[] ====================
+
+    /**
+     * 对整个long数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(long[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对long数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(long[] array, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        introSort(array, start, end, depthLimit(end - start + 1));
+    }
+
+    private static void introSort(long[] array, int lo, int hi, int depth) {
+        while (hi - lo + 1 > INSERTION_THRESHOLD) {
+            if (depth == 0) {
+                heapSort(array, lo, hi);
+                return;
+            }
+            depth--;
+            long bounds = partition(array, lo, hi);
+            int lt = lowerOf(bounds);
+            int gt = upperOf(bounds);
+            // 只递归较小的一边，较大的一边继续循环，栈深度不超过log(n)
+            if (lt - lo < hi - gt) {
+                introSort(array, lo, lt - 1, depth);
+                lo = gt + 1;
+            } else {
+                introSort(array, gt + 1, hi, depth);
+                hi = lt - 1;
+            }
+        }
+        insertSort(array, lo, hi);
+    }
+
+    /**
+     * 三路划分，划分后[lo, lt)小于基准值，[lt, gt]等于基准值，(gt, hi]大于基准值
+     *
+     * @return long 高32位为lt，低32位为gt
+     */
+    static long partition(long[] array, int lo, int hi) {
+        long pivot = array[pivotIndex(array, lo, hi)];
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            long value = array[i];
+            if (value < pivot) {
+                array[i++] = array[lt];
+                array[lt++] = value;
+            } else if (value > pivot) {
+                array[i] = array[gt];
+                array[gt--] = value;
+            } else {
+                i++;
+            }
+        }
+        return bounds(lt, gt);
+    }
+
+    private static int pivotIndex(long[] array, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (hi - lo + 1 > NINTHER_THRESHOLD) {
+            int step = (hi - lo + 1) / 8;
+            int a = median3(array, lo, lo + step, lo + 2 * step);
+            int b = median3(array, mid - step, mid, mid + step);
+            int c = median3(array, hi - 2 * step, hi - step, hi);
+            return median3(array, a, b, c);
+        }
+        return median3(array, lo, mid, hi);
+    }
+
+    private static int median3(long[] array, int i, int j, int k) {
+        if (array[i] < array[j]) {
+            return array[j] < array[k] ? j : (array[i] < array[k] ? k : i);
+        }
+        return array[k] < array[j] ? j : (array[k] < array[i] ? k : i);
+    }
+
+    /**
+     * 小区间的插入排序，不统计，参考{@link #insertSort(int[], int, int)}
+     */
+    static void insertSort(long[] array, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            int insertIndex = i - 1;
+            long temp = array[i];
+            while (insertIndex >= lo && array[insertIndex] > temp) {
+                array[insertIndex + 1] = array[insertIndex];
+                insertIndex--;
+            }
+            array[insertIndex + 1] = temp;
+        }
+    }
+
+    /**
+     * 堆排序，保证最坏情况下也是O(n log n)
+     */
+    static void heapSort(long[] array, int lo, int hi) {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, lo, i, n);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            long top = array[lo];
+            array[lo] = array[lo + i];
+            array[lo + i] = top;
+            siftDown(array, lo, 0, i);
+        }
+    }
+
+    private static void siftDown(long[] array, int offset, int i, int n) {
+        long value = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && array[offset + child] < array[offset + child + 1]) {
+                child++;
+            }
+            if (value >= array[offset + child]) {
+                break;
+            }
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = value;
+    }
+
+    // ==================== double[] ====================
+    // 与Sort的double[]版本一样直接使用 < > 比较，数组中不能含有NaN，否则结果的顺序不确定
+
+    /**
+     * 对整个double数组排序，数组中不能含有NaN
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(double[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对double数组的一部分排序，数组中不能含有NaN
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(double[] array, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        introSort(array, start, end, depthLimit(end - start + 1));
+    }
+
+    private static void introSort(double[] array, int lo, int hi, int depth) {
+        while (hi - lo + 1 > INSERTION_THRESHOLD) {
+            if (depth == 0) {
+                heapSort(array, lo, hi);
+                return;
+            }
+            depth--;
+            long bounds = partition(array, lo, hi);
+            int lt = lowerOf(bounds);
+            int gt = upperOf(bounds);
+            // 只递归较小的一边，较大的一边继续循环，栈深度不超过log(n)
+            if (lt - lo < hi - gt) {
+                introSort(array, lo, lt - 1, depth);
+                lo = gt + 1;
+            } else {
+                introSort(array, gt + 1, hi, depth);
+                hi = lt - 1;
+            }
+        }
+        insertSort(array, lo, hi);
+    }
+
+    /**
+     * 三路划分，划分后[lo, lt)小于基准值，[lt, gt]等于基准值，(gt, hi]大于基准值
+     *
+     * @return long 高32位为lt，低32位为gt
+     */
+    static long partition(double[] array, int lo, int hi) {
+        double pivot = array[pivotIndex(array, lo, hi)];
+        int lt = lo;
+        int gt = hi;
+        int i = lo;
+        while (i <= gt) {
+            double value = array[i];
+            if (value < pivot) {
+                array[i++] = array[lt];
+                array[lt++] = value;
+            } else if (value > pivot) {
+                array[i] = array[gt];
+                array[gt--] = value;
+            } else {
+                i++;
+            }
+        }
+        return bounds(lt, gt);
+    }
+
+    private static int pivotIndex(double[] array, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (hi - lo + 1 > NINTHER_THRESHOLD) {
+            int step = (hi - lo + 1) / 8;
+            int a = median3(array, lo, lo + step, lo + 2 * step);
+            int b = median3(array, mid - step, mid, mid + step);
+            int c = median3(array, hi - 2 * step, hi - step, hi);
+            return median3(array, a, b, c);
+        }
+        return median3(array, lo, mid, hi);
+    }
+
+    private static int median3(double[] array, int i, int j, int k) {
+        if (array[i] < array[j]) {
+            return array[j] < array[k] ? j : (array[i] < array[k] ? k : i);
+        }
+        return array[k] < array[j] ? j : (array[k] < array[i] ? k : i);
+    }
+
+    /**
+     * 小区间的插入排序，不统计，参考{@link #insertSort(int[], int, int)}
+     */
+    static void insertSort(double[] array, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            int insertIndex = i - 1;
+            double temp = array[i];
+            while (insertIndex >= lo && array[insertIndex] > temp) {
+                array[insertIndex + 1] = array[insertIndex];
+                insertIndex--;
+            }
+            array[insertIndex + 1] = temp;
+        }
+    }
+
+    /**
+     * 堆排序，保证最坏情况下也是O(n log n)
+     */
+    static void heapSort(double[] array, int lo, int hi) {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(array, lo, i, n);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            double top = array[lo];
+            array[lo] = array[lo + i];
+            array[lo + i] = top;
+            siftDown(array, lo, 0, i);
+        }
+    }
+
+    private static void siftDown(double[] array, int offset, int i, int n) {
+        double value = array[offset + i];
+        int child;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && array[offset + child] < array[offset + child + 1]) {
+                child++;
+            }
+            if (value >= array[offset + child]) {
+                break;
+            }
+            array[offset + i] = array[offset + child];
+            i = child;
+        }
+        array[offset + i] = value;
+    }
+}
+
+class TestIntroSort {
+    public static void main(String[] args) {
+        int len = 1000000;
+        Random random = new Random();
+        // 大量重复元素
+        int[] few = new int[len];
+        for (int i = 0; i < len; i++) {
+            few[i] = random.nextInt(4);
+        }
+        int[] expected = few.clone();
+        Arrays.sort(expected);
+        IntroSort.sort(few);
+        System.out.println(Arrays.equals(expected, few));
+
+        // 已经有序的数据，经典快速排序在这里递归很深
+        long[] sorted = new long[len];
+        for (int i = 0; i < len; i++) {
+            sorted[i] = i;
+        }
+        IntroSort.sort(sorted);
+        System.out.println(sorted[0] == 0 && sorted[len - 1] == len - 1);
+
+        Integer[] boxed = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            boxed[i] = random.nextInt(len);
+        }
+        IntroSort.sort(boxed, Comparator.reverseOrder());
+        boolean descending = true;
+        for (int i = 1; i < len; i++) {
+            if (boxed[i - 1] < boxed[i]) {
+                descending = false;
+                break;
+            }
+        }
+        System.out.println(descending);
+    }
+}
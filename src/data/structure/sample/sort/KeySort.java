@@ -0,0 +1,172 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按提取出的key对对象数组排序
+ * <p>
+ * 用Comparable或Comparator排序时，每次比较都要重新计算key（比如解析字段、计算分数）。
+ * 这里先对每个元素只提取一次key，存入基本类型数组，用{@link RadixSort}带下标排序，
+ * 得到一个下标排列，最后按这个排列就地调整原数组。排序是稳定的。
+ *
+ * @author Neptune
+ * @date 2020/7/3 10:10
+ */
+public class KeySort {
+    /**
+     * 小于这个规模时把int型key和下标拼成long，直接用内省排序
+     */
+    private static final int PACKED_THRESHOLD = 256;
+
+    private KeySort() {
+    }
+
+    /**
+     * 按int型key排序
+     *
+     * @param array 要排序的数组
+     * @param key   key提取方式，每个元素只调用一次
+     */
+    public static <T> void sortByInt(T[] array, ToIntFunction<? super T> key) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        int[] index = new int[n];
+        if (n < PACKED_THRESHOLD) {
+            // 高32位是key，低32位是下标，按long排序即先按key再按下标，结果是稳定的
+            long[] packed = new long[n];
+            for (int i = 0; i < n; i++) {
+                packed[i] = ((long) key.applyAsInt(array[i]) << 32) | i;
+            }
+            IntroSort.sort(packed);
+            for (int i = 0; i < n; i++) {
+                index[i] = (int) packed[i];
+            }
+        } else {
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = key.applyAsInt(array[i]);
+                index[i] = i;
+            }
+            RadixSort.sort(keys, index);
+        }
+        permute(array, index);
+    }
+
+    /**
+     * 按long型key排序
+     *
+     * @param array 要排序的数组
+     * @param key   key提取方式，每个元素只调用一次
+     */
+    public static <T> void sortByLong(T[] array, ToLongFunction<? super T> key) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        long[] keys = new long[n];
+        int[] index = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = key.applyAsLong(array[i]);
+            index[i] = i;
+        }
+        RadixSort.sort(keys, index);
+        permute(array, index);
+    }
+
+    /**
+     * 按double型key排序，顺序与{@link Double#compare(double, double)}一致
+     *
+     * @param array 要排序的数组
+     * @param key   key提取方式，每个元素只调用一次
+     */
+    public static <T> void sortByDouble(T[] array, ToDoubleFunction<? super T> key) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        long[] keys = new long[n];
+        int[] index = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = sortableBits(key.applyAsDouble(array[i]));
+            index[i] = i;
+        }
+        RadixSort.sort(keys, index);
+        permute(array, index);
+    }
+
+    /**
+     * 用比较器排序，适用于无法提取成数值的key，排序是稳定的
+     *
+     * @param array      要排序的数组
+     * @param comparator 比较器
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator) {
+        TimSort.sort(array, comparator);
+    }
+
+    /**
+     * 把double转换成按有符号long比较时顺序不变的位模式：负数把除符号位以外的位取反
+     */
+    static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * 按下标排列就地调整数组，执行后array[i]为原来的array[index[i]]，index会被改写
+     */
+    static <T> void permute(T[] array, int[] index) {
+        for (int i = 0; i < array.length; i++) {
+            if (index[i] == i) {
+                continue;
+            }
+            // 沿着置换环依次搬移，环上每个位置处理后把index标记为自身
+            T first = array[i];
+            int j = i;
+            while (true) {
+                int from = index[j];
+                index[j] = j;
+                if (from == i) {
+                    array[j] = first;
+                    break;
+                }
+                array[j] = array[from];
+                j = from;
+            }
+        }
+    }
+}
+
+class TestKeySort {
+    public static void main(String[] args) {
+        Random random = new Random();
+        String[] lines = new String[100000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "id-" + i + "," + (random.nextInt(2000) - 1000) / 10.0;
+        }
+        // 分数只解析一次
+        KeySort.sortByDouble(lines, line -> Double.parseDouble(line.substring(line.indexOf(',') + 1)));
+        boolean sorted = true;
+        for (int i = 1; i < lines.length; i++) {
+            double previous = Double.parseDouble(lines[i - 1].substring(lines[i - 1].indexOf(',') + 1));
+            double current = Double.parseDouble(lines[i].substring(lines[i].indexOf(',') + 1));
+            if (previous > current) {
+                sorted = false;
+                break;
+            }
+        }
+        System.out.println(sorted);
+        System.out.println(Arrays.toString(Arrays.copyOf(lines, 5)));
+
+        String[] words = {"pear", "apple", "fig", "banana", "kiwi"};
+        KeySort.sortByInt(words, String::length);
+        System.out.println(Arrays.toString(words));
+    }
+}
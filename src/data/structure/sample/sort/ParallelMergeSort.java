@@ -0,0 +1,437 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于Fork/Join的并行归并排序
+ * <p>
+ * 与{@link Sort#mergeSort(Comparable[], int, int, Comparable[])}不同，这里原数组和中转数组交替作为数据源和目标，
+ * 每一层归并都直接写入另一个数组，不需要再把temp拷贝回原数组；
+ * 规模较大的归并通过二分查找切分成两个独立的子归并并行执行。排序是稳定的。
+ *
+ * @author Neptune
+ * @date 2020/6/22 10:15
+ */
+public class ParallelMergeSort {
+    /**
+     * 默认的串行阈值，小于这个规模的子数组不再拆分任务
+     */
+    public static final int DEFAULT_CUTOFF = 1 << 13;
+    /**
+     * 小于这个规模的子数组直接使用插入排序
+     */
+    private static final int INSERTION_THRESHOLD = 32;
+    /**
+     * 串行阈值
+     */
+    private final int cutoff;
+    /**
+     * 执行任务的线程池
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * 使用默认阈值和公共线程池创建并行归并排序
+     */
+    public ParallelMergeSort() {
+        this(DEFAULT_CUTOFF, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 创建并行归并排序
+     *
+     * @param cutoff 串行阈值，子数组长度不超过该值时在当前线程内完成排序和归并
+     * @param pool   执行任务的线程池
+     */
+    public ParallelMergeSort(int cutoff, ForkJoinPool pool) {
+        if (cutoff < INSERTION_THRESHOLD) {
+            throw new IllegalArgumentException("串行阈值不能小于" + INSERTION_THRESHOLD);
+        }
+        if (null == pool) {
+            throw new IllegalArgumentException("线程池不能为null");
+        }
+        this.cutoff = cutoff;
+        this.pool = pool;
+    }
+
+    /**
+     * 对整个数组进行稳定的并行排序
+     *
+     * @param array 要排序的数组
+     */
+    public void sort(Comparable[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对数组的一部分进行稳定的并行排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public void sort(Comparable[] array, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        // 中转数组只覆盖排序区间，temp[i - start]对应array[i]，各个子任务互不干扰
+        Comparable[] temp = new Comparable[end - start + 1];
+        pool.invoke(new ObjectSortTask(array, temp, start, start, end + 1, false));
+    }
+
+    /**
+     * 对整个int数组进行并行排序
+     *
+     * @param array 要排序的数组
+     */
+    public void sort(int[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对int数组的一部分进行并行排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public void sort(int[] array, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        int[] temp = new int[end - start + 1];
+        pool.invoke(new IntSortTask(array, temp, start, start, end + 1, false));
+    }
+
+    // ==================== Comparable[] ====================
+
+    /**
+     * 排序任务：对a[lo, hi)排序，toTemp为true时结果写入temp，否则写回a；a[i]在temp中的位置是i - offset
+     */
+    @SuppressWarnings("serial")
+    private class ObjectSortTask extends RecursiveAction {
+        private final Comparable[] a;
+        private final Comparable[] temp;
+        private final int offset;
+        private final int lo;
+        private final int hi;
+        private final boolean toTemp;
+
+        ObjectSortTask(Comparable[] a, Comparable[] temp, int offset, int lo, int hi, boolean toTemp) {
+            this.a = a;
+            this.temp = temp;
+            this.offset = offset;
+            this.lo = lo;
+            this.hi = hi;
+            this.toTemp = toTemp;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                sortSequential(a, temp, offset, lo, hi, toTemp);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            // 两半的结果写入另一个数组，再归并回目标数组
+            invokeAll(new ObjectSortTask(a, temp, offset, lo, mid, !toTemp),
+                    new ObjectSortTask(a, temp, offset, mid, hi, !toTemp));
+            if (toTemp) {
+                new ObjectMergeTask(a, lo, mid, mid, hi, temp, lo - offset).compute();
+            } else {
+                new ObjectMergeTask(temp, lo - offset, mid - offset, mid - offset, hi - offset, a, lo).compute();
+            }
+        }
+    }
+
+    /**
+     * 归并任务：把src[lo1, hi1)和src[lo2, hi2)归并到dst的dstLo开始的位置
+     */
+    @SuppressWarnings("serial")
+    private class ObjectMergeTask extends RecursiveAction {
+        private final Comparable[] src;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final Comparable[] dst;
+        private final int dstLo;
+
+        ObjectMergeTask(Comparable[] src, int lo1, int hi1, int lo2, int hi2, Comparable[] dst, int dstLo) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.dstLo = dstLo;
+        }
+
+        @Override
+        protected void compute() {
+            int len1 = hi1 - lo1;
+            int len2 = hi2 - lo2;
+            if (len1 + len2 <= cutoff || len1 == 0 || len2 == 0) {
+                mergeSequential(src, lo1, hi1, lo2, hi2, dst, dstLo);
+                return;
+            }
+            // 在较长的一段取中点，在另一段中二分查找切分点，切分方式保证稳定性
+            int split1;
+            int split2;
+            if (len1 >= len2) {
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(src, lo2, hi2, src[split1]);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = upperBound(src, lo1, hi1, src[split2]);
+            }
+            int dstMid = dstLo + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new ObjectMergeTask(src, lo1, split1, lo2, split2, dst, dstLo),
+                    new ObjectMergeTask(src, split1, hi1, split2, hi2, dst, dstMid));
+        }
+    }
+
+    private static void sortSequential(Comparable[] a, Comparable[] temp, int offset, int lo, int hi, boolean toTemp) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            IntroSort.insertSort(a, lo, hi - 1, IntroSort.NATURAL_ORDER);
+            if (toTemp) {
+                System.arraycopy(a, lo, temp, lo - offset, hi - lo);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortSequential(a, temp, offset, lo, mid, !toTemp);
+        sortSequential(a, temp, offset, mid, hi, !toTemp);
+        if (toTemp) {
+            mergeSequential(a, lo, mid, mid, hi, temp, lo - offset);
+        } else {
+            mergeSequential(temp, lo - offset, mid - offset, mid - offset, hi - offset, a, lo);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void mergeSequential(Comparable[] src, int lo1, int hi1, int lo2, int hi2,
+                                        Comparable[] dst, int dstLo) {
+        int k = dstLo;
+        while (lo1 < hi1 && lo2 < hi2) {
+            // 相等时取左边的元素，保证稳定
+            if (src[lo1].compareTo(src[lo2]) <= 0) {
+                dst[k++] = src[lo1++];
+            } else {
+                dst[k++] = src[lo2++];
+            }
+        }
+        System.arraycopy(src, lo1, dst, k, hi1 - lo1);
+        System.arraycopy(src, lo2, dst, k + hi1 - lo1, hi2 - lo2);
+    }
+
+    /**
+     * 返回[lo, hi)中第一个不小于key的位置
+     */
+    @SuppressWarnings("unchecked")
+    private static int lowerBound(Comparable[] a, int lo, int hi, Comparable key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 返回[lo, hi)中第一个大于key的位置
+     */
+    @SuppressWarnings("unchecked")
+    private static int upperBound(Comparable[] a, int lo, int hi, Comparable key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid].compareTo(key) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // ==================== int[] ====================
+
+    @SuppressWarnings("serial")
+    private class IntSortTask extends RecursiveAction {
+        private final int[] a;
+        private final int[] temp;
+        private final int offset;
+        private final int lo;
+        private final int hi;
+        private final boolean toTemp;
+
+        IntSortTask(int[] a, int[] temp, int offset, int lo, int hi, boolean toTemp) {
+            this.a = a;
+            this.temp = temp;
+            this.offset = offset;
+            this.lo = lo;
+            this.hi = hi;
+            this.toTemp = toTemp;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                sortSequential(a, temp, offset, lo, hi, toTemp);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new IntSortTask(a, temp, offset, lo, mid, !toTemp),
+                    new IntSortTask(a, temp, offset, mid, hi, !toTemp));
+            if (toTemp) {
+                new IntMergeTask(a, lo, mid, mid, hi, temp, lo - offset).compute();
+            } else {
+                new IntMergeTask(temp, lo - offset, mid - offset, mid - offset, hi - offset, a, lo).compute();
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class IntMergeTask extends RecursiveAction {
+        private final int[] src;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final int[] dst;
+        private final int dstLo;
+
+        IntMergeTask(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.dstLo = dstLo;
+        }
+
+        @Override
+        protected void compute() {
+            int len1 = hi1 - lo1;
+            int len2 = hi2 - lo2;
+            if (len1 + len2 <= cutoff || len1 == 0 || len2 == 0) {
+                mergeSequential(src, lo1, hi1, lo2, hi2, dst, dstLo);
+                return;
+            }
+            int split1;
+            int split2;
+            if (len1 >= len2) {
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(src, lo2, hi2, src[split1]);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = upperBound(src, lo1, hi1, src[split2]);
+            }
+            int dstMid = dstLo + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new IntMergeTask(src, lo1, split1, lo2, split2, dst, dstLo),
+                    new IntMergeTask(src, split1, hi1, split2, hi2, dst, dstMid));
+        }
+    }
+
+    private static void sortSequential(int[] a, int[] temp, int offset, int lo, int hi, boolean toTemp) {
+        if (hi - lo <= INSERTION_THRESHOLD) {
+            IntroSort.leafSort(a, lo, hi - 1);
+            if (toTemp) {
+                System.arraycopy(a, lo, temp, lo - offset, hi - lo);
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortSequential(a, temp, offset, lo, mid, !toTemp);
+        sortSequential(a, temp, offset, mid, hi, !toTemp);
+        if (toTemp) {
+            mergeSequential(a, lo, mid, mid, hi, temp, lo - offset);
+        } else {
+            mergeSequential(temp, lo - offset, mid - offset, mid - offset, hi - offset, a, lo);
+        }
+    }
+
+    private static void mergeSequential(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+        SortingNetwork.scalarMerge(src, lo1, hi1, lo2, hi2, dst, dstLo);
+    }
+
+    private static int lowerBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int upperBound(int[] a, int lo, int hi, int key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
+
+class TestParallelMergeSort {
+    public static void main(String[] args) {
+        int len = 1000000;
+        int[] array = new int[len];
+        Random random = new Random();
+        for (int i = 0; i < len; i++) {
+            array[i] = random.nextInt(len);
+        }
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+
+        new ParallelMergeSort().sort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        Integer[] boxed = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            boxed[i] = random.nextInt(len);
+        }
+        new ParallelMergeSort(1024, ForkJoinPool.commonPool()).sort(boxed);
+        boolean sorted = true;
+        for (int i = 1; i < len; i++) {
+            if (boxed[i - 1] > boxed[i]) {
+                sorted = false;
+                break;
+            }
+        }
+        System.out.println(sorted);
+
+        // 只排序中间一段，中转数组只有这一段的长度，两端保持不变
+        int from = len / 3;
+        int to = len - len / 4;
+        int[] part = new int[len];
+        Integer[] boxedPart = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            part[i] = random.nextInt(len);
+            boxedPart[i] = part[i];
+        }
+        int[] expectedPart = part.clone();
+        Arrays.sort(expectedPart, from, to + 1);
+        new ParallelMergeSort(1024, ForkJoinPool.commonPool()).sort(part, from, to);
+        new ParallelMergeSort(1024, ForkJoinPool.commonPool()).sort(boxedPart, from, to);
+        boolean matched = Arrays.equals(expectedPart, part);
+        for (int i = 0; i < len && matched; i++) {
+            matched = boxedPart[i] == expectedPart[i];
+        }
+        System.out.println(matched);
+    }
+}
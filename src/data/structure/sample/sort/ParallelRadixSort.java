@@ -0,0 +1,354 @@
+package data.structure.sample.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于Fork/Join的并行MSD基数排序
+ * <p>
+ * 从最高字节开始分桶：数组切成若干分片，每个分片并行统计自己的直方图，
+ * 再由直方图算出每个分片在每个桶中的写入位置，然后各分片并行分配到中转数组；
+ * 之后每个桶作为独立的子任务并行地按下一个字节继续分桶，
+ * 桶足够小时改用{@link RadixSort}的LSD排序。原数组和中转数组交替使用，只创建一次中转数组。
+ *
+ * @author Neptune
+ * @date 2020/6/23 16:20
+ */
+public class ParallelRadixSort {
+    /**
+     * 默认阈值，不超过这个规模的桶使用LSD排序
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 16;
+    private static final int RADIX = RadixSort.RADIX;
+    /**
+     * 阈值，同时决定分片的最小规模
+     */
+    private final int threshold;
+    /**
+     * 执行任务的线程池
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * 使用默认阈值和公共线程池创建并行基数排序
+     */
+    public ParallelRadixSort() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 创建并行基数排序
+     *
+     * @param threshold 不超过这个规模的桶使用单线程LSD排序
+     * @param pool      执行任务的线程池
+     */
+    public ParallelRadixSort(int threshold, ForkJoinPool pool) {
+        if (threshold < RADIX) {
+            throw new IllegalArgumentException("阈值不能小于" + RADIX);
+        }
+        if (null == pool) {
+            throw new IllegalArgumentException("线程池不能为null");
+        }
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 对整个int数组进行并行排序
+     *
+     * @param array 要排序的数组
+     */
+    public void sort(int[] array) {
+        int n = array.length;
+        if (n <= threshold) {
+            RadixSort.sort(array);
+            return;
+        }
+        int[] scratch = new int[n];
+        pool.invoke(new IntMsdTask(array, scratch, false, 0, n, Integer.SIZE - RadixSort.DIGIT_BITS));
+    }
+
+    /**
+     * MSD任务：按shift所在的位对[lo, hi)分桶，然后并行处理每个桶，结果写回原数组
+     */
+    @SuppressWarnings("serial")
+    private class IntMsdTask extends RecursiveAction {
+        /**
+         * 原数组，最终结果写回这里
+         */
+        private final int[] array;
+        private final int[] scratch;
+        /**
+         * 当前数据是否在中转数组中
+         */
+        private final boolean inScratch;
+        private final int lo;
+        private final int hi;
+        private final int shift;
+
+        IntMsdTask(int[] array, int[] scratch, boolean inScratch, int lo, int hi, int shift) {
+            this.array = array;
+            this.scratch = scratch;
+            this.inScratch = inScratch;
+            this.lo = lo;
+            this.hi = hi;
+            this.shift = shift;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            if (n <= threshold) {
+                // 小桶：先放回原数组，再用LSD排序剩下的位，高位都相同的趟会被跳过
+                if (inScratch) {
+                    System.arraycopy(scratch, lo, array, lo, n);
+                }
+                RadixSort.sort(array, null, lo, hi - 1, scratch, null, lo);
+                return;
+            }
+            int[] src = inScratch ? scratch : array;
+            int[] dst = inScratch ? array : scratch;
+            // 每个分片统计自己的直方图
+            int chunks = Math.max(1, Math.min(pool.getParallelism(), n / threshold));
+            int chunkLen = (int) (((long) n + chunks - 1) / chunks);
+            int[][] histograms = new int[chunks][RADIX];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) Math.min(hi, lo + (long) c * chunkLen);
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] histogram = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        histogram[digit(src[i], shift)]++;
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 计算每个分片在每个桶中的写入位置
+            int[] bucketStart = new int[RADIX + 1];
+            int position = lo;
+            for (int b = 0; b < RADIX; b++) {
+                bucketStart[b] = position;
+                for (int c = 0; c < chunks; c++) {
+                    int count = histograms[c][b];
+                    histograms[c][b] = position;
+                    position += count;
+                }
+                // 所有元素这一位都相同，不用移动，直接处理下一位
+                if (position - bucketStart[b] == n) {
+                    if (shift == 0) {
+                        if (inScratch) {
+                            System.arraycopy(scratch, lo, array, lo, n);
+                        }
+                    } else {
+                        new IntMsdTask(array, scratch, inScratch, lo, hi, shift - RadixSort.DIGIT_BITS).compute();
+                    }
+                    return;
+                }
+            }
+            bucketStart[RADIX] = hi;
+            // 并行分配
+            tasks.clear();
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) Math.min(hi, lo + (long) c * chunkLen);
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] offsets = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        int v = src[i];
+                        dst[offsets[digit(v, shift)]++] = v;
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 并行处理每个桶
+            tasks.clear();
+            for (int b = 0; b < RADIX; b++) {
+                int from = bucketStart[b];
+                int to = bucketStart[b + 1];
+                if (to - from == 0) {
+                    continue;
+                }
+                if (shift == 0 || to - from == 1) {
+                    // 桶内元素已经有序
+                    if (!inScratch) {
+                        System.arraycopy(scratch, from, array, from, to - from);
+                    }
+                } else {
+                    tasks.add(new IntMsdTask(array, scratch, !inScratch, from, to, shift - RadixSort.DIGIT_BITS));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static int digit(int value, int shift) {
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & RadixSort.MASK;
+    }
+
+    // ==================== long[] ====================
+
+    /**
+     * 对整个long数组进行并行排序
+     *
+     * @param array 要排序的数组
+     */
+    public void sort(long[] array) {
+        int n = array.length;
+        if (n <= threshold) {
+            RadixSort.sort(array);
+            return;
+        }
+        long[] scratch = new long[n];
+        pool.invoke(new LongMsdTask(array, scratch, false, 0, n, Long.SIZE - RadixSort.DIGIT_BITS));
+    }
+
+    /**
+     * MSD任务：按shift所在的位对[lo, hi)分桶，然后并行处理每个桶，结果写回原数组
+     */
+    @SuppressWarnings("serial")
+    private class LongMsdTask extends RecursiveAction {
+        /**
+         * 原数组，最终结果写回这里
+         */
+        private final long[] array;
+        private final long[] scratch;
+        /**
+         * 当前数据是否在中转数组中
+         */
+        private final boolean inScratch;
+        private final int lo;
+        private final int hi;
+        private final int shift;
+
+        LongMsdTask(long[] array, long[] scratch, boolean inScratch, int lo, int hi, int shift) {
+            this.array = array;
+            this.scratch = scratch;
+            this.inScratch = inScratch;
+            this.lo = lo;
+            this.hi = hi;
+            this.shift = shift;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            if (n <= threshold) {
+                // 小桶：先放回原数组，再用LSD排序剩下的位，高位都相同的趟会被跳过
+                if (inScratch) {
+                    System.arraycopy(scratch, lo, array, lo, n);
+                }
+                RadixSort.sort(array, null, lo, hi - 1, scratch, null, lo);
+                return;
+            }
+            long[] src = inScratch ? scratch : array;
+            long[] dst = inScratch ? array : scratch;
+            // 每个分片统计自己的直方图
+            int chunks = Math.max(1, Math.min(pool.getParallelism(), n / threshold));
+            int chunkLen = (int) (((long) n + chunks - 1) / chunks);
+            int[][] histograms = new int[chunks][RADIX];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) Math.min(hi, lo + (long) c * chunkLen);
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] histogram = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        histogram[digit(src[i], shift)]++;
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 计算每个分片在每个桶中的写入位置
+            int[] bucketStart = new int[RADIX + 1];
+            int position = lo;
+            for (int b = 0; b < RADIX; b++) {
+                bucketStart[b] = position;
+                for (int c = 0; c < chunks; c++) {
+                    int count = histograms[c][b];
+                    histograms[c][b] = position;
+                    position += count;
+                }
+                // 所有元素这一位都相同，不用移动，直接处理下一位
+                if (position - bucketStart[b] == n) {
+                    if (shift == 0) {
+                        if (inScratch) {
+                            System.arraycopy(scratch, lo, array, lo, n);
+                        }
+                    } else {
+                        new LongMsdTask(array, scratch, inScratch, lo, hi, shift - RadixSort.DIGIT_BITS).compute();
+                    }
+                    return;
+                }
+            }
+            bucketStart[RADIX] = hi;
+            // 并行分配
+            tasks.clear();
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) Math.min(hi, lo + (long) c * chunkLen);
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] offsets = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        long v = src[i];
+                        dst[offsets[digit(v, shift)]++] = v;
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 并行处理每个桶
+            tasks.clear();
+            for (int b = 0; b < RADIX; b++) {
+                int from = bucketStart[b];
+                int to = bucketStart[b + 1];
+                if (to - from == 0) {
+                    continue;
+                }
+                if (shift == 0 || to - from == 1) {
+                    // 桶内元素已经有序
+                    if (!inScratch) {
+                        System.arraycopy(scratch, from, array, from, to - from);
+                    }
+                } else {
+                    tasks.add(new LongMsdTask(array, scratch, !inScratch, from, to, shift - RadixSort.DIGIT_BITS));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static int digit(long value, int shift) {
+        return (int) ((value ^ Long.MIN_VALUE) >>> shift) & RadixSort.MASK;
+    }
+}
+
+class TestParallelRadixSort {
+    public static void main(String[] args) {
+        int len = 5000000;
+        Random random = new Random();
+        long[] array = new long[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = random.nextLong();
+        }
+        long[] expected = array.clone();
+        Arrays.sort(expected);
+        new ParallelRadixSort().sort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        int[] ints = new int[len];
+        for (int i = 0; i < len; i++) {
+            ints[i] = random.nextInt(1000) - 500;
+        }
+        int[] expectedInts = ints.clone();
+        Arrays.sort(expectedInts);
+        new ParallelRadixSort().sort(ints);
+        System.out.println(Arrays.equals(expectedInts, ints));
+    }
+}
@@ -0,0 +1,269 @@
+package data.structure.sample.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于Fork/Join的并行样本排序，适用于只能用比较器比较的对象数组
+ * <p>
+ * 随机抽取一批样本排序后等间隔选出k-1个分割元素，组成一棵完全二叉搜索树（按堆的方式存在数组里）。
+ * 数组切成若干分片，每个分片并行地通过分割树为每个元素算出桶号并统计直方图，
+ * 由直方图算出每个分片在每个桶中的写入位置后并行分配到中转数组，
+ * 最后每个桶作为独立的子任务并行排序，大桶继续递归分桶，小桶用{@link TimSort}排序。
+ * <p>
+ * 与分割元素相等的元素总是进入同一个桶，分配时保持分片内和分片间的先后顺序，
+ * 桶内又用稳定的TimSort排序，因此结果与单线程的稳定排序完全相同。
+ *
+ * @author Neptune
+ * @date 2020/7/4 9:40
+ */
+public class ParallelSampleSort {
+    /**
+     * 默认阈值，不超过这个规模的桶使用单线程排序
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+    /**
+     * 一次分桶最多的桶数，桶号用一个字节保存
+     */
+    private static final int MAX_BUCKETS = 256;
+    /**
+     * 每个桶抽取的样本数
+     */
+    private static final int OVERSAMPLING = 16;
+    /**
+     * 阈值，同时决定分片的最小规模
+     */
+    private final int threshold;
+    /**
+     * 执行任务的线程池
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * 使用默认阈值和公共线程池创建并行样本排序
+     */
+    public ParallelSampleSort() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 创建并行样本排序
+     *
+     * @param threshold 不超过这个规模的桶使用单线程排序
+     * @param pool      执行任务的线程池
+     */
+    public ParallelSampleSort(int threshold, ForkJoinPool pool) {
+        if (threshold < MAX_BUCKETS) {
+            throw new IllegalArgumentException("阈值不能小于" + MAX_BUCKETS);
+        }
+        if (null == pool) {
+            throw new IllegalArgumentException("线程池不能为null");
+        }
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    /**
+     * 按自然顺序对整个数组进行并行排序
+     *
+     * @param array 要排序的数组
+     */
+    public void sort(Comparable[] array) {
+        sort(array, IntroSort.NATURAL_ORDER);
+    }
+
+    /**
+     * 用比较器对整个数组进行并行排序，排序是稳定的
+     *
+     * @param array      要排序的数组
+     * @param comparator 比较器
+     */
+    public <T> void sort(T[] array, Comparator<? super T> comparator) {
+        int n = array.length;
+        if (n <= threshold) {
+            TimSort.sort(array, comparator);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        T[] scratch = (T[]) new Object[n];
+        byte[] bucketOf = new byte[n];
+        pool.invoke(new SampleTask<>(array, scratch, bucketOf, 0, n, comparator));
+    }
+
+    /**
+     * 分桶任务：对[lo, hi)分桶，然后并行处理每个桶，结果写回原数组
+     */
+    @SuppressWarnings("serial")
+    private class SampleTask<T> extends RecursiveAction {
+        private final T[] array;
+        private final T[] scratch;
+        /**
+         * 每个元素的桶号，与原数组按下标一一对应，各层递归处理的区间互不重叠，可以共用
+         */
+        private final byte[] bucketOf;
+        private final int lo;
+        private final int hi;
+        private final Comparator<? super T> comparator;
+
+        SampleTask(T[] array, T[] scratch, byte[] bucketOf, int lo, int hi, Comparator<? super T> comparator) {
+            this.array = array;
+            this.scratch = scratch;
+            this.bucketOf = bucketOf;
+            this.lo = lo;
+            this.hi = hi;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            if (n <= threshold) {
+                TimSort.sort(array, lo, hi - 1, comparator);
+                return;
+            }
+            // 桶数取2的幂，平均每个桶约为阈值的一半；n超过2^30时2 * n会溢出，先用long计算
+            int buckets = Integer.highestOneBit((int) Math.max(2, Math.min(MAX_BUCKETS, 2L * n / threshold)));
+            int levels = Integer.numberOfTrailingZeros(buckets);
+            T[] tree = splitterTree(buckets);
+            // 每个分片分类并统计自己的直方图
+            int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, n / threshold));
+            int chunkLen = (n + chunks - 1) / chunks;
+            int[][] histograms = new int[chunks][buckets];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = lo + c * chunkLen;
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] histogram = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        int b = classify(tree, levels, array[i]);
+                        bucketOf[i] = (byte) b;
+                        histogram[b]++;
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 计算每个分片在每个桶中的写入位置
+            int[] bucketStart = new int[buckets + 1];
+            int position = lo;
+            for (int b = 0; b < buckets; b++) {
+                bucketStart[b] = position;
+                for (int c = 0; c < chunks; c++) {
+                    int count = histograms[c][b];
+                    histograms[c][b] = position;
+                    position += count;
+                }
+                // 所有元素进了同一个桶（重复元素很多），继续分桶没有意义
+                if (position - bucketStart[b] == n) {
+                    TimSort.sort(array, lo, hi - 1, comparator);
+                    return;
+                }
+            }
+            bucketStart[buckets] = hi;
+            // 并行分配，保持原有的先后顺序
+            tasks.clear();
+            for (int c = 0; c < chunks; c++) {
+                int from = lo + c * chunkLen;
+                int to = (int) Math.min(hi, (long) from + chunkLen);
+                int[] offsets = histograms[c];
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    for (int i = from; i < to; i++) {
+                        scratch[offsets[bucketOf[i] & 0xff]++] = array[i];
+                    }
+                }));
+            }
+            invokeAll(tasks);
+            // 并行处理每个桶：先放回原数组，再排序
+            tasks.clear();
+            for (int b = 0; b < buckets; b++) {
+                int from = bucketStart[b];
+                int to = bucketStart[b + 1];
+                if (to - from == 0) {
+                    continue;
+                }
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    System.arraycopy(scratch, from, array, from, to - from);
+                    Arrays.fill(scratch, from, to, null);
+                    new SampleTask<>(array, scratch, bucketOf, from, to, comparator).compute();
+                }));
+            }
+            invokeAll(tasks);
+        }
+
+        /**
+         * 抽样并建立分割树，tree[1]为根，节点j的子节点为2j和2j+1，tree[0]不用
+         */
+        private T[] splitterTree(int buckets) {
+            int sampleSize = buckets * OVERSAMPLING;
+            @SuppressWarnings("unchecked")
+            T[] sample = (T[]) new Object[sampleSize];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < sampleSize; i++) {
+                sample[i] = array[lo + random.nextInt(hi - lo)];
+            }
+            IntroSort.sort(sample, comparator);
+            @SuppressWarnings("unchecked")
+            T[] tree = (T[]) new Object[buckets];
+            fillTree(tree, 1, sample, 1, buckets - 1);
+            return tree;
+        }
+
+        /**
+         * 把第from到to个分割元素（从1开始）按中序放到以node为根的子树中
+         */
+        private void fillTree(T[] tree, int node, T[] sample, int from, int to) {
+            if (from > to) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            tree[node] = sample[mid * OVERSAMPLING - 1];
+            fillTree(tree, 2 * node, sample, from, mid - 1);
+            fillTree(tree, 2 * node + 1, sample, mid + 1, to);
+        }
+
+        /**
+         * 从根走到叶子，每层只根据比较结果算出下一个节点的下标，没有依赖数据的分支跳转；
+         * 不大于分割元素的进入左子树，相等的元素总是落在同一个桶
+         */
+        private int classify(T[] tree, int levels, T value) {
+            int j = 1;
+            for (int level = 0; level < levels; level++) {
+                j = 2 * j + (comparator.compare(value, tree[j]) > 0 ? 1 : 0);
+            }
+            return j - (1 << levels);
+        }
+    }
+}
+
+class TestParallelSampleSort {
+    public static void main(String[] args) {
+        int len = 2000000;
+        Random random = new Random();
+        String[] array = new String[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = Integer.toString(random.nextInt(len), 36);
+        }
+        String[] expected = array.clone();
+        Arrays.sort(expected);
+        new ParallelSampleSort().sort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        // 按长度排序，长度相同的保持原有顺序
+        Comparator<String> byLength = Comparator.comparingInt(String::length);
+        String[] words = new String[len];
+        for (int i = 0; i < len; i++) {
+            words[i] = Integer.toString(random.nextInt(), 36);
+        }
+        String[] expectedWords = words.clone();
+        Arrays.sort(expectedWords, byLength);
+        new ParallelSampleSort().sort(words, byLength);
+        System.out.println(Arrays.equals(expectedWords, words));
+    }
+}
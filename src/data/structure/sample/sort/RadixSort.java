@@ -0,0 +1,380 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 按字节分位的LSD基数排序
+ * <p>
+ * 与{@link Sort#radixSort(Integer[])}相比：每一位取8个bit，int只需要4趟、long只需要8趟；
+ * 所有趟的直方图在第一次遍历时一起算出；每一趟在原数组和同一个中转数组之间来回分配，不再为每一趟创建容器；
+ * 所有元素某一位都相同时跳过这一趟；把符号位取反后再分配，负数也能正确排序。
+ * 另外提供带payload的版本，payload（比如记录下标）随key一起移动。排序是稳定的。
+ *
+ * @author Neptune
+ * @date 2020/6/23 9:40
+ */
+public class RadixSort {
+    /**
+     * 每一位的bit数
+     */
+    static final int DIGIT_BITS = 8;
+    /**
+     * 每一位的取值个数
+     */
+    static final int RADIX = 1 << DIGIT_BITS;
+    static final int MASK = RADIX - 1;
+    private static final int INT_PASSES = Integer.SIZE / DIGIT_BITS;
+    private static final int LONG_PASSES = Long.SIZE / DIGIT_BITS;
+    /**
+     * 直方图数组需要的长度，能同时容纳int和long所有趟的计数
+     */
+    static final int COUNTS_LENGTH = LONG_PASSES * RADIX;
+
+    private RadixSort() {
+    }
+
+    /**
+     * 把某一位的计数转换为该位每个桶的起始位置
+     */
+    private static void toOffsets(int[] counts, int base) {
+        int sum = 0;
+        for (int i = base; i < base + RADIX; i++) {
+            int count = counts[i];
+            counts[i] = sum;
+            sum += count;
+        }
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 对整个int数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(int[] array) {
+        sort(array, 0, array.length - 1, null);
+    }
+
+    /**
+     * 对int数组的一部分排序
+     *
+     * @param array   要排序的数组
+     * @param start   要排序部分的起始坐标
+     * @param end     要排序部分的结束坐标
+     * @param scratch 中转数组，长度不小于end - start + 1，传null时自动创建
+     */
+    public static void sort(int[] array, int start, int end, int[] scratch) {
+        sort(array, null, start, end, scratch, null);
+    }
+
+    /**
+     * 按key排序，payload随key一起移动，排序是稳定的
+     *
+     * @param keys    排序依据
+     * @param payload 附带的数据，比如记录下标，长度与keys相同
+     */
+    public static void sort(int[] keys, int[] payload) {
+        if (payload.length != keys.length) {
+            throw new IllegalArgumentException("payload长度必须与keys相同");
+        }
+        sort(keys, payload, 0, keys.length - 1, null, null);
+    }
+
+    /**
+     * 按key对一部分数据排序，payload随key一起移动
+     *
+     * @param keys           排序依据
+     * @param payload        附带的数据，为null时只排序keys
+     * @param start          要排序部分的起始坐标
+     * @param end            要排序部分的结束坐标
+     * @param keyScratch     keys的中转数组，传null时自动创建
+     * @param payloadScratch payload的中转数组，传null时自动创建
+     */
+    public static void sort(int[] keys, int[] payload, int start, int end, int[] keyScratch, int[] payloadScratch) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        if (null == keyScratch) {
+            keyScratch = new int[n];
+        } else if (keyScratch.length < n) {
+            throw new IllegalArgumentException("中转数组长度不足");
+        }
+        if (null != payload) {
+            if (null == payloadScratch) {
+                payloadScratch = new int[n];
+            } else if (payloadScratch.length < n) {
+                throw new IllegalArgumentException("中转数组长度不足");
+            }
+        }
+        sort(keys, payload, start, end, keyScratch, payloadScratch, 0);
+    }
+
+    /**
+     * 排序的具体实现，中转数组从scratchStart开始使用，方便多个任务共用同一个中转数组
+     */
+    static void sort(int[] keys, int[] payload, int start, int end, int[] keyScratch, int[] payloadScratch,
+                     int scratchStart) {
+        sort(keys, payload, start, end, keyScratch, payloadScratch, scratchStart, new int[INT_PASSES * RADIX]);
+    }
+
+    /**
+     * 排序的具体实现，直方图数组由调用方提供，长度不小于{@link #COUNTS_LENGTH}
+     */
+    static void sort(int[] keys, int[] payload, int start, int end, int[] keyScratch, int[] payloadScratch,
+                     int scratchStart, int[] counts) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        // 一次遍历算出所有位的直方图
+        Arrays.fill(counts, 0, INT_PASSES * RADIX, 0);
+        for (int i = start; i <= end; i++) {
+            int v = keys[i] ^ Integer.MIN_VALUE;
+            for (int pass = 0; pass < INT_PASSES; pass++) {
+                counts[pass * RADIX + ((v >>> (pass * DIGIT_BITS)) & MASK)]++;
+            }
+        }
+        int[] srcKeys = keys;
+        int[] dstKeys = keyScratch;
+        int[] srcPayload = payload;
+        // 没有payload时忽略调用方传入的payload中转数组，否则交换后srcPayload不为null
+        int[] dstPayload = null == payload ? null : payloadScratch;
+        int srcOff = start;
+        int dstOff = scratchStart;
+        for (int pass = 0; pass < INT_PASSES; pass++) {
+            int shift = pass * DIGIT_BITS;
+            int base = pass * RADIX;
+            // 所有元素这一位都相同，跳过
+            if (counts[base + (((keys[start] ^ Integer.MIN_VALUE) >>> shift) & MASK)] == n) {
+                continue;
+            }
+            toOffsets(counts, base);
+            // 每一趟把每个元素写入目标数组一次
+            SortStats.moved(n);
+            if (null == srcPayload) {
+                for (int i = 0; i < n; i++) {
+                    int v = srcKeys[srcOff + i];
+                    dstKeys[dstOff + counts[base + (((v ^ Integer.MIN_VALUE) >>> shift) & MASK)]++] = v;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int v = srcKeys[srcOff + i];
+                    int pos = dstOff + counts[base + (((v ^ Integer.MIN_VALUE) >>> shift) & MASK)]++;
+                    dstKeys[pos] = v;
+                    dstPayload[pos] = srcPayload[srcOff + i];
+                }
+            }
+            // 交换数据源和目标
+            int[] tempKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tempKeys;
+            int[] tempPayload = srcPayload;
+            srcPayload = dstPayload;
+            dstPayload = tempPayload;
+            int tempOff = srcOff;
+            srcOff = dstOff;
+            dstOff = tempOff;
+        }
+        // 最终结果在中转数组中，拷贝回去
+        if (srcKeys != keys) {
+            SortStats.moved(n);
+            System.arraycopy(srcKeys, srcOff, keys, start, n);
+            if (null != payload) {
+                System.arraycopy(srcPayload, srcOff, payload, start, n);
+            }
+        }
+    }
+
+    // ==================== long[] ====================
+
+    /**
+     * 对整个long数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(long[] array) {
+        sort(array, 0, array.length - 1, null);
+    }
+
+    /**
+     * 对long数组的一部分排序
+     *
+     * @param array   要排序的数组
+     * @param start   要排序部分的起始坐标
+     * @param end     要排序部分的结束坐标
+     * @param scratch 中转数组，长度不小于end - start + 1，传null时自动创建
+     */
+    public static void sort(long[] array, int start, int end, long[] scratch) {
+        sort(array, null, start, end, scratch, null);
+    }
+
+    /**
+     * 按key排序，payload随key一起移动，排序是稳定的
+     *
+     * @param keys    排序依据
+     * @param payload 附带的数据，比如记录下标，长度与keys相同
+     */
+    public static void sort(long[] keys, int[] payload) {
+        if (payload.length != keys.length) {
+            throw new IllegalArgumentException("payload长度必须与keys相同");
+        }
+        sort(keys, payload, 0, keys.length - 1, null, null);
+    }
+
+    /**
+     * 按key对一部分数据排序，payload随key一起移动
+     *
+     * @param keys           排序依据
+     * @param payload        附带的数据，为null时只排序keys
+     * @param start          要排序部分的起始坐标
+     * @param end            要排序部分的结束坐标
+     * @param keyScratch     keys的中转数组，传null时自动创建
+     * @param payloadScratch payload的中转数组，传null时自动创建
+     */
+    public static void sort(long[] keys, int[] payload, int start, int end, long[] keyScratch, int[] payloadScratch) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        if (null == keyScratch) {
+            keyScratch = new long[n];
+        } else if (keyScratch.length < n) {
+            throw new IllegalArgumentException("中转数组长度不足");
+        }
+        if (null != payload) {
+            if (null == payloadScratch) {
+                payloadScratch = new int[n];
+            } else if (payloadScratch.length < n) {
+                throw new IllegalArgumentException("中转数组长度不足");
+            }
+        }
+        sort(keys, payload, start, end, keyScratch, payloadScratch, 0);
+    }
+
+    /**
+     * 排序的具体实现，中转数组从scratchStart开始使用，方便多个任务共用同一个中转数组
+     */
+    static void sort(long[] keys, int[] payload, int start, int end, long[] keyScratch, int[] payloadScratch,
+                     int scratchStart) {
+        sort(keys, payload, start, end, keyScratch, payloadScratch, scratchStart, new int[LONG_PASSES * RADIX]);
+    }
+
+    /**
+     * 排序的具体实现，直方图数组由调用方提供，长度不小于{@link #COUNTS_LENGTH}
+     */
+    static void sort(long[] keys, int[] payload, int start, int end, long[] keyScratch, int[] payloadScratch,
+                     int scratchStart, int[] counts) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        // 一次遍历算出所有位的直方图
+        Arrays.fill(counts, 0, LONG_PASSES * RADIX, 0);
+        for (int i = start; i <= end; i++) {
+            long v = keys[i] ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < LONG_PASSES; pass++) {
+                counts[pass * RADIX + ((int) (v >>> (pass * DIGIT_BITS)) & MASK)]++;
+            }
+        }
+        long[] srcKeys = keys;
+        long[] dstKeys = keyScratch;
+        int[] srcPayload = payload;
+        // 没有payload时忽略调用方传入的payload中转数组，否则交换后srcPayload不为null
+        int[] dstPayload = null == payload ? null : payloadScratch;
+        int srcOff = start;
+        int dstOff = scratchStart;
+        for (int pass = 0; pass < LONG_PASSES; pass++) {
+            int shift = pass * DIGIT_BITS;
+            int base = pass * RADIX;
+            // 所有元素这一位都相同，跳过
+            if (counts[base + ((int) ((keys[start] ^ Long.MIN_VALUE) >>> shift) & MASK)] == n) {
+                continue;
+            }
+            toOffsets(counts, base);
+            // 每一趟把每个元素写入目标数组一次
+            SortStats.moved(n);
+            if (null == srcPayload) {
+                for (int i = 0; i < n; i++) {
+                    long v = srcKeys[srcOff + i];
+                    dstKeys[dstOff + counts[base + ((int) ((v ^ Long.MIN_VALUE) >>> shift) & MASK)]++] = v;
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    long v = srcKeys[srcOff + i];
+                    int pos = dstOff + counts[base + ((int) ((v ^ Long.MIN_VALUE) >>> shift) & MASK)]++;
+                    dstKeys[pos] = v;
+                    dstPayload[pos] = srcPayload[srcOff + i];
+                }
+            }
+            // 交换数据源和目标
+            long[] tempKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tempKeys;
+            int[] tempPayload = srcPayload;
+            srcPayload = dstPayload;
+            dstPayload = tempPayload;
+            int tempOff = srcOff;
+            srcOff = dstOff;
+            dstOff = tempOff;
+        }
+        // 最终结果在中转数组中，拷贝回去
+        if (srcKeys != keys) {
+            SortStats.moved(n);
+            System.arraycopy(srcKeys, srcOff, keys, start, n);
+            if (null != payload) {
+                System.arraycopy(srcPayload, srcOff, payload, start, n);
+            }
+        }
+    }
+}
+
+class TestRadixSort {
+    public static void main(String[] args) {
+        int len = 1000000;
+        Random random = new Random();
+        int[] array = new int[len];
+        for (int i = 0; i < len; i++) {
+            array[i] = random.nextInt();
+        }
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        RadixSort.sort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        // key为分数，payload为记录下标
+        long[] scores = new long[len];
+        int[] index = new int[len];
+        for (int i = 0; i < len; i++) {
+            scores[i] = random.nextLong();
+            index[i] = i;
+        }
+        long[] origin = scores.clone();
+        RadixSort.sort(scores, index);
+        boolean matched = true;
+        for (int i = 0; i < len; i++) {
+            if (origin[index[i]] != scores[i] || (i > 0 && scores[i - 1] > scores[i])) {
+                matched = false;
+                break;
+            }
+        }
+        System.out.println(matched);
+
+        // 没有payload但传入了payload中转数组
+        int[] keys = new int[1000];
+        long[] longKeys = new long[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt();
+            longKeys[i] = random.nextLong();
+        }
+        int[] sortedKeys = keys.clone();
+        long[] sortedLongKeys = longKeys.clone();
+        Arrays.sort(sortedKeys);
+        Arrays.sort(sortedLongKeys);
+        RadixSort.sort(keys, null, 0, keys.length - 1, null, new int[keys.length]);
+        RadixSort.sort(longKeys, null, 0, longKeys.length - 1, null, new int[longKeys.length]);
+        System.out.println(Arrays.equals(sortedKeys, keys) && Arrays.equals(sortedLongKeys, longKeys));
+    }
+}
@@ -0,0 +1,478 @@
+package data.structure.sample.sort;
+
+import java.util.*;
+
+/**
+ * 选择与部分排序
+ * <p>
+ * 只需要第k名、前k名时不必对整个数组排序：
+ * <ul>
+ * <li>select：内省选择，复用{@link IntroSort}的三路划分，每次只处理包含第k名的一边，平均O(n)，
+ * 划分次数过多时改用堆排序兜底</li>
+ * <li>partialSort：先select再对前k个元素排序，O(n + k log k)</li>
+ * <li>topK：对迭代器流式处理，只保留大小为k的小顶堆，O(n log k)，内存O(k)</li>
+ * </ul>
+ *
+ * @author Neptune
+ * @date 2020/6/29 11:20
+ */
+public class Selection {
+    private Selection() {
+    }
+
+    private static void checkIndex(int length, int k) {
+        if (k < 0 || k >= length) {
+            throw new IllegalArgumentException("k超出了数组范围");
+        }
+    }
+
+    // ==================== 对象 ====================
+
+    /**
+     * 快速选择第k小的元素（k从0开始）
+     *
+     * @param array 数组
+     * @param k     名次
+     * @return Comparable 第k小的元素
+     */
+    public static Comparable select(Comparable[] array, int k) {
+        return select(array, k, IntroSort.NATURAL_ORDER);
+    }
+
+    /**
+     * 使用比较器快速选择第k小的元素（k从0开始），执行后array[k]就位，左边都不大于它，右边都不小于它
+     *
+     * @param array      数组
+     * @param k          名次
+     * @param comparator 比较器
+     * @return T 第k小的元素
+     */
+    public static <T> T select(T[] array, int k, Comparator<? super T> comparator) {
+        checkIndex(array.length, k);
+        int lo = 0;
+        int hi = array.length - 1;
+        int depth = IntroSort.depthLimit(array.length);
+        while (hi - lo + 1 > IntroSort.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                IntroSort.heapSort(array, lo, hi, comparator);
+                return array[k];
+            }
+            long bounds = IntroSort.partition(array, lo, hi, comparator);
+            int lt = IntroSort.lowerOf(bounds);
+            int gt = IntroSort.upperOf(bounds);
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return array[k];
+            }
+        }
+        IntroSort.insertSort(array, lo, hi, comparator);
+        return array[k];
+    }
+
+    /**
+     * 部分排序，执行后array[0, k)是最小的k个元素且有序
+     *
+     * @param array 数组
+     * @param k     需要排好序的元素个数
+     */
+    public static void partialSort(Comparable[] array, int k) {
+        partialSort(array, k, IntroSort.NATURAL_ORDER);
+    }
+
+    /**
+     * 使用比较器部分排序，执行后array[0, k)是最小的k个元素且有序，其余元素顺序不定
+     *
+     * @param array      数组
+     * @param k          需要排好序的元素个数
+     * @param comparator 比较器
+     */
+    public static <T> void partialSort(T[] array, int k, Comparator<? super T> comparator) {
+        if (k <= 0) {
+            return;
+        }
+        if (k < array.length) {
+            select(array, k - 1, comparator);
+        }
+        IntroSort.sort(array, 0, Math.min(k, array.length) - 1, comparator);
+    }
+
+    /**
+     * 流式求最大的k个元素，只保留一个大小为k的小顶堆
+     *
+     * @param iterator   数据来源
+     * @param k          需要的元素个数
+     * @param comparator 比较器
+     * @return List 最大的k个元素，从大到小排列，数据不足k个时返回全部
+     */
+    public static <T> List<T> topK(Iterator<? extends T> iterator, int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k不能小于0");
+        }
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.max(1, k), comparator);
+        while (iterator.hasNext()) {
+            T value = iterator.next();
+            if (heap.size() < k) {
+                heap.offer(value);
+            } else if (k > 0 && comparator.compare(value, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(value);
+            }
+        }
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 快速选择第k小的元素（k从0开始），执行后array[k]就位，左边都不大于它，右边都不小于它
+     *
+     * @param array 数组
+     * @param k     名次
+     * @return int 第k小的元素
+     */
+    public static int select(int[] array, int k) {
+        checkIndex(array.length, k);
+        int lo = 0;
+        int hi = array.length - 1;
+        int depth = IntroSort.depthLimit(array.length);
+        while (hi - lo + 1 > IntroSort.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                IntroSort.heapSort(array, lo, hi);
+                return array[k];
+            }
+            long bounds = IntroSort.partition(array, lo, hi);
+            int lt = IntroSort.lowerOf(bounds);
+            int gt = IntroSort.upperOf(bounds);
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return array[k];
+            }
+        }
+        IntroSort.insertSort(array, lo, hi);
+        return array[k];
+    }
+
+    /**
+     * 部分排序，执行后array[0, k)是最小的k个元素且有序，其余元素顺序不定
+     *
+     * @param array 数组
+     * @param k     需要排好序的元素个数
+     */
+    public static void partialSort(int[] array, int k) {
+        if (k <= 0) {
+            return;
+        }
+        if (k < array.length) {
+            select(array, k - 1);
+        }
+        IntroSort.sort(array, 0, Math.min(k, array.length) - 1);
+    }
+
+    /**
+     * 流式求最大的k个元素，只保留一个大小为k的小顶堆
+     *
+     * @param iterator 数据来源
+     * @param k        需要的元素个数
+     * @return int[] 最大的k个元素，从大到小排列，数据不足k个时返回全部
+     */
+    public static int[] topK(PrimitiveIterator.OfInt iterator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k不能小于0");
+        }
+        int[] heap = new int[k];
+        int size = 0;
+        while (iterator.hasNext()) {
+            int value = iterator.nextInt();
+            if (size < k) {
+                // 堆未满，上浮
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= value) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (k > 0 && value > heap[0]) {
+                // 比堆顶大，替换堆顶后下沉
+                siftDownMin(heap, value, k);
+            }
+        }
+        // 依次弹出堆顶放到末尾，得到从大到小的顺序
+        for (int n = size - 1; n > 0; n--) {
+            int top = heap[0];
+            siftDownMin(heap, heap[n], n);
+            heap[n] = top;
+        }
+        return size == k ? heap : Arrays.copyOf(heap, size);
+    }
+
+    private static void siftDownMin(int[] heap, int value, int size) {
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    // ==================== long[] ====================
+
+    /**
+     * 快速选择第k小的元素（k从0开始），执行后array[k]就位，左边都不大于它，右边都不小于它
+     *
+     * @param array 数组
+     * @param k     名次
+     * @return long 第k小的元素
+     */
+    public static long select(long[] array, int k) {
+        checkIndex(array.length, k);
+        int lo = 0;
+        int hi = array.length - 1;
+        int depth = IntroSort.depthLimit(array.length);
+        while (hi - lo + 1 > IntroSort.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                IntroSort.heapSort(array, lo, hi);
+                return array[k];
+            }
+            long bounds = IntroSort.partition(array, lo, hi);
+            int lt = IntroSort.lowerOf(bounds);
+            int gt = IntroSort.upperOf(bounds);
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return array[k];
+            }
+        }
+        IntroSort.insertSort(array, lo, hi);
+        return array[k];
+    }
+
+    /**
+     * 部分排序，执行后array[0, k)是最小的k个元素且有序，其余元素顺序不定
+     *
+     * @param array 数组
+     * @param k     需要排好序的元素个数
+     */
+    public static void partialSort(long[] array, int k) {
+        if (k <= 0) {
+            return;
+        }
+        if (k < array.length) {
+            select(array, k - 1);
+        }
+        IntroSort.sort(array, 0, Math.min(k, array.length) - 1);
+    }
+
+    /**
+     * 流式求最大的k个元素，只保留一个大小为k的小顶堆
+     *
+     * @param iterator 数据来源
+     * @param k        需要的元素个数
+     * @return long[] 最大的k个元素，从大到小排列，数据不足k个时返回全部
+     */
+    public static long[] topK(PrimitiveIterator.OfLong iterator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k不能小于0");
+        }
+        long[] heap = new long[k];
+        int size = 0;
+        while (iterator.hasNext()) {
+            long value = iterator.nextLong();
+            if (size < k) {
+                // 堆未满，上浮
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= value) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (k > 0 && value > heap[0]) {
+                // 比堆顶大，替换堆顶后下沉
+                siftDownMin(heap, value, k);
+            }
+        }
+        // 依次弹出堆顶放到末尾，得到从大到小的顺序
+        for (int n = size - 1; n > 0; n--) {
+            long top = heap[0];
+            siftDownMin(heap, heap[n], n);
+            heap[n] = top;
+        }
+        return size == k ? heap : Arrays.copyOf(heap, size);
+    }
+
+    private static void siftDownMin(long[] heap, long value, int size) {
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    // ==================== double[] ====================
+
+    /**
+     * 快速选择第k小的元素（k从0开始），执行后array[k]就位，左边都不大于它，右边都不小于它
+     *
+     * @param array 数组
+     * @param k     名次
+     * @return double 第k小的元素
+     */
+    public static double select(double[] array, int k) {
+        checkIndex(array.length, k);
+        int lo = 0;
+        int hi = array.length - 1;
+        int depth = IntroSort.depthLimit(array.length);
+        while (hi - lo + 1 > IntroSort.INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                IntroSort.heapSort(array, lo, hi);
+                return array[k];
+            }
+            long bounds = IntroSort.partition(array, lo, hi);
+            int lt = IntroSort.lowerOf(bounds);
+            int gt = IntroSort.upperOf(bounds);
+            if (k < lt) {
+                hi = lt - 1;
+            } else if (k > gt) {
+                lo = gt + 1;
+            } else {
+                return array[k];
+            }
+        }
+        IntroSort.insertSort(array, lo, hi);
+        return array[k];
+    }
+
+    /**
+     * 部分排序，执行后array[0, k)是最小的k个元素且有序，其余元素顺序不定
+     *
+     * @param array 数组
+     * @param k     需要排好序的元素个数
+     */
+    public static void partialSort(double[] array, int k) {
+        if (k <= 0) {
+            return;
+        }
+        if (k < array.length) {
+            select(array, k - 1);
+        }
+        IntroSort.sort(array, 0, Math.min(k, array.length) - 1);
+    }
+
+    /**
+     * 流式求最大的k个元素，只保留一个大小为k的小顶堆
+     *
+     * @param iterator 数据来源
+     * @param k        需要的元素个数
+     * @return double[] 最大的k个元素，从大到小排列，数据不足k个时返回全部
+     */
+    public static double[] topK(PrimitiveIterator.OfDouble iterator, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k不能小于0");
+        }
+        double[] heap = new double[k];
+        int size = 0;
+        while (iterator.hasNext()) {
+            double value = iterator.nextDouble();
+            if (size < k) {
+                // 堆未满，上浮
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= value) {
+                        break;
+                    }
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = value;
+            } else if (k > 0 && value > heap[0]) {
+                // 比堆顶大，替换堆顶后下沉
+                siftDownMin(heap, value, k);
+            }
+        }
+        // 依次弹出堆顶放到末尾，得到从大到小的顺序
+        for (int n = size - 1; n > 0; n--) {
+            double top = heap[0];
+            siftDownMin(heap, heap[n], n);
+            heap[n] = top;
+        }
+        return size == k ? heap : Arrays.copyOf(heap, size);
+    }
+
+    private static void siftDownMin(double[] heap, double value, int size) {
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+}
+
+class TestSelection {
+    public static void main(String[] args) {
+        int len = 1000000;
+        Random random = new Random();
+        double[] scores = new double[len];
+        for (int i = 0; i < len; i++) {
+            scores[i] = random.nextDouble();
+        }
+        double[] sorted = scores.clone();
+        Arrays.sort(sorted);
+
+        // 中位数
+        System.out.println(Selection.select(scores.clone(), len / 2) == sorted[len / 2]);
+        // 最小的100个
+        double[] partial = scores.clone();
+        Selection.partialSort(partial, 100);
+        System.out.println(Arrays.equals(Arrays.copyOf(partial, 100), Arrays.copyOf(sorted, 100)));
+        // 最大的100个
+        double[] top = Selection.topK(Arrays.stream(scores).iterator(), 100);
+        System.out.println(top[0] == sorted[len - 1] && top[99] == sorted[len - 100]);
+
+        List<String> words = Arrays.asList("pear", "apple", "fig", "banana", "kiwi");
+        System.out.println(Selection.topK(words.iterator(), 2, Comparator.comparing(String::length)));
+    }
+}
@@ -2,13 +2,13 @@ package data.structure.sample.sort;
 
 import com.sun.scenario.effect.Brightpass;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Random;
 
 /**
  * 经典排序
+ * <p>
+ * 用-Dsort.stats=true运行时，每次排序的比较、交换、移动次数等统计见{@link SortStats}
  *
  * @author Neptune
  * @date 2020/6/19 13:40
@@ -20,12 +20,17 @@ public class Sort {
      * @param array 要排序的数组
      */
     public static void bubbleSort(Comparable[] array) {
-        for (int i = 0; i < array.length - 1; i++) {
-            for (int j = 0; j < array.length - 1; j++) {
-                if (array[j].compareTo(array[j + 1]) > 0) {
-                    exchange(array, j, j + 1);
+        SortStats.enter("bubbleSort", array.length);
+        try {
+            for (int i = 0; i < array.length - 1; i++) {
+                for (int j = 0; j < array.length - 1; j++) {
+                    if (SortStats.compared(array[j].compareTo(array[j + 1])) > 0) {
+                        exchange(array, j, j + 1);
+                    }
                 }
             }
+        } finally {
+            SortStats.exit();
         }
     }
 
@@ -35,66 +40,82 @@ public class Sort {
      * @param array 要排序的数组
      */
     public static void selectSort(Comparable[] array) {
-        for (int i = 0; i < array.length - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < array.length; j++) {
-                if (array[minIndex].compareTo(array[j]) > 0) {
-                    minIndex = j;
+        SortStats.enter("selectSort", array.length);
+        try {
+            for (int i = 0; i < array.length - 1; i++) {
+                int minIndex = i;
+                for (int j = i + 1; j < array.length; j++) {
+                    if (SortStats.compared(array[minIndex].compareTo(array[j])) > 0) {
+                        minIndex = j;
+                    }
+                }
+                if (minIndex != i) {
+                    exchange(array, minIndex, i);
                 }
             }
-            if (minIndex != i) {
-                exchange(array, minIndex, i);
-            }
+        } finally {
+            SortStats.exit();
         }
     }
 
     /**
      * 快速排序算法实现
+     * <p>
+     * 三路划分，大量重复元素时不会退化；只递归较小的一边，不会栈溢出。
+     * 没有深度限制，特意构造的数据仍可能退化为O(n^2)，需要最坏情况保证时请使用{@link IntroSort}
      *
      * @param array 要排序的数组
      * @param start 要排序部分的起始坐标
      * @param end   要排序部分的结束坐标
      */
     public static void quickSort(Comparable[] array, int start, int end) {
-        if (start >= end) {
-            return;
-        }
-        // 记录数据，后面要用
-        int startFlag = start;
-        int endFlag = end;
-        // 下面的做法是为了让key取到相对来说大小适中的数
-        // 有可能会减少扫描过程中交换的次数，提高效率
-        int mid = (start + end) / 2;
-        if (array[mid].compareTo(array[end]) > 0) {
-            exchange(array, mid, end);
-        }
-        if (array[start].compareTo(array[end]) > 0) {
-            exchange(array, start, end);
-        }
-        if (array[mid].compareTo(array[start]) > 0) {
-            exchange(array, mid, start);
-        }
-        Comparable<?> key = array[start];
+        SortStats.enter("quickSort", end - start + 1);
+        try {
+            // 只递归较小的一边，较大的一边在循环中继续处理，栈深度不超过log(n)
+            while (start < end) {
+                // 下面的做法是为了让key取到相对来说大小适中的数
+                // 有可能会减少扫描过程中交换的次数，提高效率
+                int mid = (start + end) >>> 1;
+                if (SortStats.compared(array[mid].compareTo(array[end])) > 0) {
+                    exchange(array, mid, end);
+                }
+                if (SortStats.compared(array[start].compareTo(array[end])) > 0) {
+                    exchange(array, start, end);
+                }
+                if (SortStats.compared(array[mid].compareTo(array[start])) > 0) {
+                    exchange(array, mid, start);
+                }
+                Comparable<?> key = array[start];
 
-        while (start < end) {
-            // 从后往前扫描找到比基准值小的数
-            while ((start < end) && (array[end].compareTo(key) > 0)) {
-                end--;
-            }
-            array[start] = array[end];
-            // 从前往后扫描找到比基准值大的数
-            while ((start < end) && (array[start].compareTo(key) <= 0)) {
-                start++;
+                // 三路划分：[start, lt)小于key，[lt, gt]等于key，(gt, end]大于key，等于key的元素不再参与排序
+                int lt = start;
+                int gt = end;
+                int i = start + 1;
+                while (i <= gt) {
+                    int cmp = SortStats.compared(array[i].compareTo(key));
+                    if (cmp < 0) {
+                        exchange(array, lt++, i++);
+                    } else if (cmp > 0) {
+                        exchange(array, i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - start < end - gt) {
+                    quickSort(array, start, lt - 1);
+                    start = gt + 1;
+                } else {
+                    quickSort(array, gt + 1, end);
+                    end = lt - 1;
+                }
             }
-            array[end] = array[start];
+        } finally {
+            SortStats.exit();
         }
-        // 将基准值复位，否则这个数据就丢失了
-        array[start] = key;
-        quickSort(array, startFlag, start - 1);
-        quickSort(array, start + 1, endFlag);
     }
 
     private static void exchange(Comparable[] array, int i, int j) {
+        SortStats.swapped();
         Comparable<?> temp = array[i];
         array[i] = array[j];
         array[j] = temp;
@@ -106,14 +127,32 @@ public class Sort {
      * @param array 要排序的数组
      */
     public static void insertSort(Comparable[] array) {
-        for (int i = 1; i < array.length; i++) {
-            int insertIndex = i - 1;
-            Comparable<?> temp = array[i];
-            while (insertIndex >= 0 && array[insertIndex].compareTo(temp) > 0) {
-                array[insertIndex + 1] = array[insertIndex];
-                insertIndex--;
+        insertSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 插入排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void insertSort(Comparable[] array, int start, int end) {
+        SortStats.enter("insertSort", end - start + 1);
+        try {
+            for (int i = start + 1; i <= end; i++) {
+                int insertIndex = i - 1;
+                Comparable<?> temp = array[i];
+                while (insertIndex >= start && SortStats.compared(array[insertIndex].compareTo(temp)) > 0) {
+                    array[insertIndex + 1] = array[insertIndex];
+                    SortStats.moved();
+                    insertIndex--;
+                }
+                array[insertIndex + 1] = temp;
+                SortStats.moved();
             }
-            array[insertIndex + 1] = temp;
+        } finally {
+            SortStats.exit();
         }
     }
 
@@ -121,15 +160,20 @@ public class Sort {
      * 希尔排序算法实现，交换式，采用交换，速度反而比插入排序更慢
      */
     public static void shellSort(Comparable[] array) {
-        int stepLen = array.length;
-        while ((stepLen = stepLen / 2) > 0) {
-            for (int i = stepLen; i < array.length; i++) {
-                for (int j = i - stepLen; j >= 0; j -= stepLen) {
-                    if (array[j].compareTo(array[j + stepLen]) > 0) {
-                        exchange(array, j, j + stepLen);
+        SortStats.enter("shellSort", array.length);
+        try {
+            int stepLen = array.length;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = stepLen; i < array.length; i++) {
+                    for (int j = i - stepLen; j >= 0; j -= stepLen) {
+                        if (SortStats.compared(array[j].compareTo(array[j + stepLen])) > 0) {
+                            exchange(array, j, j + stepLen);
+                        }
                     }
                 }
             }
+        } finally {
+            SortStats.exit();
         }
     }
 
@@ -137,17 +181,24 @@ public class Sort {
      * 希尔排序算法实现，移动式，对每一组使用插入排序算法，效率大大提升
      */
     public static void shellSort1(Comparable[] array) {
-        int stepLen = array.length;
-        while ((stepLen = stepLen / 2) > 0) {
-            for (int i = stepLen; i < array.length; i++) {
-                int insertIndex = i - stepLen;
-                Comparable<?> temp = array[i];
-                while (insertIndex >= 0 && array[insertIndex].compareTo(temp) > 0) {
-                    array[insertIndex + stepLen] = array[insertIndex];
-                    insertIndex -= stepLen;
+        SortStats.enter("shellSort1", array.length);
+        try {
+            int stepLen = array.length;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = stepLen; i < array.length; i++) {
+                    int insertIndex = i - stepLen;
+                    Comparable<?> temp = array[i];
+                    while (insertIndex >= 0 && SortStats.compared(array[insertIndex].compareTo(temp)) > 0) {
+                        array[insertIndex + stepLen] = array[insertIndex];
+                        SortStats.moved();
+                        insertIndex -= stepLen;
+                    }
+                    array[insertIndex + stepLen] = temp;
+                    SortStats.moved();
                 }
-                array[insertIndex + stepLen] = temp;
             }
+        } finally {
+            SortStats.exit();
         }
     }
 
@@ -160,11 +211,16 @@ public class Sort {
      * @param temp  中转数组
      */
     public static void mergeSort(Comparable[] array, int start, int end, Comparable[] temp) {
-        if (start < end) {
-            int mid = (start + end) / 2;
-            mergeSort(array, start, mid, temp);
-            mergeSort(array, mid + 1, end, temp);
-            merge(array, start, end, temp);
+        SortStats.enter("mergeSort", end - start + 1);
+        try {
+            if (start < end) {
+                int mid = (start + end) / 2;
+                mergeSort(array, start, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, start, end, temp);
+            }
+        } finally {
+            SortStats.exit();
         }
     }
 
@@ -177,6 +233,8 @@ public class Sort {
      * @param temp  中转数组
      */
     public static void merge(Comparable[] array, int start, int end, Comparable[] temp) {
+        // 每个元素写入中转数组一次，再拷回原数组一次
+        SortStats.moved(2L * (end - start + 1));
         int mid = (start + end) / 2;
         // 左边有序序列的初始索引
         int leftFlag = start;
@@ -188,7 +246,7 @@ public class Sort {
         // 直到直到左右两边有序序列有一边处理完
         while (leftFlag <= mid && rightFlag <= end) {
             // 小的那一边数据拷贝到temp，并把小的那一边的索引和temp的索引加一
-            if (array[leftFlag].compareTo(array[rightFlag]) <= 0) {
+            if (SortStats.compared(array[leftFlag].compareTo(array[rightFlag])) <= 0) {
                 temp[tempFlag] = array[leftFlag];
                 tempFlag++;
                 leftFlag++;
@@ -217,37 +275,1006 @@ public class Sort {
 
     /**
      * 基数排序  radixSort或者binSort
+     * <p>
+     * 以10为基数，只支持非负数，每一趟都会创建容器，基本类型数组请使用{@link #radixSort(int[])}
      */
     public static void radixSort(Integer[] array) {
-        // 得到最大的位数
-        Integer max = array[0];
-        for (Integer integer : array) {
-            if (max < integer) {
-                max = integer;
-            }
-        }
-        int maxLen = String.valueOf(max).length() + 1;
-        for (int i = 1; i < maxLen; i++) {
-            // 容器，用来按照位存储数据，对应0-9
-            Integer[][] containers = new Integer[10][array.length];
-            // 计数器，为了方便后面的运行，定义一个一维数组存储每个容器的有效数据个数
-            int[] counter = new int[10];
+        SortStats.enter("radixSort", array.length);
+        try {
+            // 得到最大的位数
+            Integer max = array[0];
             for (Integer integer : array) {
-                int digit = (int) (integer % Math.pow(10, i) / Math.pow(10, i - 1));
-                containers[digit][counter[digit]] = integer;
-                counter[digit]++;
+                if (max < integer) {
+                    max = integer;
+                }
+            }
+            int maxLen = String.valueOf(max).length() + 1;
+            for (int i = 1; i < maxLen; i++) {
+                // 容器，用来按照位存储数据，对应0-9
+                Integer[][] containers = new Integer[10][array.length];
+                SortStats.scratch(10L * Integer.BYTES * array.length);
+                // 计数器，为了方便后面的运行，定义一个一维数组存储每个容器的有效数据个数
+                int[] counter = new int[10];
+                for (Integer integer : array) {
+                    int digit = (int) (integer % Math.pow(10, i) / Math.pow(10, i - 1));
+                    containers[digit][counter[digit]] = integer;
+                    counter[digit]++;
+                }
+                int index = 0;
+                for (int j = 0; j < containers.length; j++) {
+                    System.arraycopy(containers[j], 0, array, index, counter[j]);
+                    index += counter[j];
+                }
+                // 每个元素放进容器一次，再拷回原数组一次
+                SortStats.moved(2L * array.length);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 基数排序，int[]版本，按字节分位，支持负数，参考{@link RadixSort}
+     *
+     * @param array 要排序的数组
+     */
+    public static void radixSort(int[] array) {
+        SortStats.enter("radixSort", array.length);
+        try {
+            if (array.length > 1) {
+                // RadixSort.sort会分配一个等长的中转数组
+                SortStats.scratch((long) Integer.BYTES * array.length);
+            }
+            RadixSort.sort(array);
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 基数排序，long[]版本，按字节分位，支持负数，参考{@link RadixSort}
+     *
+     * @param array 要排序的数组
+     */
+    public static void radixSort(long[] array) {
+        SortStats.enter("radixSort", array.length);
+        try {
+            if (array.length > 1) {
+                // RadixSort.sort会分配一个等长的中转数组
+                SortStats.scratch((long) Long.BYTES * array.length);
+            }
+            RadixSort.sort(array);
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    // ==================== int[] 基本类型特化版本 ====================
+
+    /**
+     * 冒泡排序算法实现，int[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void bubbleSort(int[] array) {
+        bubbleSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 冒泡排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void bubbleSort(int[] array, int start, int end) {
+        SortStats.enter("bubbleSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                // 每一趟都会把最大值沉到末尾，末尾部分无需再比较
+                for (int j = start; j < end - (i - start); j++) {
+                    if (SortStats.compared(array[j] > array[j + 1])) {
+                        exchange(array, j, j + 1);
+                    }
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 选择排序算法实现，int[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void selectSort(int[] array) {
+        selectSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 选择排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void selectSort(int[] array, int start, int end) {
+        SortStats.enter("selectSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                int minIndex = i;
+                for (int j = i + 1; j <= end; j++) {
+                    if (SortStats.compared(array[minIndex] > array[j])) {
+                        minIndex = j;
+                    }
+                }
+                if (minIndex != i) {
+                    exchange(array, minIndex, i);
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 快速排序算法实现，int[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void quickSort(int[] array) {
+        quickSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 快速排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void quickSort(int[] array, int start, int end) {
+        SortStats.enter("quickSort", end - start + 1);
+        try {
+            // 只递归较小的一边，较大的一边在循环中继续处理，栈深度不超过log(n)
+            while (start < end) {
+                // 三数取中，做法与Comparable版本一致
+                int mid = (start + end) >>> 1;
+                if (SortStats.compared(array[mid] > array[end])) {
+                    exchange(array, mid, end);
+                }
+                if (SortStats.compared(array[start] > array[end])) {
+                    exchange(array, start, end);
+                }
+                if (SortStats.compared(array[mid] > array[start])) {
+                    exchange(array, mid, start);
+                }
+                int key = array[start];
+
+                // 三路划分：[start, lt)小于key，[lt, gt]等于key，(gt, end]大于key，等于key的元素不再参与排序
+                int lt = start;
+                int gt = end;
+                int i = start + 1;
+                while (i <= gt) {
+                    if (SortStats.compared(array[i] < key)) {
+                        exchange(array, lt++, i++);
+                    } else if (SortStats.compared(array[i] > key)) {
+                        exchange(array, i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - start < end - gt) {
+                    quickSort(array, start, lt - 1);
+                    start = gt + 1;
+                } else {
+                    quickSort(array, gt + 1, end);
+                    end = lt - 1;
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    private static void exchange(int[] array, int i, int j) {
+        SortStats.swapped();
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * 插入排序算法实现，int[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void insertSort(int[] array) {
+        insertSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 插入排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void insertSort(int[] array, int start, int end) {
+        SortStats.enter("insertSort", end - start + 1);
+        try {
+            for (int i = start + 1; i <= end; i++) {
+                int insertIndex = i - 1;
+                int temp = array[i];
+                while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                    array[insertIndex + 1] = array[insertIndex];
+                    SortStats.moved();
+                    insertIndex--;
+                }
+                array[insertIndex + 1] = temp;
+                SortStats.moved();
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，int[]特化版本
+     */
+    public static void shellSort(int[] array) {
+        shellSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort(int[] array, int start, int end) {
+        SortStats.enter("shellSort", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    for (int j = i - stepLen; j >= start; j -= stepLen) {
+                        if (SortStats.compared(array[j] > array[j + stepLen])) {
+                            exchange(array, j, j + stepLen);
+                        }
+                    }
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，int[]特化版本
+     */
+    public static void shellSort1(int[] array) {
+        shellSort1(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort1(int[] array, int start, int end) {
+        SortStats.enter("shellSort1", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    int insertIndex = i - stepLen;
+                    int temp = array[i];
+                    while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                        array[insertIndex + stepLen] = array[insertIndex];
+                        SortStats.moved();
+                        insertIndex -= stepLen;
+                    }
+                    array[insertIndex + stepLen] = temp;
+                    SortStats.moved();
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，int[]特化版本，只分配一次中转数组
+     *
+     * @param array 要排序的数组
+     */
+    public static void mergeSort(int[] array) {
+        SortStats.enter("mergeSort", array.length);
+        try {
+            SortStats.scratch((long) Integer.BYTES * array.length);
+            // 这里就是递归的第一层，直接拆分而不是再调用一次四个参数的版本，递归深度与Comparable[]版本一致
+            int end = array.length - 1;
+            if (end > 0) {
+                int[] temp = new int[array.length];
+                int mid = end >>> 1;
+                mergeSort(array, 0, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, 0, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，int[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组，长度不小于end - start + 1
+     */
+    public static void mergeSort(int[] array, int start, int end, int[] temp) {
+        SortStats.enter("mergeSort", end - start + 1);
+        try {
+            if (start < end) {
+                int mid = (start + end) >>> 1;
+                mergeSort(array, start, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, start, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 合并，int[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组
+     */
+    public static void merge(int[] array, int start, int end, int[] temp) {
+        // 每个元素写入中转数组一次，再拷回原数组一次
+        SortStats.moved(2L * (end - start + 1));
+        int mid = (start + end) >>> 1;
+        // 使用无分支的标量合并，随机数据上没有分支预测失败的开销；SIMD合并实测更慢，见SortingNetwork
+        SortingNetwork.scalarMerge(array, start, mid + 1, mid + 1, end + 1, temp, 0);
+        System.arraycopy(temp, 0, array, start, end - start + 1);
+    }
+
+    // ==================== long[] 基本类型特化版本 ====================
+
+    /**
+     * 冒泡排序算法实现，long[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void bubbleSort(long[] array) {
+        bubbleSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 冒泡排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void bubbleSort(long[] array, int start, int end) {
+        SortStats.enter("bubbleSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                // 每一趟都会把最大值沉到末尾，末尾部分无需再比较
+                for (int j = start; j < end - (i - start); j++) {
+                    if (SortStats.compared(array[j] > array[j + 1])) {
+                        exchange(array, j, j + 1);
+                    }
+                }
             }
-            int index = 0;
-            for (int j = 0; j < containers.length; j++) {
-                System.arraycopy(containers[j], 0, array, index, counter[j]);
-                index += counter[j];
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 选择排序算法实现，long[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void selectSort(long[] array) {
+        selectSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 选择排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void selectSort(long[] array, int start, int end) {
+        SortStats.enter("selectSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                int minIndex = i;
+                for (int j = i + 1; j <= end; j++) {
+                    if (SortStats.compared(array[minIndex] > array[j])) {
+                        minIndex = j;
+                    }
+                }
+                if (minIndex != i) {
+                    exchange(array, minIndex, i);
+                }
             }
+        } finally {
+            SortStats.exit();
         }
     }
 
+    /**
+     * 快速排序算法实现，long[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void quickSort(long[] array) {
+        quickSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 快速排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void quickSort(long[] array, int start, int end) {
+        SortStats.enter("quickSort", end - start + 1);
+        try {
+            // 只递归较小的一边，较大的一边在循环中继续处理，栈深度不超过log(n)
+            while (start < end) {
+                // 三数取中，做法与Comparable版本一致
+                int mid = (start + end) >>> 1;
+                if (SortStats.compared(array[mid] > array[end])) {
+                    exchange(array, mid, end);
+                }
+                if (SortStats.compared(array[start] > array[end])) {
+                    exchange(array, start, end);
+                }
+                if (SortStats.compared(array[mid] > array[start])) {
+                    exchange(array, mid, start);
+                }
+                long key = array[start];
+
+                // 三路划分：[start, lt)小于key，[lt, gt]等于key，(gt, end]大于key，等于key的元素不再参与排序
+                int lt = start;
+                int gt = end;
+                int i = start + 1;
+                while (i <= gt) {
+                    if (SortStats.compared(array[i] < key)) {
+                        exchange(array, lt++, i++);
+                    } else if (SortStats.compared(array[i] > key)) {
+                        exchange(array, i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - start < end - gt) {
+                    quickSort(array, start, lt - 1);
+                    start = gt + 1;
+                } else {
+                    quickSort(array, gt + 1, end);
+                    end = lt - 1;
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    private static void exchange(long[] array, int i, int j) {
+        SortStats.swapped();
+        long temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * 插入排序算法实现，long[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void insertSort(long[] array) {
+        insertSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 插入排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void insertSort(long[] array, int start, int end) {
+        SortStats.enter("insertSort", end - start + 1);
+        try {
+            for (int i = start + 1; i <= end; i++) {
+                int insertIndex = i - 1;
+                long temp = array[i];
+                while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                    array[insertIndex + 1] = array[insertIndex];
+                    SortStats.moved();
+                    insertIndex--;
+                }
+                array[insertIndex + 1] = temp;
+                SortStats.moved();
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，long[]特化版本
+     */
+    public static void shellSort(long[] array) {
+        shellSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort(long[] array, int start, int end) {
+        SortStats.enter("shellSort", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    for (int j = i - stepLen; j >= start; j -= stepLen) {
+                        if (SortStats.compared(array[j] > array[j + stepLen])) {
+                            exchange(array, j, j + stepLen);
+                        }
+                    }
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，long[]特化版本
+     */
+    public static void shellSort1(long[] array) {
+        shellSort1(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort1(long[] array, int start, int end) {
+        SortStats.enter("shellSort1", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    int insertIndex = i - stepLen;
+                    long temp = array[i];
+                    while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                        array[insertIndex + stepLen] = array[insertIndex];
+                        SortStats.moved();
+                        insertIndex -= stepLen;
+                    }
+                    array[insertIndex + stepLen] = temp;
+                    SortStats.moved();
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，long[]特化版本，只分配一次中转数组
+     *
+     * @param array 要排序的数组
+     */
+    public static void mergeSort(long[] array) {
+        SortStats.enter("mergeSort", array.length);
+        try {
+            SortStats.scratch((long) Long.BYTES * array.length);
+            // 这里就是递归的第一层，直接拆分而不是再调用一次四个参数的版本，递归深度与Comparable[]版本一致
+            int end = array.length - 1;
+            if (end > 0) {
+                long[] temp = new long[array.length];
+                int mid = end >>> 1;
+                mergeSort(array, 0, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, 0, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，long[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组，长度不小于end - start + 1
+     */
+    public static void mergeSort(long[] array, int start, int end, long[] temp) {
+        SortStats.enter("mergeSort", end - start + 1);
+        try {
+            if (start < end) {
+                int mid = (start + end) >>> 1;
+                mergeSort(array, start, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, start, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 合并，long[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组
+     */
+    public static void merge(long[] array, int start, int end, long[] temp) {
+        // 每个元素写入中转数组一次，再拷回原数组一次
+        SortStats.moved(2L * (end - start + 1));
+        int mid = (start + end) >>> 1;
+        // 使用无分支的标量合并，随机数据上没有分支预测失败的开销；SIMD合并实测更慢，见SortingNetwork
+        SortingNetwork.scalarMerge(array, start, mid + 1, mid + 1, end + 1, temp, 0);
+        System.arraycopy(temp, 0, array, start, end - start + 1);
+    }
+
+    // ==================== double[] 基本类型特化版本 ====================
+    // 直接使用 < > 比较，数组中不能含有NaN
+
+    /**
+     * 冒泡排序算法实现，double[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void bubbleSort(double[] array) {
+        bubbleSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 冒泡排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void bubbleSort(double[] array, int start, int end) {
+        SortStats.enter("bubbleSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                // 每一趟都会把最大值沉到末尾，末尾部分无需再比较
+                for (int j = start; j < end - (i - start); j++) {
+                    if (SortStats.compared(array[j] > array[j + 1])) {
+                        exchange(array, j, j + 1);
+                    }
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 选择排序算法实现，double[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void selectSort(double[] array) {
+        selectSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 选择排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void selectSort(double[] array, int start, int end) {
+        SortStats.enter("selectSort", end - start + 1);
+        try {
+            for (int i = start; i < end; i++) {
+                int minIndex = i;
+                for (int j = i + 1; j <= end; j++) {
+                    if (SortStats.compared(array[minIndex] > array[j])) {
+                        minIndex = j;
+                    }
+                }
+                if (minIndex != i) {
+                    exchange(array, minIndex, i);
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 快速排序算法实现，double[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void quickSort(double[] array) {
+        quickSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 快速排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void quickSort(double[] array, int start, int end) {
+        SortStats.enter("quickSort", end - start + 1);
+        try {
+            // 只递归较小的一边，较大的一边在循环中继续处理，栈深度不超过log(n)
+            while (start < end) {
+                // 三数取中，做法与Comparable版本一致
+                int mid = (start + end) >>> 1;
+                if (SortStats.compared(array[mid] > array[end])) {
+                    exchange(array, mid, end);
+                }
+                if (SortStats.compared(array[start] > array[end])) {
+                    exchange(array, start, end);
+                }
+                if (SortStats.compared(array[mid] > array[start])) {
+                    exchange(array, mid, start);
+                }
+                double key = array[start];
+
+                // 三路划分：[start, lt)小于key，[lt, gt]等于key，(gt, end]大于key，等于key的元素不再参与排序
+                int lt = start;
+                int gt = end;
+                int i = start + 1;
+                while (i <= gt) {
+                    if (SortStats.compared(array[i] < key)) {
+                        exchange(array, lt++, i++);
+                    } else if (SortStats.compared(array[i] > key)) {
+                        exchange(array, i, gt--);
+                    } else {
+                        i++;
+                    }
+                }
+                if (lt - start < end - gt) {
+                    quickSort(array, start, lt - 1);
+                    start = gt + 1;
+                } else {
+                    quickSort(array, gt + 1, end);
+                    end = lt - 1;
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    private static void exchange(double[] array, int i, int j) {
+        SortStats.swapped();
+        double temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * 插入排序算法实现，double[]特化版本，避免装箱
+     *
+     * @param array 要排序的数组
+     */
+    public static void insertSort(double[] array) {
+        insertSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 插入排序算法实现，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void insertSort(double[] array, int start, int end) {
+        SortStats.enter("insertSort", end - start + 1);
+        try {
+            for (int i = start + 1; i <= end; i++) {
+                int insertIndex = i - 1;
+                double temp = array[i];
+                while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                    array[insertIndex + 1] = array[insertIndex];
+                    SortStats.moved();
+                    insertIndex--;
+                }
+                array[insertIndex + 1] = temp;
+                SortStats.moved();
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，double[]特化版本
+     */
+    public static void shellSort(double[] array) {
+        shellSort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，交换式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort(double[] array, int start, int end) {
+        SortStats.enter("shellSort", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    for (int j = i - stepLen; j >= start; j -= stepLen) {
+                        if (SortStats.compared(array[j] > array[j + stepLen])) {
+                            exchange(array, j, j + stepLen);
+                        }
+                    }
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，double[]特化版本
+     */
+    public static void shellSort1(double[] array) {
+        shellSort1(array, 0, array.length - 1);
+    }
+
+    /**
+     * 希尔排序算法实现，移动式，对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void shellSort1(double[] array, int start, int end) {
+        SortStats.enter("shellSort1", end - start + 1);
+        try {
+            int stepLen = end - start + 1;
+            while ((stepLen = stepLen / 2) > 0) {
+                for (int i = start + stepLen; i <= end; i++) {
+                    int insertIndex = i - stepLen;
+                    double temp = array[i];
+                    while (insertIndex >= start && SortStats.compared(array[insertIndex] > temp)) {
+                        array[insertIndex + stepLen] = array[insertIndex];
+                        SortStats.moved();
+                        insertIndex -= stepLen;
+                    }
+                    array[insertIndex + stepLen] = temp;
+                    SortStats.moved();
+                }
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，double[]特化版本，只分配一次中转数组
+     *
+     * @param array 要排序的数组
+     */
+    public static void mergeSort(double[] array) {
+        SortStats.enter("mergeSort", array.length);
+        try {
+            SortStats.scratch((long) Double.BYTES * array.length);
+            // 这里就是递归的第一层，直接拆分而不是再调用一次四个参数的版本，递归深度与Comparable[]版本一致
+            int end = array.length - 1;
+            if (end > 0) {
+                double[] temp = new double[array.length];
+                int mid = end >>> 1;
+                mergeSort(array, 0, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, 0, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 归并排序算法实现，double[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组，长度不小于end - start + 1
+     */
+    public static void mergeSort(double[] array, int start, int end, double[] temp) {
+        SortStats.enter("mergeSort", end - start + 1);
+        try {
+            if (start < end) {
+                int mid = (start + end) >>> 1;
+                mergeSort(array, start, mid, temp);
+                mergeSort(array, mid + 1, end, temp);
+                merge(array, start, end, temp);
+            }
+        } finally {
+            SortStats.exit();
+        }
+    }
+
+    /**
+     * 合并，double[]特化版本
+     *
+     * @param array 原始数组
+     * @param start 左边有序序列的初始索引
+     * @param end   右边索引
+     * @param temp  中转数组
+     */
+    public static void merge(double[] array, int start, int end, double[] temp) {
+        // 每个元素写入中转数组一次，再拷回原数组一次
+        SortStats.moved(2L * (end - start + 1));
+        int mid = (start + end) >>> 1;
+        int leftFlag = start;
+        int rightFlag = mid + 1;
+        int tempFlag = 0;
+        while (leftFlag <= mid && rightFlag <= end) {
+            if (SortStats.compared(array[leftFlag] <= array[rightFlag])) {
+                temp[tempFlag++] = array[leftFlag++];
+            } else {
+                temp[tempFlag++] = array[rightFlag++];
+            }
+        }
+        // 剩余部分直接整段拷贝
+        if (leftFlag <= mid) {
+            System.arraycopy(array, leftFlag, temp, tempFlag, mid - leftFlag + 1);
+            tempFlag += mid - leftFlag + 1;
+        }
+        if (rightFlag <= end) {
+            System.arraycopy(array, rightFlag, temp, tempFlag, end - rightFlag + 1);
+        }
+        System.arraycopy(temp, 0, array, start, end - start + 1);
+    }
+
 }
 
 class Test {
+    /**
+     * 这里只演示用法，各算法的耗时对比请运行{@link SortBenchmark}
+     */
     public static void main(String[] args) {
         int len = 80000;
         Integer[] array = new Integer[len];
@@ -255,19 +1282,26 @@ class Test {
         for (int i = 0; i < len; i++) {
             array[i] = random.nextInt(len);
         }
-        Instant start = Instant.now();
 
-//        Sort.bubbleSort(array);  // 70516
-//        Sort.selectSort(array);  // 8094
-//        Sort.quickSort(array, 0, array.length - 1);  // 43
-//        Sort.insertSort(array);  // 9346
-//        Sort.shellSort(array);  // 58586
-//        Sort.shellSort1(array);  // 69
-//        Sort.mergeSort(array, 0, array.length - 1, new Integer[array.length]);  // 72
-//        Sort.radixSort(array);  // 81
+//        Sort.bubbleSort(array);
+//        Sort.selectSort(array);
+//        Sort.insertSort(array);
+//        Sort.shellSort(array);
+//        Sort.shellSort1(array);
+//        Sort.mergeSort(array, 0, array.length - 1, new Integer[array.length]);
+//        Sort.radixSort(array);
+        Sort.quickSort(array, 0, array.length - 1);
 
-        Instant end = Instant.now();
-        System.out.println(Duration.between(start, end).toMillis());
         System.out.println(Arrays.toString(array));
+
+        // 大量重复元素：三路划分后不会退化，也不会栈溢出
+        int[] fewUnique = new int[1000000];
+        for (int i = 0; i < fewUnique.length; i++) {
+            fewUnique[i] = random.nextInt(16);
+        }
+        int[] expected = fewUnique.clone();
+        Arrays.sort(expected);
+        Sort.quickSort(fewUnique);
+        System.out.println(Arrays.equals(expected, fewUnique));
     }
-}
\ No newline at end of file
+}
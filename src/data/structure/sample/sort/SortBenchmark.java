@@ -0,0 +1,475 @@
+package data.structure.sample.sort;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 排序算法基准测试
+ * <p>
+ * 每个测试点由算法、规模、数据分布、元素类型（装箱/基本类型）四个参数确定，
+ * 默认在独立的JVM中运行（fork），先预热再正式测量，每次测量前重新拷贝输入数据，
+ * 拷贝不计入耗时；排序结果会参与校验和计算，避免被JIT优化掉。
+ * 规模较小时一次排序的耗时接近计时器的精度，所以每次测量连续排序多份输入（每份都事先拷贝好），再取平均。
+ * 份数在预热时按每次排序的平均耗时估算，使每次测量至少持续约100ms，同时所有拷贝合计不超过一百万个元素。
+ * 同时统计调用线程每次排序分配的字节数，ForkJoin工作线程中的分配不计算在内，并行算法的这一项偏小。
+ * 结果以JSON格式输出，格式与JMH的JSON结果保持一致，方便比对回归。
+ * 某个测试点失败时（比如抛出异常或者内存不足），这个测试点输出带error字段的结果，其余测试点照常运行。
+ * <p>
+ * 用法：java data.structure.sample.sort.SortBenchmark [选项]
+ * <pre>
+ * -algs        算法，逗号分隔，默认全部
+ * -sizes       规模，逗号分隔，默认1000,100000,1000000；full表示1000到100000000的全部6档，
+ *              一亿个装箱元素需要约4GB堆内存，请配合-jvmArgs "-Xmx8g"使用
+ * -batch       每次测量连续排序的份数，默认自动选择
+ * -dists       分布：random,sorted,reversed,few_unique,sawtooth，默认全部
+ * -types       元素类型：boxed,primitive，默认全部
+ * -warmup      预热次数，默认5
+ * -iterations  测量次数，默认10
+ * -forks       fork的JVM个数，0表示在当前JVM中运行，默认1
+ * -jvmArgs     传给fork出来的JVM的参数，空格分隔，比如"-Xmx8g"
+ * -out         JSON结果文件，默认只输出到控制台
+ * </pre>
+ *
+ * @author Neptune
+ * @date 2020/6/30 9:30
+ */
+public class SortBenchmark {
+    /**
+     * O(n^2)的算法规模超过这个值时跳过
+     */
+    private static final int QUADRATIC_LIMIT = 100000;
+    /**
+     * 默认的规模
+     */
+    private static final String DEFAULT_SIZES = "1000,100000,1000000";
+    /**
+     * -sizes full对应的规模，从1K到100M
+     */
+    private static final String FULL_SIZES = "1000,10000,100000,1000000,10000000,100000000";
+    /**
+     * 自动选择份数时，每次测量的目标耗时
+     */
+    private static final long BATCH_NANOS = 100000000L;
+    /**
+     * 自动选择份数时，所有拷贝合计的元素个数上限
+     */
+    private static final int BATCH_ELEMENTS = 1000000;
+    /**
+     * 自动选择份数时预热的最少次数
+     */
+    private static final int CALIBRATION_RUNS = 3;
+    /**
+     * 用于消费排序结果，防止排序被当作无用代码消除
+     */
+    private static volatile long sink;
+
+    /**
+     * 数据分布
+     */
+    enum Distribution {
+        /**
+         * 均匀随机
+         */
+        RANDOM,
+        /**
+         * 已经有序
+         */
+        SORTED,
+        /**
+         * 逆序
+         */
+        REVERSED,
+        /**
+         * 只有少量不同的值
+         */
+        FEW_UNIQUE,
+        /**
+         * 锯齿形，由多段递增序列组成
+         */
+        SAWTOOTH;
+
+        int[] generate(int size, Random random) {
+            int[] data = new int[size];
+            for (int i = 0; i < size; i++) {
+                switch (this) {
+                    case RANDOM:
+                        // 旧版radixSort不支持负数
+                        data[i] = random.nextInt(Integer.MAX_VALUE);
+                        break;
+                    case SORTED:
+                        data[i] = i;
+                        break;
+                    case REVERSED:
+                        data[i] = size - i;
+                        break;
+                    case FEW_UNIQUE:
+                        data[i] = random.nextInt(16);
+                        break;
+                    default:
+                        data[i] = i % 1000;
+                        break;
+                }
+            }
+            return data;
+        }
+    }
+
+    /**
+     * 元素类型
+     */
+    enum ElementType {
+        /**
+         * Integer[]
+         */
+        BOXED,
+        /**
+         * int[]
+         */
+        PRIMITIVE
+    }
+
+    /**
+     * 被测算法
+     */
+    private static class Algorithm {
+        private final String name;
+        private final Consumer<Integer[]> boxed;
+        private final Consumer<int[]> primitive;
+        private final boolean quadratic;
+
+        Algorithm(String name, Consumer<Integer[]> boxed, Consumer<int[]> primitive, boolean quadratic) {
+            this.name = name;
+            this.boxed = boxed;
+            this.primitive = primitive;
+            this.quadratic = quadratic;
+        }
+    }
+
+    private static final Map<String, Algorithm> ALGORITHMS = new LinkedHashMap<>();
+
+    static {
+        register(new Algorithm("bubbleSort", Sort::bubbleSort, Sort::bubbleSort, true));
+        register(new Algorithm("selectSort", Sort::selectSort, Sort::selectSort, true));
+        register(new Algorithm("insertSort", Sort::insertSort, Sort::insertSort, true));
+        register(new Algorithm("shellSort", Sort::shellSort, Sort::shellSort, true));
+        register(new Algorithm("shellSort1", Sort::shellSort1, Sort::shellSort1, false));
+        register(new Algorithm("quickSort", a -> Sort.quickSort(a, 0, a.length - 1), Sort::quickSort, false));
+        register(new Algorithm("mergeSort",
+                a -> Sort.mergeSort(a, 0, a.length - 1, new Integer[a.length]), Sort::mergeSort, false));
+        register(new Algorithm("radixSort", Sort::radixSort, Sort::radixSort, false));
+        register(new Algorithm("introSort", IntroSort::sort, IntroSort::sort, false));
+        register(new Algorithm("timSort", TimSort::sort, TimSort::sort, false));
+        register(new Algorithm("parallelMergeSort",
+                a -> new ParallelMergeSort().sort(a), a -> new ParallelMergeSort().sort(a), false));
+        register(new Algorithm("parallelRadixSort", null, a -> new ParallelRadixSort().sort(a), false));
+        register(new Algorithm("contextMergeSort",
+                a -> SortContext.current().mergeSort(a), a -> SortContext.current().mergeSort(a), false));
+        register(new Algorithm("contextRadixSort", null, a -> SortContext.current().radixSort(a), false));
+        register(new Algorithm("contextTimSort",
+                a -> SortContext.current().timSort(a), a -> SortContext.current().timSort(a), false));
+    }
+
+    private static void register(Algorithm algorithm) {
+        ALGORITHMS.put(algorithm.name, algorithm);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "10"));
+        int batch = Integer.parseInt(options.getOrDefault("batch", "0"));
+        if (options.containsKey("child")) {
+            // fork出来的JVM只运行一个测试点，把结果打印到最后一行
+            String[] point = options.get("child").split(":");
+            System.out.println(run(ALGORITHMS.get(point[0]), Integer.parseInt(point[1]),
+                    Distribution.valueOf(point[2]), ElementType.valueOf(point[3]), warmup, iterations, batch));
+            return;
+        }
+        int forks = Integer.parseInt(options.getOrDefault("forks", "1"));
+        List<String> algs = split(options.getOrDefault("algs", String.join(",", ALGORITHMS.keySet())));
+        String sizeOption = options.getOrDefault("sizes", DEFAULT_SIZES);
+        List<String> sizes = split("full".equalsIgnoreCase(sizeOption) ? FULL_SIZES : sizeOption);
+        List<String> dists = split(options.getOrDefault("dists", "random,sorted,reversed,few_unique,sawtooth"));
+        List<String> types = split(options.getOrDefault("types", "boxed,primitive"));
+
+        List<String> results = new ArrayList<>();
+        for (String alg : algs) {
+            Algorithm algorithm = ALGORITHMS.get(alg);
+            if (null == algorithm) {
+                throw new IllegalArgumentException("未知的算法：" + alg);
+            }
+            for (String size : sizes) {
+                int n = Integer.parseInt(size);
+                if (algorithm.quadratic && n > QUADRATIC_LIMIT) {
+                    continue;
+                }
+                for (String dist : dists) {
+                    Distribution distribution = Distribution.valueOf(dist.toUpperCase());
+                    for (String type : types) {
+                        ElementType elementType = ElementType.valueOf(type.toUpperCase());
+                        if ((elementType == ElementType.BOXED ? algorithm.boxed : algorithm.primitive) == null) {
+                            continue;
+                        }
+                        for (int fork = 0; fork < Math.max(1, forks); fork++) {
+                            String result = forks == 0
+                                    ? runSafely(algorithm, n, distribution, elementType, warmup, iterations, batch)
+                                    : fork(algorithm, n, distribution, elementType,
+                                    warmup, iterations, batch, options.get("jvmArgs"));
+                            System.out.println(result);
+                            results.add(result);
+                        }
+                    }
+                }
+            }
+        }
+        if (options.containsKey("out")) {
+            try (Writer writer = new OutputStreamWriter(
+                    new FileOutputStream(options.get("out")), StandardCharsets.UTF_8)) {
+                writer.write("[\n" + String.join(",\n", results) + "\n]\n");
+            }
+        }
+    }
+
+    /**
+     * 在新的JVM中运行一个测试点
+     * <p>
+     * 子进程失败（比如递归算法在退化的输入上栈溢出）时不中断整个测试，返回带error字段的结果，
+     * error中是子进程的全部输出
+     */
+    private static String fork(Algorithm algorithm, int size, Distribution distribution, ElementType type,
+                               int warmup, int iterations, int batch, String jvmArgs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (null != jvmArgs && !jvmArgs.trim().isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SortBenchmark.class.getName());
+        command.add("-child");
+        command.add(algorithm.name + ":" + size + ":" + distribution + ":" + type);
+        command.add("-warmup");
+        command.add(String.valueOf(warmup));
+        command.add("-iterations");
+        command.add(String.valueOf(iterations));
+        command.add("-batch");
+        command.add(String.valueOf(batch));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        String last = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+                last = line;
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || null == last) {
+            return toErrorJson(algorithm.name, size, distribution, type,
+                    "exit code " + exitCode + "\n" + output);
+        }
+        return last;
+    }
+
+    /**
+     * 在当前JVM中运行一个测试点，失败时返回带error字段的结果
+     */
+    private static String runSafely(Algorithm algorithm, int size, Distribution distribution, ElementType type,
+                                    int warmup, int iterations, int batch) {
+        try {
+            return run(algorithm, size, distribution, type, warmup, iterations, batch);
+        } catch (RuntimeException | StackOverflowError | OutOfMemoryError e) {
+            StringWriter trace = new StringWriter();
+            e.printStackTrace(new PrintWriter(trace));
+            return toErrorJson(algorithm.name, size, distribution, type, trace.toString());
+        }
+    }
+
+    /**
+     * 在当前JVM中运行一个测试点，返回JSON格式的结果
+     *
+     * @param batch 每次测量连续排序的份数，小于等于0时自动选择
+     */
+    private static String run(Algorithm algorithm, int size, Distribution distribution, ElementType type,
+                              int warmup, int iterations, int batch) {
+        int[] source = distribution.generate(size, new Random(42));
+        Integer[] boxedSource = null;
+        if (type == ElementType.BOXED) {
+            boxedSource = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                boxedSource[i] = source[i];
+            }
+        }
+        Sample sample = new Sample(algorithm, type, source, boxedSource);
+        int ops = batch > 0 ? batch : 1;
+        sample.prepare(ops);
+        // 自动选择份数时从一份开始，每次预热后按平均耗时重新估算，JIT编译后份数随之增加
+        int rounds = batch > 0 ? warmup : Math.max(warmup, CALIBRATION_RUNS);
+        for (int i = 0; i < rounds; i++) {
+            long perOp = Math.max(1, sample.measure() / ops);
+            if (batch <= 0) {
+                long byTime = (BATCH_NANOS + perOp - 1) / perOp;
+                ops = (int) Math.max(1, Math.min(byTime, BATCH_ELEMENTS / Math.max(1, size)));
+                sample.prepare(ops);
+            }
+        }
+        double[] millis = new double[iterations];
+        long allocated = 0;
+        for (int i = 0; i < iterations; i++) {
+            millis[i] = sample.measure() / 1e6 / ops;
+            allocated += sample.allocated / ops;
+        }
+        return toJson(algorithm.name, size, distribution, type, ops, millis, allocated / Math.max(1, iterations));
+    }
+
+    /**
+     * 一次测量：先拷贝好若干份输入，再连续排序
+     */
+    private static class Sample {
+        private final Algorithm algorithm;
+        private final ElementType type;
+        private final int[] source;
+        private final Integer[] boxedSource;
+        private Integer[][] boxedInputs;
+        private int[][] primitiveInputs;
+        /**
+         * 上一次测量中调用线程分配的字节数
+         */
+        private long allocated;
+
+        Sample(Algorithm algorithm, ElementType type, int[] source, Integer[] boxedSource) {
+            this.algorithm = algorithm;
+            this.type = type;
+            this.source = source;
+            this.boxedSource = boxedSource;
+        }
+
+        void prepare(int ops) {
+            boxedInputs = new Integer[type == ElementType.BOXED ? ops : 0][];
+            primitiveInputs = new int[type == ElementType.PRIMITIVE ? ops : 0][];
+        }
+
+        /**
+         * @return long 排序所有拷贝的总耗时，单位纳秒
+         */
+        long measure() {
+            int size = source.length;
+            long elapsed;
+            if (type == ElementType.BOXED) {
+                for (int k = 0; k < boxedInputs.length; k++) {
+                    boxedInputs[k] = boxedSource.clone();
+                }
+                long allocBefore = SortContext.threadAllocatedBytes();
+                long start = System.nanoTime();
+                for (Integer[] array : boxedInputs) {
+                    algorithm.boxed.accept(array);
+                }
+                elapsed = System.nanoTime() - start;
+                allocated = SortContext.threadAllocatedBytes() - allocBefore;
+                for (Integer[] array : boxedInputs) {
+                    sink += array[0] + array[size / 2] + array[size - 1];
+                }
+            } else {
+                for (int k = 0; k < primitiveInputs.length; k++) {
+                    primitiveInputs[k] = source.clone();
+                }
+                long allocBefore = SortContext.threadAllocatedBytes();
+                long start = System.nanoTime();
+                for (int[] array : primitiveInputs) {
+                    algorithm.primitive.accept(array);
+                }
+                elapsed = System.nanoTime() - start;
+                allocated = SortContext.threadAllocatedBytes() - allocBefore;
+                for (int[] array : primitiveInputs) {
+                    sink += array[0] + array[size / 2] + array[size - 1];
+                }
+            }
+            return elapsed;
+        }
+    }
+
+    /**
+     * 分配的字节数只统计调用线程，所以不使用JMH的gc.alloc.rate.norm，以免与JMH的结果混淆
+     */
+    private static String toJson(String name, int size, Distribution distribution, ElementType type, int ops,
+                                 double[] millis, long bytesPerOp) {
+        double mean = 0;
+        for (double m : millis) {
+            mean += m;
+        }
+        mean /= millis.length;
+        double variance = 0;
+        for (double m : millis) {
+            variance += (m - mean) * (m - mean);
+        }
+        double error = millis.length > 1 ? Math.sqrt(variance / (millis.length - 1)) : 0;
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < millis.length; i++) {
+            raw.append(i == 0 ? "" : ",").append(millis[i]);
+        }
+        return String.format(Locale.ROOT,
+                "{\"benchmark\":\"%s.%s\",\"mode\":\"avgt\",\"params\":{\"size\":\"%d\",\"distribution\":\"%s\","
+                        + "\"type\":\"%s\"},\"opsPerSample\":%d,\"primaryMetric\":{\"score\":%.6f,"
+                        + "\"scoreError\":%.6f,\"scoreUnit\":\"ms/op\",\"rawData\":[[%s]]},"
+                        + "\"secondaryMetrics\":{\"alloc.callerThread.norm\":{\"score\":%d,\"scoreUnit\":\"B/op\"}}}",
+                SortBenchmark.class.getName(), name, size, distribution.name().toLowerCase(),
+                type.name().toLowerCase(), ops, mean, error, raw, bytesPerOp);
+    }
+
+    /**
+     * 失败的测试点，没有primaryMetric，error是失败的原因
+     */
+    private static String toErrorJson(String name, int size, Distribution distribution, ElementType type,
+                                      String error) {
+        return String.format(Locale.ROOT,
+                "{\"benchmark\":\"%s.%s\",\"mode\":\"avgt\",\"params\":{\"size\":\"%d\",\"distribution\":\"%s\","
+                        + "\"type\":\"%s\"},\"error\":\"%s\"}",
+                SortBenchmark.class.getName(), name, size, distribution.name().toLowerCase(),
+                type.name().toLowerCase(), escape(error));
+    }
+
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c == '\t') {
+                builder.append("\\t");
+            } else if (c < 0x20) {
+                builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("-") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("参数格式错误：" + args[i]);
+            }
+            options.put(args[i].substring(1), args[++i]);
+        }
+        return options;
+    }
+
+    private static List<String> split(String value) {
+        List<String> list = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                list.add(item.trim());
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,260 @@
+package data.structure.sample.sort;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 可复用的排序上下文
+ * <p>
+ * {@link Sort#mergeSort(int[])}、{@link RadixSort}、{@link TimSort}每次调用都要创建中转数组，
+ * 频繁排序中等规模数组时GC压力很大。排序上下文持有按需增长的中转数组、直方图和TimSort状态，
+ * 预热到最大规模之后，每次排序都不再分配内存。
+ * <p>
+ * 上下文不是线程安全的，多线程请通过{@link #current()}取得线程私有的上下文。
+ * {@link Sort}中的原地算法、{@link IntroSort}和{@link Selection#select(int[], int)}本身不分配内存，直接调用即可。
+ *
+ * @author Neptune
+ * @date 2020/7/2 14:30
+ */
+public class SortContext {
+    private static final ThreadLocal<SortContext> CURRENT = ThreadLocal.withInitial(SortContext::new);
+    private static final java.lang.management.ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private int[] intScratch = new int[0];
+    private int[] payloadScratch = new int[0];
+    private long[] longScratch = new long[0];
+    private double[] doubleScratch = new double[0];
+    private Comparable[] objectScratch = new Comparable[0];
+    private final int[] counts = new int[RadixSort.COUNTS_LENGTH];
+    private TimSort.IntState intState;
+    private TimSort.ObjectState<Comparable> objectState;
+
+    /**
+     * 取得当前线程的排序上下文
+     *
+     * @return SortContext 线程私有的排序上下文
+     */
+    public static SortContext current() {
+        return CURRENT.get();
+    }
+
+    // ==================== 归并排序 ====================
+
+    public void mergeSort(int[] array) {
+        if (array.length > 1) {
+            Sort.mergeSort(array, 0, array.length - 1, intScratch(array.length));
+        }
+    }
+
+    public void mergeSort(long[] array) {
+        if (array.length > 1) {
+            Sort.mergeSort(array, 0, array.length - 1, longScratch(array.length));
+        }
+    }
+
+    public void mergeSort(double[] array) {
+        if (array.length > 1) {
+            Sort.mergeSort(array, 0, array.length - 1, doubleScratch(array.length));
+        }
+    }
+
+    public void mergeSort(Comparable[] array) {
+        if (array.length > 1) {
+            Comparable[] scratch = objectScratch(array.length);
+            try {
+                Sort.mergeSort(array, 0, array.length - 1, scratch);
+            } finally {
+                // 排序失败时也不能持有调用方对象的引用
+                Arrays.fill(scratch, 0, array.length, null);
+            }
+        }
+    }
+
+    // ==================== 基数排序 ====================
+
+    public void radixSort(int[] array) {
+        RadixSort.sort(array, null, 0, array.length - 1, intScratch(array.length), null, 0, counts);
+    }
+
+    public void radixSort(long[] array) {
+        RadixSort.sort(array, null, 0, array.length - 1, longScratch(array.length), null, 0, counts);
+    }
+
+    /**
+     * 按key排序，payload随key一起移动
+     */
+    public void radixSort(int[] keys, int[] payload) {
+        checkPayload(keys.length, payload.length);
+        RadixSort.sort(keys, payload, 0, keys.length - 1, intScratch(keys.length), payloadScratch(keys.length),
+                0, counts);
+    }
+
+    /**
+     * 按key排序，payload随key一起移动
+     */
+    public void radixSort(long[] keys, int[] payload) {
+        checkPayload(keys.length, payload.length);
+        RadixSort.sort(keys, payload, 0, keys.length - 1, longScratch(keys.length), payloadScratch(keys.length),
+                0, counts);
+    }
+
+    // ==================== TimSort ====================
+
+    public void timSort(int[] array) {
+        if (null == intState) {
+            intState = new TimSort.IntState(array, array.length);
+        }
+        intState.reset(array);
+        TimSort.sort(array, 0, array.length - 1, intState);
+        intState.reset(null);
+    }
+
+    public void timSort(Comparable[] array) {
+        if (null == objectState) {
+            objectState = new TimSort.ObjectState<>(array, array.length, IntroSort.NATURAL_ORDER);
+        }
+        objectState.reset(array, IntroSort.NATURAL_ORDER);
+        try {
+            TimSort.sort(array, 0, array.length - 1, objectState);
+        } finally {
+            // 与mergeSort一样，不持有调用方对象的引用
+            objectState.release();
+        }
+    }
+
+    // ==================== 不需要中转数组的算法 ====================
+
+    public void introSort(int[] array) {
+        IntroSort.sort(array);
+    }
+
+    public void introSort(long[] array) {
+        IntroSort.sort(array);
+    }
+
+    public void introSort(double[] array) {
+        IntroSort.sort(array);
+    }
+
+    public void introSort(Comparable[] array) {
+        IntroSort.sort(array);
+    }
+
+    /**
+     * 释放中转数组，上下文长时间不用或者刚处理过特别大的数组时调用
+     */
+    public void trim() {
+        intScratch = new int[0];
+        payloadScratch = new int[0];
+        longScratch = new long[0];
+        doubleScratch = new double[0];
+        objectScratch = new Comparable[0];
+        intState = null;
+        objectState = null;
+    }
+
+    /**
+     * 当前线程累计分配的字节数，用于检查预热后的排序是否还在分配内存，JVM不支持时返回-1
+     *
+     * @return long 当前线程累计分配的字节数
+     */
+    public static long threadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_BEAN)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void checkPayload(int keyLength, int payloadLength) {
+        if (keyLength != payloadLength) {
+            throw new IllegalArgumentException("payload长度必须与keys相同");
+        }
+    }
+
+    /**
+     * 按1.5倍增长，避免规模逐渐变大时频繁重新分配
+     */
+    private static int grow(int current, int required) {
+        return Math.max(required, current + (current >> 1));
+    }
+
+    private int[] intScratch(int length) {
+        if (intScratch.length < length) {
+            intScratch = new int[grow(intScratch.length, length)];
+        }
+        return intScratch;
+    }
+
+    private int[] payloadScratch(int length) {
+        if (payloadScratch.length < length) {
+            payloadScratch = new int[grow(payloadScratch.length, length)];
+        }
+        return payloadScratch;
+    }
+
+    private long[] longScratch(int length) {
+        if (longScratch.length < length) {
+            longScratch = new long[grow(longScratch.length, length)];
+        }
+        return longScratch;
+    }
+
+    private double[] doubleScratch(int length) {
+        if (doubleScratch.length < length) {
+            doubleScratch = new double[grow(doubleScratch.length, length)];
+        }
+        return doubleScratch;
+    }
+
+    private Comparable[] objectScratch(int length) {
+        if (objectScratch.length < length) {
+            objectScratch = new Comparable[grow(objectScratch.length, length)];
+        }
+        return objectScratch;
+    }
+}
+
+class TestSortContext {
+    public static void main(String[] args) {
+        Random random = new Random();
+        int[][] batches = new int[1000][];
+        long[][] longBatches = new long[1000][];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = new int[1000 + random.nextInt(9000)];
+            longBatches[i] = new long[batches[i].length];
+        }
+        SortContext context = SortContext.current();
+        // 预热，中转数组增长到最大规模
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < batches.length; i++) {
+                fill(batches[i], longBatches[i], random);
+                context.mergeSort(batches[i]);
+                context.radixSort(longBatches[i]);
+                fill(batches[i], longBatches[i], random);
+                context.timSort(batches[i]);
+            }
+        }
+        long allocated = 0;
+        for (int i = 0; i < batches.length; i++) {
+            fill(batches[i], longBatches[i], random);
+            long before = SortContext.threadAllocatedBytes();
+            context.mergeSort(batches[i]);
+            context.radixSort(longBatches[i]);
+            allocated += SortContext.threadAllocatedBytes() - before;
+            fill(batches[i], longBatches[i], random);
+            before = SortContext.threadAllocatedBytes();
+            context.timSort(batches[i]);
+            allocated += SortContext.threadAllocatedBytes() - before;
+        }
+        System.out.println("allocated bytes after warmup: " + allocated);
+    }
+
+    private static void fill(int[] ints, long[] longs, Random random) {
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+        }
+    }
+}
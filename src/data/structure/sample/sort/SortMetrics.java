@@ -0,0 +1,16 @@
+package data.structure.sample.sort;
+
+/**
+ * 排序统计的接收方，例如写入监控系统
+ *
+ * @author Neptune
+ * @date 2020/7/7 10:00
+ */
+public interface SortMetrics {
+    /**
+     * 一次排序结束时调用，在执行排序的线程中同步调用，实现不应该阻塞
+     *
+     * @param stats 这次排序的统计
+     */
+    void record(SortStats stats);
+}
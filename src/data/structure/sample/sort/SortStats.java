@@ -0,0 +1,319 @@
+package data.structure.sample.sort;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Random;
+
+/**
+ * 排序统计：比较次数、交换次数、移动次数、递归深度和中转数组字节数
+ * <p>
+ * 用JVM参数-Dsort.stats=true打开。打开后{@link Sort}中的算法每次排序结束时，
+ * 把统计交给{@link #setMetrics(SortMetrics)}设置的接收方，同时提交一个JFR事件（data.structure.sort.Sort），
+ * 也可以用{@link #last()}取得当前线程最近一次的统计。
+ * <p>
+ * 没有打开时{@link #ENABLED}为false，它是static final的，JIT内联计数方法后整个方法体都会被消除，没有任何开销，
+ * 所以计数调用可以一直留在代码里。
+ *
+ * @author Neptune
+ * @date 2020/7/7 10:00
+ */
+public final class SortStats {
+    /**
+     * 是否统计
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("sort.stats");
+    private static final ThreadLocal<Recorder> RECORDER = ENABLED ? ThreadLocal.withInitial(Recorder::new) : null;
+    private static volatile SortMetrics metrics;
+
+    private final String algorithm;
+    private final int length;
+    private final long comparisons;
+    private final long swaps;
+    private final long moves;
+    private final int maxDepth;
+    private final long scratchBytes;
+    private final long nanos;
+
+    private SortStats(Recorder recorder, long nanos) {
+        this.algorithm = recorder.algorithm;
+        this.length = recorder.length;
+        this.comparisons = recorder.comparisons;
+        this.swaps = recorder.swaps;
+        this.moves = recorder.moves;
+        this.maxDepth = recorder.maxDepth;
+        this.scratchBytes = recorder.scratchBytes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * 设置统计的接收方
+     *
+     * @param metrics 接收方，为null时不再发送
+     */
+    public static void setMetrics(SortMetrics metrics) {
+        SortStats.metrics = metrics;
+    }
+
+    /**
+     * 当前线程最近一次排序的统计
+     *
+     * @return SortStats 最近一次排序的统计，没有打开统计或者还没有排序过时返回null
+     */
+    public static SortStats last() {
+        return ENABLED ? RECORDER.get().last : null;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * 交换次数，即exchange的调用次数
+     */
+    public long getSwaps() {
+        return swaps;
+    }
+
+    /**
+     * 移动次数，即交换以外的单个元素写入次数
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * 最大递归深度，不递归的算法为1
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 分配的中转数组字节数，对象引用按4字节计算
+     */
+    public long getScratchBytes() {
+        return scratchBytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + "{length=" + length + ", comparisons=" + comparisons + ", swaps=" + swaps
+                + ", moves=" + moves + ", maxDepth=" + maxDepth + ", scratchBytes=" + scratchBytes
+                + ", nanos=" + nanos + '}';
+    }
+
+    // ==================== 计数方法，由排序算法调用 ====================
+
+    /**
+     * 进入一个排序方法，递归调用时每一层都要调用，最外层开始计数
+     */
+    static void enter(String algorithm, int length) {
+        if (ENABLED) {
+            RECORDER.get().enter(algorithm, length);
+        }
+    }
+
+    /**
+     * 离开一个排序方法，最外层离开时发送统计
+     */
+    static void exit() {
+        if (ENABLED) {
+            RECORDER.get().exit();
+        }
+    }
+
+    /**
+     * 记一次比较，原样返回比较结果，便于直接包在条件表达式外面
+     */
+    static int compared(int result) {
+        if (ENABLED) {
+            RECORDER.get().comparisons++;
+        }
+        return result;
+    }
+
+    /**
+     * 记一次比较，原样返回比较结果，便于直接包在条件表达式外面
+     */
+    static boolean compared(boolean result) {
+        if (ENABLED) {
+            RECORDER.get().comparisons++;
+        }
+        return result;
+    }
+
+    /**
+     * 记多次比较
+     */
+    static void comparisons(long count) {
+        if (ENABLED) {
+            RECORDER.get().comparisons += count;
+        }
+    }
+
+    /**
+     * 记一次交换
+     */
+    static void swapped() {
+        if (ENABLED) {
+            RECORDER.get().swaps++;
+        }
+    }
+
+    /**
+     * 记一次移动
+     */
+    static void moved() {
+        if (ENABLED) {
+            RECORDER.get().moves++;
+        }
+    }
+
+    /**
+     * 记多次移动
+     */
+    static void moved(long count) {
+        if (ENABLED) {
+            RECORDER.get().moves += count;
+        }
+    }
+
+    /**
+     * 记分配的中转数组字节数
+     */
+    static void scratch(long bytes) {
+        if (ENABLED) {
+            RECORDER.get().scratchBytes += bytes;
+        }
+    }
+
+    /**
+     * 线程私有的计数器
+     */
+    private static final class Recorder {
+        private String algorithm;
+        private int length;
+        private long comparisons;
+        private long swaps;
+        private long moves;
+        private int depth;
+        private int maxDepth;
+        private long scratchBytes;
+        private long start;
+        private SortEvent event;
+        private SortStats last;
+
+        void enter(String algorithm, int length) {
+            if (depth == 0) {
+                this.algorithm = algorithm;
+                this.length = length;
+                comparisons = 0;
+                swaps = 0;
+                moves = 0;
+                maxDepth = 0;
+                scratchBytes = 0;
+                event = new SortEvent();
+                event.begin();
+                start = System.nanoTime();
+            }
+            if (++depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+
+        void exit() {
+            if (--depth > 0) {
+                return;
+            }
+            SortStats stats = new SortStats(this, System.nanoTime() - start);
+            last = stats;
+            // 先提交事件、清空字段，再通知接收方；接收方在同一线程中排序时会重新进入这个Recorder
+            SortEvent current = event;
+            event = null;
+            current.end();
+            if (current.shouldCommit()) {
+                current.algorithm = stats.algorithm;
+                current.length = stats.length;
+                current.comparisons = stats.comparisons;
+                current.swaps = stats.swaps;
+                current.moves = stats.moves;
+                current.maxDepth = stats.maxDepth;
+                current.scratchBytes = stats.scratchBytes;
+                current.commit();
+            }
+            SortMetrics receiver = metrics;
+            if (null != receiver) {
+                receiver.record(stats);
+            }
+        }
+    }
+
+    @Name("data.structure.sort.Sort")
+    @Label("Sort")
+    @Category("Sort")
+    @Description("一次排序的比较、交换、移动次数和中转数组大小")
+    @StackTrace(false)
+    static class SortEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Length")
+        int length;
+        @Label("Comparisons")
+        long comparisons;
+        @Label("Swaps")
+        long swaps;
+        @Label("Moves")
+        long moves;
+        @Label("Max Depth")
+        int maxDepth;
+        @Label("Scratch Bytes")
+        long scratchBytes;
+    }
+}
+
+class TestSortStats {
+    /**
+     * 需要用-Dsort.stats=true运行，可以再加上-XX:StartFlightRecording查看JFR事件
+     */
+    public static void main(String[] args) {
+        if (!SortStats.ENABLED) {
+            System.out.println("请使用-Dsort.stats=true运行");
+            return;
+        }
+        SortStats.setMetrics(System.out::println);
+        int len = 20000;
+        Random random = new Random();
+        Integer[] data = new Integer[len];
+        for (int i = 0; i < len; i++) {
+            data[i] = random.nextInt(len);
+        }
+        Sort.shellSort1(data.clone());
+        Sort.mergeSort(data.clone(), 0, len - 1, new Integer[len]);
+        Sort.quickSort(data.clone(), 0, len - 1);
+
+        int[] ints = new int[len];
+        for (int i = 0; i < len; i++) {
+            ints[i] = data[i];
+        }
+        Sort.shellSort1(ints.clone());
+        Sort.mergeSort(ints.clone());
+        Sort.quickSort(ints.clone());
+    }
+}
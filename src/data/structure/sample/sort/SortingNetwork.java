@@ -0,0 +1,324 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 小块排序与合并的无分支内核
+ * <p>
+ * 插入排序在随机数据上每次比较都要预测分支，预测失败的代价很高。
+ * 这里用双调排序网络对不超过32个元素的小块排序，比较交换的顺序固定，只依赖min/max，不依赖数据；
+ * 合并两个有序段时也不按数据分支。
+ * <p>
+ * 有两套实现，类加载时选定：
+ * <ul>
+ * <li>SIMD版本{@code VectorKernel}，基于jdk.incubator.vector，源码在vector目录下单独编译
+ * （见{@code VectorKernel}的说明），运行时需要--add-modules jdk.incubator.vector，并且CPU的向量宽度至少256位</li>
+ * <li>标量版本，上面的条件不满足时使用，比较交换的顺序与SIMD版本相同</li>
+ * </ul>
+ * {@link IntroSort}的int[]版本在SIMD版本可用时用排序网络处理小区间，合并见{@link #scalarMerge(int[], int, int, int, int, int[], int)}。
+ * 所有区间都是左闭右开的。
+ *
+ * @author Neptune
+ * @date 2020/7/1 10:40
+ */
+public class SortingNetwork {
+    /**
+     * 排序网络支持的最大元素个数
+     */
+    public static final int MAX_BLOCK = 32;
+    private static final String VECTOR_KERNEL = "data.structure.sample.sort.VectorKernel";
+    private static final ScalarKernel SCALAR = new ScalarKernel();
+    private static final Kernel KERNEL = loadKernel();
+
+    private SortingNetwork() {
+    }
+
+    /**
+     * 排序网络和合并的一种实现
+     */
+    interface Kernel {
+        /**
+         * 对array[from, to)排序，to - from不超过{@link #MAX_BLOCK}
+         */
+        void sortSmall(int[] array, int from, int to);
+
+        void sortSmall(long[] array, int from, int to);
+
+        /**
+         * 把src[lo1, hi1)和src[lo2, hi2)合并到dst中dstLo开始的位置，dst与src的这两段不重叠，
+         * 比较次数记入{@link SortStats}
+         */
+        void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo);
+
+        void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int dstLo);
+    }
+
+    /**
+     * 模块和编译好的SIMD版本都存在，并且CPU支持时用SIMD版本，否则用标量版本
+     */
+    private static Kernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+                // 没有编译vector目录，或者向量宽度不够（构造方法抛出UnsupportedOperationException）
+            }
+        }
+        return SCALAR;
+    }
+
+    /**
+     * 是否在使用SIMD版本
+     *
+     * @return boolean SIMD版本返回true，标量版本返回false
+     */
+    public static boolean isVectorized() {
+        return KERNEL != SCALAR;
+    }
+
+    /**
+     * 无分支的标量合并，SIMD版本用它处理不足一个向量的剩余部分
+     * <p>
+     * {@link Sort#mergeSort(int[])}和{@link ParallelMergeSort}固定使用这个版本：SIMD合并每读入一个向量都要按数据选择来源，
+     * 这次读取的边界检查无法消除，实测比标量合并慢约一倍
+     */
+    static void scalarMerge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+        SCALAR.merge(src, lo1, hi1, lo2, hi2, dst, dstLo);
+    }
+
+    static void scalarMerge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int dstLo) {
+        SCALAR.merge(src, lo1, hi1, lo2, hi2, dst, dstLo);
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 对array[offset, offset + 8)排序
+     */
+    public static void sort8(int[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 8);
+    }
+
+    /**
+     * 对array[offset, offset + 16)排序
+     */
+    public static void sort16(int[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 16);
+    }
+
+    /**
+     * 对array[offset, offset + 32)排序
+     */
+    public static void sort32(int[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 32);
+    }
+
+    /**
+     * 用双调排序网络对不超过32个元素的区间排序，长度不是2的幂时相当于在末尾补上比所有元素都大的值
+     *
+     * @param array 要排序的数组
+     * @param from  要排序部分的起始坐标（包含）
+     * @param to    要排序部分的结束坐标（不包含）
+     */
+    public static void sortSmall(int[] array, int from, int to) {
+        if (to - from > MAX_BLOCK) {
+            throw new IllegalArgumentException("排序网络最多支持" + MAX_BLOCK + "个元素");
+        }
+        KERNEL.sortSmall(array, from, to);
+    }
+
+    /**
+     * 合并两个有序段，把src[lo1, hi1)和src[lo2, hi2)合并到dst中dstLo开始的位置，dst与src的这两段不能重叠
+     */
+    public static void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+        KERNEL.merge(src, lo1, hi1, lo2, hi2, dst, dstLo);
+    }
+
+    // ==================== long[] ====================
+
+    /**
+     * 对array[offset, offset + 8)排序
+     */
+    public static void sort8(long[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 8);
+    }
+
+    /**
+     * 对array[offset, offset + 16)排序
+     */
+    public static void sort16(long[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 16);
+    }
+
+    /**
+     * 对array[offset, offset + 32)排序
+     */
+    public static void sort32(long[] array, int offset) {
+        KERNEL.sortSmall(array, offset, offset + 32);
+    }
+
+    /**
+     * 用双调排序网络对不超过32个元素的区间排序，长度不是2的幂时相当于在末尾补上比所有元素都大的值
+     *
+     * @param array 要排序的数组
+     * @param from  要排序部分的起始坐标（包含）
+     * @param to    要排序部分的结束坐标（不包含）
+     */
+    public static void sortSmall(long[] array, int from, int to) {
+        if (to - from > MAX_BLOCK) {
+            throw new IllegalArgumentException("排序网络最多支持" + MAX_BLOCK + "个元素");
+        }
+        KERNEL.sortSmall(array, from, to);
+    }
+
+    /**
+     * 合并两个有序段，把src[lo1, hi1)和src[lo2, hi2)合并到dst中dstLo开始的位置，dst与src的这两段不能重叠
+     */
+    public static void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int dstLo) {
+        KERNEL.merge(src, lo1, hi1, lo2, hi2, dst, dstLo);
+    }
+
+    /**
+     * 标量版本
+     */
+    static final class ScalarKernel implements Kernel {
+        @Override
+        public void sortSmall(int[] array, int from, int to) {
+            int n = to - from;
+            for (int k = 2; k < 2 * n; k <<= 1) {
+                // 翻转比较：每个大小为k的块内，第t个与倒数第t个比较，把两个有序的半块合成一个有序块
+                for (int block = 0; block < n; block += k) {
+                    int last = from + block + k - 1;
+                    for (int t = Math.max(0, block + k - n); t < k >> 1; t++) {
+                        compareExchange(array, from + block + t, last - t);
+                    }
+                }
+                // 半清理：比较距离逐次减半
+                for (int j = k >> 2; j > 0; j >>= 1) {
+                    for (int block = 0; block < n; block += j << 1) {
+                        int base = from + block;
+                        for (int t = 0, limit = Math.min(j, n - block - j); t < limit; t++) {
+                            compareExchange(array, base + t, base + t + j);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 无分支的比较交换，min/max会被JIT编译成条件传送指令
+         */
+        private static void compareExchange(int[] array, int i, int j) {
+            int x = array[i];
+            int y = array[j];
+            array[i] = Math.min(x, y);
+            array[j] = Math.max(x, y);
+        }
+
+        @Override
+        public void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+            int k = dstLo;
+            while (lo1 < hi1 && lo2 < hi2) {
+                int left = src[lo1];
+                int right = src[lo2];
+                // takeLeft为1或0，用算术代替分支
+                int takeLeft = left <= right ? 1 : 0;
+                dst[k++] = takeLeft == 1 ? left : right;
+                lo1 += takeLeft;
+                lo2 += 1 - takeLeft;
+            }
+            SortStats.comparisons(k - dstLo);
+            System.arraycopy(src, lo1, dst, k, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, k + hi1 - lo1, hi2 - lo2);
+        }
+
+        @Override
+        public void sortSmall(long[] array, int from, int to) {
+            int n = to - from;
+            for (int k = 2; k < 2 * n; k <<= 1) {
+                for (int block = 0; block < n; block += k) {
+                    int last = from + block + k - 1;
+                    for (int t = Math.max(0, block + k - n); t < k >> 1; t++) {
+                        compareExchange(array, from + block + t, last - t);
+                    }
+                }
+                for (int j = k >> 2; j > 0; j >>= 1) {
+                    for (int block = 0; block < n; block += j << 1) {
+                        int base = from + block;
+                        for (int t = 0, limit = Math.min(j, n - block - j); t < limit; t++) {
+                            compareExchange(array, base + t, base + t + j);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void compareExchange(long[] array, int i, int j) {
+            long x = array[i];
+            long y = array[j];
+            array[i] = Math.min(x, y);
+            array[j] = Math.max(x, y);
+        }
+
+        @Override
+        public void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int dstLo) {
+            int k = dstLo;
+            while (lo1 < hi1 && lo2 < hi2) {
+                long left = src[lo1];
+                long right = src[lo2];
+                int takeLeft = left <= right ? 1 : 0;
+                dst[k++] = takeLeft == 1 ? left : right;
+                lo1 += takeLeft;
+                lo2 += 1 - takeLeft;
+            }
+            SortStats.comparisons(k - dstLo);
+            System.arraycopy(src, lo1, dst, k, hi1 - lo1);
+            System.arraycopy(src, lo2, dst, k + hi1 - lo1, hi2 - lo2);
+        }
+    }
+}
+
+class TestSortingNetwork {
+    public static void main(String[] args) {
+        System.out.println("vectorized: " + SortingNetwork.isVectorized());
+        Random random = new Random();
+        boolean same = true;
+        for (int round = 0; round < 10000; round++) {
+            int n = 1 + random.nextInt(SortingNetwork.MAX_BLOCK);
+            int offset = random.nextInt(4);
+            int[] ints = new int[offset + n + 4];
+            long[] longs = new long[ints.length];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = random.nextInt(round % 2 == 0 ? 10 : Integer.MAX_VALUE) - (round % 3 == 0 ? 0 : 5);
+                longs[i] = (long) ints[i] << (round % 5 == 0 ? 31 : 0);
+            }
+            int[] expectedInts = ints.clone();
+            Arrays.sort(expectedInts, offset, offset + n);
+            long[] expectedLongs = longs.clone();
+            Arrays.sort(expectedLongs, offset, offset + n);
+            SortingNetwork.sortSmall(ints, offset, offset + n);
+            SortingNetwork.sortSmall(longs, offset, offset + n);
+            same &= Arrays.equals(expectedInts, ints) && Arrays.equals(expectedLongs, longs);
+
+            // 两段长度随机，覆盖SIMD合并的整块和尾部
+            int len1 = random.nextInt(100);
+            int len2 = random.nextInt(100);
+            int[] runs = new int[len1 + len2];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = random.nextInt(50);
+            }
+            Arrays.sort(runs, 0, len1);
+            Arrays.sort(runs, len1, runs.length);
+            int[] merged = new int[runs.length];
+            SortingNetwork.merge(runs, 0, len1, len1, runs.length, merged, 0);
+            long[] longRuns = Arrays.stream(runs).asLongStream().toArray();
+            long[] mergedLongs = new long[runs.length];
+            SortingNetwork.merge(longRuns, 0, len1, len1, runs.length, mergedLongs, 0);
+            Arrays.sort(runs);
+            same &= Arrays.equals(runs, merged) && Arrays.equals(Arrays.stream(runs).asLongStream().toArray(),
+                    mergedLongs);
+        }
+        System.out.println(same);
+    }
+}
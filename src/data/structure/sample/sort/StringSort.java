@@ -0,0 +1,606 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 字符串专用排序，适用于URL、日志key这类有很长公共前缀的数据
+ * <p>
+ * 用compareTo比较时每次都要从头扫描公共前缀，这里的算法都只检查还没有区分开的那一位：
+ * <ul>
+ *     <li>多关键字快速排序（三路基数快速排序）：按第d位三路划分，相等的部分直接比较第d+1位</li>
+ *     <li>MSD基数排序：按第d个字节分成257个桶（包括字符串已结束的桶），小桶改用多关键字快速排序</li>
+ *     <li>LCP归并排序：记录相邻字符串的最长公共前缀，归并时只在公共前缀长度相同时才需要逐位比较，适合由若干有序段组成的数据</li>
+ * </ul>
+ * String按UTF-16编码单元比较，与{@link String#compareTo(String)}一致；byte[]按无符号字节的字典序比较，较短的前缀排在前面。
+ * 多关键字快速排序和MSD基数排序不是稳定的，LCP归并排序是稳定的。
+ *
+ * @author Neptune
+ * @date 2020/7/5 15:00
+ */
+public class StringSort {
+    /**
+     * 小于这个规模时使用插入排序
+     */
+    private static final int INSERTION_THRESHOLD = 16;
+    /**
+     * 小于这个规模的桶改用多关键字快速排序
+     */
+    private static final int MSD_THRESHOLD = 64;
+    private static final int RADIX = 256;
+
+    private StringSort() {
+    }
+
+    // ==================== String[] ====================
+
+    /**
+     * 对字符串数组排序，使用多关键字快速排序
+     * <p>
+     * MSD基数排序对每个字符要分高低字节两趟处理，ASCII数据的高字节那一趟是白做的，一般不如多关键字快速排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(String[] array) {
+        multikeySort(array);
+    }
+
+    /**
+     * 多关键字快速排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void multikeySort(String[] array) {
+        multikeySort(array, 0, array.length - 1, 0);
+    }
+
+    private static void multikeySort(String[] array, int lo, int hi, int d) {
+        while (hi - lo >= INSERTION_THRESHOLD) {
+            // 三数取中作为划分字符
+            int mid = (lo + hi) >>> 1;
+            int a = charAt(array[lo], d), b = charAt(array[mid], d), c = charAt(array[hi], d);
+            int median = a < b ? (b < c ? mid : (a < c ? hi : lo)) : (a < c ? lo : (b < c ? hi : mid));
+            exchange(array, lo, median);
+            int v = charAt(array[lo], d);
+            int lt = lo, gt = hi, i = lo + 1;
+            while (i <= gt) {
+                int t = charAt(array[i], d);
+                if (t < v) {
+                    exchange(array, lt++, i++);
+                } else if (t > v) {
+                    exchange(array, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            multikeySort(array, lo, lt - 1, d);
+            multikeySort(array, gt + 1, hi, d);
+            // 中间部分第d位相同，字符串都已结束时全部相等
+            if (v < 0) {
+                return;
+            }
+            lo = lt;
+            hi = gt;
+            d++;
+        }
+        insertSort(array, lo, hi, d);
+    }
+
+    /**
+     * 插入排序，区间内的字符串前d位都相同
+     */
+    private static void insertSort(String[] array, int lo, int hi, int d) {
+        for (int i = lo + 1; i <= hi; i++) {
+            String current = array[i];
+            int j = i - 1;
+            while (j >= lo && compareFrom(array[j], current, d) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = current;
+        }
+    }
+
+    /**
+     * MSD基数排序，每个字符按高字节、低字节分两位处理
+     *
+     * @param array 要排序的数组
+     */
+    public static void msdSort(String[] array) {
+        if (array.length < 2) {
+            return;
+        }
+        msdSort(array, new String[array.length], 0, array.length - 1, 0, new int[RADIX + 2]);
+    }
+
+    private static void msdSort(String[] array, String[] aux, int lo, int hi, int d, int[] count) {
+        while (true) {
+            if (hi - lo < MSD_THRESHOLD) {
+                // d位于某个字符中间时，该字符的高字节已经相同，从这个字符开始比较即可
+                multikeySort(array, lo, hi, d >>> 1);
+                return;
+            }
+            Arrays.fill(count, 0);
+            for (int i = lo; i <= hi; i++) {
+                count[byteAt(array[i], d) + 2]++;
+            }
+            // 这一位都相同（比如ASCII字符的高字节），不用移动
+            int same = singleBucket(count, hi - lo + 1);
+            if (same < 0) {
+                break;
+            }
+            if (same == 1) {
+                // 字符串都已结束，全部相等
+                return;
+            }
+            d++;
+        }
+        for (int r = 0; r < RADIX + 1; r++) {
+            count[r + 1] += count[r];
+        }
+        for (int i = lo; i <= hi; i++) {
+            aux[count[byteAt(array[i], d) + 1]++] = array[i];
+        }
+        System.arraycopy(aux, 0, array, lo, hi - lo + 1);
+        // count[r + 1]为第r个桶的结束位置，递归时会被覆盖，先保存下来
+        int[] bounds = Arrays.copyOf(count, RADIX + 1);
+        for (int r = 0; r < RADIX; r++) {
+            int from = lo + bounds[r];
+            int to = lo + bounds[r + 1] - 1;
+            if (to > from) {
+                msdSort(array, aux, from, to, d + 1, count);
+            }
+        }
+    }
+
+    /**
+     * LCP归并排序，先找出已经有序的段，再两两做LCP归并
+     *
+     * @param array 要排序的数组
+     */
+    public static void lcpMergeSort(String[] array) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        // lcp[i]为array[i - 1]与array[i]的最长公共前缀长度，有序段的第一个元素为0
+        int[] lcp = new int[n];
+        int[] runs = new int[n + 1];
+        int runCount = 0;
+        runs[runCount++] = 0;
+        for (int i = 1; i < n; i++) {
+            int h = lcp(array[i - 1], array[i], 0);
+            if (charAt(array[i - 1], h) <= charAt(array[i], h)) {
+                lcp[i] = h;
+            } else {
+                runs[runCount++] = i;
+            }
+        }
+        runs[runCount] = n;
+        String[] src = array, dst = new String[n];
+        int[] srcLcp = lcp, dstLcp = new int[n];
+        while (runCount > 1) {
+            int merged = 0;
+            for (int r = 0; r < runCount; r += 2) {
+                int lo = runs[r];
+                if (r + 1 == runCount) {
+                    // 落单的段直接复制
+                    System.arraycopy(src, lo, dst, lo, n - lo);
+                    System.arraycopy(srcLcp, lo, dstLcp, lo, n - lo);
+                } else {
+                    lcpMerge(src, srcLcp, lo, runs[r + 1], runs[r + 2], dst, dstLcp);
+                }
+                runs[merged++] = lo;
+            }
+            runs[merged] = n;
+            runCount = merged;
+            String[] t = src;
+            src = dst;
+            dst = t;
+            int[] tl = srcLcp;
+            srcLcp = dstLcp;
+            dstLcp = tl;
+        }
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, n);
+        }
+    }
+
+    /**
+     * 归并src中的[lo, mid)和[mid, hi)到dst，同时算出结果的lcp
+     * <p>
+     * ha、hb是两边当前元素与上一个输出元素的公共前缀长度，长的一边一定更小，
+     * 只有相等时才需要从第h位开始比较
+     */
+    private static void lcpMerge(String[] src, int[] srcLcp, int lo, int mid, int hi, String[] dst, int[] dstLcp) {
+        int i = lo, j = mid, k = lo;
+        int ha = 0, hb = 0;
+        while (i < mid && j < hi) {
+            if (ha > hb) {
+                dst[k] = src[i];
+                dstLcp[k++] = ha;
+                if (++i < mid) {
+                    ha = srcLcp[i];
+                }
+            } else if (ha < hb) {
+                dst[k] = src[j];
+                dstLcp[k++] = hb;
+                if (++j < hi) {
+                    hb = srcLcp[j];
+                }
+            } else {
+                String x = src[i], y = src[j];
+                int h = lcp(x, y, ha);
+                if (charAt(x, h) <= charAt(y, h)) {
+                    dst[k] = x;
+                    dstLcp[k++] = ha;
+                    hb = h;
+                    if (++i < mid) {
+                        ha = srcLcp[i];
+                    }
+                } else {
+                    dst[k] = y;
+                    dstLcp[k++] = hb;
+                    ha = h;
+                    if (++j < hi) {
+                        hb = srcLcp[j];
+                    }
+                }
+            }
+        }
+        if (i < mid) {
+            dst[k] = src[i];
+            dstLcp[k++] = ha;
+            System.arraycopy(src, i + 1, dst, k, mid - i - 1);
+            System.arraycopy(srcLcp, i + 1, dstLcp, k, mid - i - 1);
+        } else if (j < hi) {
+            dst[k] = src[j];
+            dstLcp[k++] = hb;
+            System.arraycopy(src, j + 1, dst, k, hi - j - 1);
+            System.arraycopy(srcLcp, j + 1, dstLcp, k, hi - j - 1);
+        }
+    }
+
+    /**
+     * 第d个字符，字符串已结束时返回-1
+     */
+    private static int charAt(String s, int d) {
+        return d < s.length() ? s.charAt(d) : -1;
+    }
+
+    /**
+     * 把字符按高字节在前拆成两个字节后的第d个字节，字符串已结束时返回-1
+     */
+    private static int byteAt(String s, int d) {
+        int index = d >>> 1;
+        if (index >= s.length()) {
+            return -1;
+        }
+        char c = s.charAt(index);
+        return (d & 1) == 0 ? c >>> 8 : c & 0xff;
+    }
+
+    /**
+     * 从第d个字符开始的最长公共前缀长度（包括前d个字符）
+     */
+    private static int lcp(String x, String y, int d) {
+        int n = Math.min(x.length(), y.length());
+        while (d < n && x.charAt(d) == y.charAt(d)) {
+            d++;
+        }
+        return d;
+    }
+
+    /**
+     * 已知前d个字符相同，从第d个字符开始比较
+     */
+    private static int compareFrom(String x, String y, int d) {
+        int h = lcp(x, y, d);
+        return charAt(x, h) - charAt(y, h);
+    }
+
+    private static void exchange(Object[] array, int i, int j) {
+        Object temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * 所有元素都在同一个桶时返回该桶在count中的下标，否则返回-1
+     */
+    private static int singleBucket(int[] count, int n) {
+        for (int r = 1; r < count.length; r++) {
+            if (count[r] != 0) {
+                return count[r] == n ? r : -1;
+            }
+        }
+        return -1;
+    }
+
+    // ==================== byte[][] ====================
+
+    /**
+     * 对字节数组排序，使用MSD基数排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(byte[][] array) {
+        msdSort(array);
+    }
+
+    /**
+     * 多关键字快速排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void multikeySort(byte[][] array) {
+        multikeySort(array, 0, array.length - 1, 0);
+    }
+
+    private static void multikeySort(byte[][] array, int lo, int hi, int d) {
+        while (hi - lo >= INSERTION_THRESHOLD) {
+            // 三数取中作为划分字节
+            int mid = (lo + hi) >>> 1;
+            int a = byteAt(array[lo], d), b = byteAt(array[mid], d), c = byteAt(array[hi], d);
+            int median = a < b ? (b < c ? mid : (a < c ? hi : lo)) : (a < c ? lo : (b < c ? hi : mid));
+            exchange(array, lo, median);
+            int v = byteAt(array[lo], d);
+            int lt = lo, gt = hi, i = lo + 1;
+            while (i <= gt) {
+                int t = byteAt(array[i], d);
+                if (t < v) {
+                    exchange(array, lt++, i++);
+                } else if (t > v) {
+                    exchange(array, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            multikeySort(array, lo, lt - 1, d);
+            multikeySort(array, gt + 1, hi, d);
+            // 中间部分第d位相同，字节数组都已结束时全部相等
+            if (v < 0) {
+                return;
+            }
+            lo = lt;
+            hi = gt;
+            d++;
+        }
+        insertSort(array, lo, hi, d);
+    }
+
+    /**
+     * 插入排序，区间内的字节数组前d位都相同
+     */
+    private static void insertSort(byte[][] array, int lo, int hi, int d) {
+        for (int i = lo + 1; i <= hi; i++) {
+            byte[] current = array[i];
+            int j = i - 1;
+            while (j >= lo && compareFrom(array[j], current, d) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = current;
+        }
+    }
+
+    /**
+     * MSD基数排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void msdSort(byte[][] array) {
+        if (array.length < 2) {
+            return;
+        }
+        msdSort(array, new byte[array.length][], 0, array.length - 1, 0, new int[RADIX + 2]);
+    }
+
+    private static void msdSort(byte[][] array, byte[][] aux, int lo, int hi, int d, int[] count) {
+        while (true) {
+            if (hi - lo < MSD_THRESHOLD) {
+                multikeySort(array, lo, hi, d);
+                return;
+            }
+            Arrays.fill(count, 0);
+            for (int i = lo; i <= hi; i++) {
+                count[byteAt(array[i], d) + 2]++;
+            }
+            // 这一位都相同，不用移动
+            int same = singleBucket(count, hi - lo + 1);
+            if (same < 0) {
+                break;
+            }
+            if (same == 1) {
+                // 字节数组都已结束，全部相等
+                return;
+            }
+            d++;
+        }
+        for (int r = 0; r < RADIX + 1; r++) {
+            count[r + 1] += count[r];
+        }
+        for (int i = lo; i <= hi; i++) {
+            aux[count[byteAt(array[i], d) + 1]++] = array[i];
+        }
+        System.arraycopy(aux, 0, array, lo, hi - lo + 1);
+        // count[r + 1]为第r个桶的结束位置，递归时会被覆盖，先保存下来
+        int[] bounds = Arrays.copyOf(count, RADIX + 1);
+        for (int r = 0; r < RADIX; r++) {
+            int from = lo + bounds[r];
+            int to = lo + bounds[r + 1] - 1;
+            if (to > from) {
+                msdSort(array, aux, from, to, d + 1, count);
+            }
+        }
+    }
+
+    /**
+     * LCP归并排序，先找出已经有序的段，再两两做LCP归并
+     *
+     * @param array 要排序的数组
+     */
+    public static void lcpMergeSort(byte[][] array) {
+        int n = array.length;
+        if (n < 2) {
+            return;
+        }
+        // lcp[i]为array[i - 1]与array[i]的最长公共前缀长度，有序段的第一个元素为0
+        int[] lcp = new int[n];
+        int[] runs = new int[n + 1];
+        int runCount = 0;
+        runs[runCount++] = 0;
+        for (int i = 1; i < n; i++) {
+            int h = lcp(array[i - 1], array[i], 0);
+            if (byteAt(array[i - 1], h) <= byteAt(array[i], h)) {
+                lcp[i] = h;
+            } else {
+                runs[runCount++] = i;
+            }
+        }
+        runs[runCount] = n;
+        byte[][] src = array, dst = new byte[n][];
+        int[] srcLcp = lcp, dstLcp = new int[n];
+        while (runCount > 1) {
+            int merged = 0;
+            for (int r = 0; r < runCount; r += 2) {
+                int lo = runs[r];
+                if (r + 1 == runCount) {
+                    // 落单的段直接复制
+                    System.arraycopy(src, lo, dst, lo, n - lo);
+                    System.arraycopy(srcLcp, lo, dstLcp, lo, n - lo);
+                } else {
+                    lcpMerge(src, srcLcp, lo, runs[r + 1], runs[r + 2], dst, dstLcp);
+                }
+                runs[merged++] = lo;
+            }
+            runs[merged] = n;
+            runCount = merged;
+            byte[][] t = src;
+            src = dst;
+            dst = t;
+            int[] tl = srcLcp;
+            srcLcp = dstLcp;
+            dstLcp = tl;
+        }
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, n);
+        }
+    }
+
+    /**
+     * 归并src中的[lo, mid)和[mid, hi)到dst，同时算出结果的lcp
+     */
+    private static void lcpMerge(byte[][] src, int[] srcLcp, int lo, int mid, int hi, byte[][] dst, int[] dstLcp) {
+        int i = lo, j = mid, k = lo;
+        int ha = 0, hb = 0;
+        while (i < mid && j < hi) {
+            if (ha > hb) {
+                dst[k] = src[i];
+                dstLcp[k++] = ha;
+                if (++i < mid) {
+                    ha = srcLcp[i];
+                }
+            } else if (ha < hb) {
+                dst[k] = src[j];
+                dstLcp[k++] = hb;
+                if (++j < hi) {
+                    hb = srcLcp[j];
+                }
+            } else {
+                byte[] x = src[i], y = src[j];
+                int h = lcp(x, y, ha);
+                if (byteAt(x, h) <= byteAt(y, h)) {
+                    dst[k] = x;
+                    dstLcp[k++] = ha;
+                    hb = h;
+                    if (++i < mid) {
+                        ha = srcLcp[i];
+                    }
+                } else {
+                    dst[k] = y;
+                    dstLcp[k++] = hb;
+                    ha = h;
+                    if (++j < hi) {
+                        hb = srcLcp[j];
+                    }
+                }
+            }
+        }
+        if (i < mid) {
+            dst[k] = src[i];
+            dstLcp[k++] = ha;
+            System.arraycopy(src, i + 1, dst, k, mid - i - 1);
+            System.arraycopy(srcLcp, i + 1, dstLcp, k, mid - i - 1);
+        } else if (j < hi) {
+            dst[k] = src[j];
+            dstLcp[k++] = hb;
+            System.arraycopy(src, j + 1, dst, k, hi - j - 1);
+            System.arraycopy(srcLcp, j + 1, dstLcp, k, hi - j - 1);
+        }
+    }
+
+    /**
+     * 第d个无符号字节，已结束时返回-1
+     */
+    private static int byteAt(byte[] s, int d) {
+        return d < s.length ? s[d] & 0xff : -1;
+    }
+
+    /**
+     * 从第d个字节开始的最长公共前缀长度（包括前d个字节）
+     */
+    private static int lcp(byte[] x, byte[] y, int d) {
+        int n = Math.min(x.length, y.length);
+        while (d < n && x[d] == y[d]) {
+            d++;
+        }
+        return d;
+    }
+
+    /**
+     * 已知前d个字节相同，从第d个字节开始比较
+     */
+    private static int compareFrom(byte[] x, byte[] y, int d) {
+        int h = lcp(x, y, d);
+        return byteAt(x, h) - byteAt(y, h);
+    }
+}
+
+class TestStringSort {
+    public static void main(String[] args) {
+        int len = 500000;
+        Random random = new Random();
+        String[] hosts = {"https://www.example.com/", "https://www.example.com/api/v1/", "https://static.example.org/"};
+        String[] urls = new String[len];
+        for (int i = 0; i < len; i++) {
+            urls[i] = hosts[random.nextInt(hosts.length)] + "item/" + random.nextInt(100000) + "?page=" + random.nextInt(20);
+        }
+        String[] expected = urls.clone();
+        Arrays.sort(expected);
+
+        String[] array = urls.clone();
+        StringSort.msdSort(array);
+        System.out.println(Arrays.equals(expected, array));
+        array = urls.clone();
+        StringSort.multikeySort(array);
+        System.out.println(Arrays.equals(expected, array));
+        array = urls.clone();
+        StringSort.lcpMergeSort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        byte[][] keys = new byte[len][];
+        for (int i = 0; i < len; i++) {
+            keys[i] = urls[i].getBytes();
+        }
+        StringSort.sort(keys);
+        boolean sorted = true;
+        for (int i = 1; i < len; i++) {
+            if (!new String(keys[i]).equals(expected[i])) {
+                sorted = false;
+                break;
+            }
+        }
+        System.out.println(sorted);
+    }
+}
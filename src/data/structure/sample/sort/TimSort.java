@@ -0,0 +1,1126 @@
+package data.structure.sample.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * 自适应的稳定排序（TimSort）
+ * <p>
+ * 先把数组切分成若干天然有序的段（严格降序的段就地反转），太短的段用二分插入排序补足到minRun，
+ * 然后按照栈的长度约束两两合并。合并时如果一边连续胜出多次，就进入gallop模式，
+ * 用指数查找直接定位整段的位置并整段拷贝。
+ * 有序或逆序的输入只需要O(n)次比较，随机输入是O(n log n)。排序是稳定的。
+ *
+ * @author Neptune
+ * @date 2020/6/28 14:10
+ */
+public class TimSort {
+    /**
+     * 小于这个规模的数组直接使用二分插入排序
+     */
+    private static final int MIN_MERGE = 32;
+    /**
+     * 进入gallop模式的初始阈值
+     */
+    private static final int MIN_GALLOP = 7;
+    private static final int INITIAL_TMP_LENGTH = 256;
+    /**
+     * 有序段栈的最大深度，长度约束保证int范围内的数组不会超过这个深度
+     */
+    private static final int MAX_STACK = 49;
+
+    private TimSort() {
+    }
+
+    /**
+     * 对整个数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(Comparable[] array) {
+        sort(array, 0, array.length - 1, IntroSort.NATURAL_ORDER);
+    }
+
+    /**
+     * 对数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(Comparable[] array, int start, int end) {
+        sort(array, start, end, IntroSort.NATURAL_ORDER);
+    }
+
+    /**
+     * 使用比较器对整个数组排序
+     *
+     * @param array      要排序的数组
+     * @param comparator 比较器
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator) {
+        sort(array, 0, array.length - 1, comparator);
+    }
+
+    /**
+     * 使用比较器对数组的一部分排序
+     *
+     * @param array      要排序的数组
+     * @param start      要排序部分的起始坐标
+     * @param end        要排序部分的结束坐标
+     * @param comparator 比较器
+     */
+    public static <T> void sort(T[] array, int start, int end, Comparator<? super T> comparator) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        sort(array, start, end, new ObjectState<>(array, n, comparator));
+    }
+
+    /**
+     * 使用已有的状态排序，状态中的数组和比较器需要事先设置好
+     */
+    static <T> void sort(T[] array, int start, int end, ObjectState<T> state) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        if (n < MIN_MERGE) {
+            state.binarySort(start, end + 1, start + state.countRunAndMakeAscending(start, end + 1));
+            return;
+        }
+        state.sort(start, end + 1);
+    }
+
+    /**
+     * 对整个int数组排序
+     *
+     * @param array 要排序的数组
+     */
+    public static void sort(int[] array) {
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * 对int数组的一部分排序
+     *
+     * @param array 要排序的数组
+     * @param start 要排序部分的起始坐标
+     * @param end   要排序部分的结束坐标
+     */
+    public static void sort(int[] array, int start, int end) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        sort(array, start, end, new IntState(array, n));
+    }
+
+    /**
+     * 使用已有的状态排序，状态中的数组需要事先设置好
+     */
+    static void sort(int[] array, int start, int end, IntState state) {
+        int n = end - start + 1;
+        if (n < 2) {
+            return;
+        }
+        if (n < MIN_MERGE) {
+            state.binarySort(start, end + 1, start + state.countRunAndMakeAscending(start, end + 1));
+            return;
+        }
+        state.sort(start, end + 1);
+    }
+
+    /**
+     * 计算最短有序段长度，使得n / minRun恰好是或略小于2的幂，合并时更均衡
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= (n & 1);
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(int length) {
+        return (T[]) new Object[length];
+    }
+
+    /**
+     * 一次T[]排序的状态：待合并的有序段栈、中转数组以及自适应的gallop阈值
+     */
+    static class ObjectState<T> {
+        private T[] a;
+        private Comparator<? super T> c;
+        /**
+         * 中转数组，按需增长
+         */
+        private T[] tmp;
+        /**
+         * tmp中用过的长度，之后的位置一定是null
+         */
+        private int tmpUsed;
+        /**
+         * 进入gallop模式的阈值，gallop有效时变小，无效时变大
+         */
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_STACK];
+        private final int[] runLen = new int[MAX_STACK];
+        private int stackSize;
+
+        ObjectState(T[] a, int n, Comparator<? super T> c) {
+            this.a = a;
+            this.c = c;
+            this.tmp = newArray(Math.min(INITIAL_TMP_LENGTH, Math.max(1, n >>> 1)));
+        }
+
+        /**
+         * 复用状态对一个新数组排序，中转数组保留
+         */
+        void reset(T[] a, Comparator<? super T> c) {
+            this.a = a;
+            this.c = c;
+            this.minGallop = MIN_GALLOP;
+            this.stackSize = 0;
+        }
+
+        /**
+         * 排序结束后清除对调用方数组和元素的引用，复用的状态不会让这些元素一直无法回收
+         */
+        void release() {
+            this.a = null;
+            Arrays.fill(tmp, 0, tmpUsed, null);
+            tmpUsed = 0;
+        }
+
+        void sort(int lo, int hi) {
+            int n = hi - lo;
+            int minRun = minRunLength(n);
+            do {
+                // 找到下一个有序段，严格降序的段就地反转
+                int runLen = countRunAndMakeAscending(lo, hi);
+                // 有序段太短时用二分插入排序补足到minRun
+                if (runLen < minRun) {
+                    int force = Math.min(n, minRun);
+                    binarySort(lo, lo + force, lo + runLen);
+                    runLen = force;
+                }
+                pushRun(lo, runLen);
+                mergeCollapse();
+                lo += runLen;
+                n -= runLen;
+            } while (n != 0);
+            mergeForceCollapse();
+        }
+
+        /**
+         * 二分插入排序，[lo, start)已经有序
+         */
+        void binarySort(int lo, int hi, int start) {
+            if (start == lo) {
+                start++;
+            }
+            for (; start < hi; start++) {
+                T pivot = a[start];
+                int left = lo;
+                int right = start;
+                while (left < right) {
+                    int mid = (left + right) >>> 1;
+                    if (c.compare(pivot, a[mid]) < 0) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+                System.arraycopy(a, left, a, left + 1, start - left);
+                a[left] = pivot;
+            }
+        }
+
+        /**
+         * 返回从lo开始的有序段长度，严格降序的段会被反转，反转严格降序段不破坏稳定性
+         */
+        int countRunAndMakeAscending(int lo, int hi) {
+            int runHi = lo + 1;
+            if (runHi == hi) {
+                return 1;
+            }
+            if (c.compare(a[runHi++], a[lo]) < 0) {
+                while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) < 0) {
+                    runHi++;
+                }
+                reverseRange(lo, runHi);
+            } else {
+                while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) >= 0) {
+                    runHi++;
+                }
+            }
+            return runHi - lo;
+        }
+
+        private void reverseRange(int lo, int hi) {
+            hi--;
+            while (lo < hi) {
+                T t = a[lo];
+                a[lo++] = a[hi];
+                a[hi--] = t;
+            }
+        }
+
+        private void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+        }
+
+        /**
+         * 保持栈中有序段长度满足runLen[i - 2] > runLen[i - 1] + runLen[i]且runLen[i - 1] > runLen[i]，
+         * 这样合并总是发生在长度相近的段之间
+         */
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+                        || (n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1])) {
+                    if (runLen[n - 1] < runLen[n + 1]) {
+                        n--;
+                    }
+                } else if (runLen[n] > runLen[n + 1]) {
+                    break;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+                mergeAt(n);
+            }
+        }
+
+        /**
+         * 合并栈中第i个和第i + 1个有序段
+         */
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int len1 = runLen[i];
+            int base2 = runBase[i + 1];
+            int len2 = runLen[i + 1];
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+            // 第一段中小于等于第二段首元素的部分已经就位
+            int k = gallopRight(a[base2], a, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 == 0) {
+                return;
+            }
+            // 第二段中大于等于第一段末元素的部分已经就位
+            len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+            if (len2 == 0) {
+                return;
+            }
+            if (len1 <= len2) {
+                mergeLo(base1, len1, base2, len2);
+            } else {
+                mergeHi(base1, len1, base2, len2);
+            }
+        }
+
+        /**
+         * 在array[base, base + len)中查找key的插入位置，相等时取最左边，从hint处开始指数查找
+         */
+        private int gallopLeft(T key, T[] array, int base, int len, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (c.compare(key, array[base + hint]) > 0) {
+                int maxOfs = len - hint;
+                while (ofs < maxOfs && c.compare(key, array[base + hint + ofs]) > 0) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            } else {
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs && c.compare(key, array[base + hint - ofs]) <= 0) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int t = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - t;
+            }
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >>> 1);
+                if (c.compare(key, array[base + m]) > 0) {
+                    lastOfs = m + 1;
+                } else {
+                    ofs = m;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * 与gallopLeft相同，但相等时取最右边
+         */
+        private int gallopRight(T key, T[] array, int base, int len, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (c.compare(key, array[base + hint]) < 0) {
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs && c.compare(key, array[base + hint - ofs]) < 0) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int t = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - t;
+            } else {
+                int maxOfs = len - hint;
+                while (ofs < maxOfs && c.compare(key, array[base + hint + ofs]) >= 0) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            }
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >>> 1);
+                if (c.compare(key, array[base + m]) < 0) {
+                    ofs = m;
+                } else {
+                    lastOfs = m + 1;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * 第一段较短时从前往后合并，第一段拷贝到中转数组
+         */
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            T[] tmp = ensureCapacity(len1);
+            System.arraycopy(a, base1, tmp, 0, len1);
+            int cursor1 = 0;
+            int cursor2 = base2;
+            int dest = base1;
+            a[dest++] = a[cursor2++];
+            if (--len2 == 0) {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                return;
+            }
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+                return;
+            }
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                // 一边连续胜出的次数
+                int count1 = 0;
+                int count2 = 0;
+                // 逐个比较，直到某一边连续胜出minGallop次
+                do {
+                    if (c.compare(a[cursor2], tmp[cursor1]) < 0) {
+                        a[dest++] = a[cursor2++];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        a[dest++] = tmp[cursor1++];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+                // gallop模式：直接查找整段的位置并整段拷贝，直到效果不明显
+                do {
+                    count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(tmp, cursor1, a, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        len1 -= count1;
+                        if (len1 <= 1) {
+                            break outer;
+                        }
+                    }
+                    a[dest++] = a[cursor2++];
+                    if (--len2 == 0) {
+                        break outer;
+                    }
+                    count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(a, cursor2, a, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        len2 -= count2;
+                        if (len2 == 0) {
+                            break outer;
+                        }
+                    }
+                    a[dest++] = tmp[cursor1++];
+                    if (--len1 == 1) {
+                        break outer;
+                    }
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0) {
+                    minGallop = 0;
+                }
+                minGallop += 2;
+            }
+            this.minGallop = minGallop < 1 ? 1 : minGallop;
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+            } else if (len1 == 0) {
+                throw new IllegalArgumentException("比较方法不满足全序关系");
+            } else {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+            }
+        }
+
+        /**
+         * 第二段较短时从后往前合并，第二段拷贝到中转数组
+         */
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            T[] tmp = ensureCapacity(len2);
+            System.arraycopy(a, base2, tmp, 0, len2);
+            int cursor1 = base1 + len1 - 1;
+            int cursor2 = len2 - 1;
+            int dest = base2 + len2 - 1;
+            a[dest--] = a[cursor1--];
+            if (--len1 == 0) {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                return;
+            }
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+                return;
+            }
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (c.compare(tmp[cursor2], a[cursor1]) < 0) {
+                        a[dest--] = a[cursor1--];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        a[dest--] = tmp[cursor2--];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+                do {
+                    count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        len1 -= count1;
+                        System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                        if (len1 == 0) {
+                            break outer;
+                        }
+                    }
+                    a[dest--] = tmp[cursor2--];
+                    if (--len2 == 1) {
+                        break outer;
+                    }
+                    count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        len2 -= count2;
+                        System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                        if (len2 <= 1) {
+                            break outer;
+                        }
+                    }
+                    a[dest--] = a[cursor1--];
+                    if (--len1 == 0) {
+                        break outer;
+                    }
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0) {
+                    minGallop = 0;
+                }
+                minGallop += 2;
+            }
+            this.minGallop = minGallop < 1 ? 1 : minGallop;
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+            } else if (len2 == 0) {
+                throw new IllegalArgumentException("比较方法不满足全序关系");
+            } else {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+            }
+        }
+
+        private T[] ensureCapacity(int minCapacity) {
+            if (tmp.length < minCapacity) {
+                int newSize = Math.max(minCapacity, Math.min(tmp.length * 2, a.length >>> 1));
+                tmp = newArray(newSize);
+                tmpUsed = 0;
+            }
+            tmpUsed = Math.max(tmpUsed, minCapacity);
+            return tmp;
+        }
+    }
+
+    /**
+     * 一次int[]排序的状态：待合并的有序段栈、中转数组以及自适应的gallop阈值
+     */
+    static class IntState {
+        private int[] a;
+        /**
+         * 中转数组，按需增长
+         */
+        private int[] tmp;
+        /**
+         * 进入gallop模式的阈值，gallop有效时变小，无效时变大
+         */
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_STACK];
+        private final int[] runLen = new int[MAX_STACK];
+        private int stackSize;
+
+        IntState(int[] a, int n) {
+            this.a = a;
+            this.tmp = new int[Math.min(INITIAL_TMP_LENGTH, Math.max(1, n >>> 1))];
+        }
+
+        /**
+         * 复用状态对一个新数组排序，中转数组保留
+         */
+        void reset(int[] a) {
+            this.a = a;
+            this.minGallop = MIN_GALLOP;
+            this.stackSize = 0;
+        }
+
+        void sort(int lo, int hi) {
+            int n = hi - lo;
+            int minRun = minRunLength(n);
+            do {
+                // 找到下一个有序段，严格降序的段就地反转
+                int runLen = countRunAndMakeAscending(lo, hi);
+                // 有序段太短时用二分插入排序补足到minRun
+                if (runLen < minRun) {
+                    int force = Math.min(n, minRun);
+                    binarySort(lo, lo + force, lo + runLen);
+                    runLen = force;
+                }
+                pushRun(lo, runLen);
+                mergeCollapse();
+                lo += runLen;
+                n -= runLen;
+            } while (n != 0);
+            mergeForceCollapse();
+        }
+
+        /**
+         * 二分插入排序，[lo, start)已经有序
+         */
+        void binarySort(int lo, int hi, int start) {
+            if (start == lo) {
+                start++;
+            }
+            for (; start < hi; start++) {
+                int pivot = a[start];
+                int left = lo;
+                int right = start;
+                while (left < right) {
+                    int mid = (left + right) >>> 1;
+                    if (pivot < a[mid]) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+                System.arraycopy(a, left, a, left + 1, start - left);
+                a[left] = pivot;
+            }
+        }
+
+        /**
+         * 返回从lo开始的有序段长度，严格降序的段会被反转，反转严格降序段不破坏稳定性
+         */
+        int countRunAndMakeAscending(int lo, int hi) {
+            int runHi = lo + 1;
+            if (runHi == hi) {
+                return 1;
+            }
+            if (a[runHi++] < a[lo]) {
+                while (runHi < hi && a[runHi] < a[runHi - 1]) {
+                    runHi++;
+                }
+                reverseRange(lo, runHi);
+            } else {
+                while (runHi < hi && a[runHi] >= a[runHi - 1]) {
+                    runHi++;
+                }
+            }
+            return runHi - lo;
+        }
+
+        private void reverseRange(int lo, int hi) {
+            hi--;
+            while (lo < hi) {
+                int t = a[lo];
+                a[lo++] = a[hi];
+                a[hi--] = t;
+            }
+        }
+
+        private void pushRun(int base, int len) {
+            runBase[stackSize] = base;
+            runLen[stackSize] = len;
+            stackSize++;
+        }
+
+        /**
+         * 保持栈中有序段长度满足runLen[i - 2] > runLen[i - 1] + runLen[i]且runLen[i - 1] > runLen[i]，
+         * 这样合并总是发生在长度相近的段之间
+         */
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+                        || (n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1])) {
+                    if (runLen[n - 1] < runLen[n + 1]) {
+                        n--;
+                    }
+                } else if (runLen[n] > runLen[n + 1]) {
+                    break;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private void mergeForceCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+                mergeAt(n);
+            }
+        }
+
+        /**
+         * 合并栈中第i个和第i + 1个有序段
+         */
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int len1 = runLen[i];
+            int base2 = runBase[i + 1];
+            int len2 = runLen[i + 1];
+            runLen[i] = len1 + len2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLen[i + 1] = runLen[i + 2];
+            }
+            stackSize--;
+            // 第一段中小于等于第二段首元素的部分已经就位
+            int k = gallopRight(a[base2], a, base1, len1, 0);
+            base1 += k;
+            len1 -= k;
+            if (len1 == 0) {
+                return;
+            }
+            // 第二段中大于等于第一段末元素的部分已经就位
+            len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1);
+            if (len2 == 0) {
+                return;
+            }
+            if (len1 <= len2) {
+                mergeLo(base1, len1, base2, len2);
+            } else {
+                mergeHi(base1, len1, base2, len2);
+            }
+        }
+
+        /**
+         * 在array[base, base + len)中查找key的插入位置，相等时取最左边，从hint处开始指数查找
+         */
+        private int gallopLeft(int key, int[] array, int base, int len, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (key > array[base + hint]) {
+                int maxOfs = len - hint;
+                while (ofs < maxOfs && key > array[base + hint + ofs]) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            } else {
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs && key <= array[base + hint - ofs]) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int t = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - t;
+            }
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >>> 1);
+                if (key > array[base + m]) {
+                    lastOfs = m + 1;
+                } else {
+                    ofs = m;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * 与gallopLeft相同，但相等时取最右边
+         */
+        private int gallopRight(int key, int[] array, int base, int len, int hint) {
+            int lastOfs = 0;
+            int ofs = 1;
+            if (key < array[base + hint]) {
+                int maxOfs = hint + 1;
+                while (ofs < maxOfs && key < array[base + hint - ofs]) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                int t = lastOfs;
+                lastOfs = hint - ofs;
+                ofs = hint - t;
+            } else {
+                int maxOfs = len - hint;
+                while (ofs < maxOfs && key >= array[base + hint + ofs]) {
+                    lastOfs = ofs;
+                    ofs = (ofs << 1) + 1;
+                    if (ofs <= 0) {
+                        ofs = maxOfs;
+                    }
+                }
+                if (ofs > maxOfs) {
+                    ofs = maxOfs;
+                }
+                lastOfs += hint;
+                ofs += hint;
+            }
+            lastOfs++;
+            while (lastOfs < ofs) {
+                int m = lastOfs + ((ofs - lastOfs) >>> 1);
+                if (key < array[base + m]) {
+                    ofs = m;
+                } else {
+                    lastOfs = m + 1;
+                }
+            }
+            return ofs;
+        }
+
+        /**
+         * 第一段较短时从前往后合并，第一段拷贝到中转数组
+         */
+        private void mergeLo(int base1, int len1, int base2, int len2) {
+            int[] tmp = ensureCapacity(len1);
+            System.arraycopy(a, base1, tmp, 0, len1);
+            int cursor1 = 0;
+            int cursor2 = base2;
+            int dest = base1;
+            a[dest++] = a[cursor2++];
+            if (--len2 == 0) {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+                return;
+            }
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+                return;
+            }
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                // 一边连续胜出的次数
+                int count1 = 0;
+                int count2 = 0;
+                // 逐个比较，直到某一边连续胜出minGallop次
+                do {
+                    if (a[cursor2] < tmp[cursor1]) {
+                        a[dest++] = a[cursor2++];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        a[dest++] = tmp[cursor1++];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+                // gallop模式：直接查找整段的位置并整段拷贝，直到效果不明显
+                do {
+                    count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(tmp, cursor1, a, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        len1 -= count1;
+                        if (len1 <= 1) {
+                            break outer;
+                        }
+                    }
+                    a[dest++] = a[cursor2++];
+                    if (--len2 == 0) {
+                        break outer;
+                    }
+                    count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(a, cursor2, a, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        len2 -= count2;
+                        if (len2 == 0) {
+                            break outer;
+                        }
+                    }
+                    a[dest++] = tmp[cursor1++];
+                    if (--len1 == 1) {
+                        break outer;
+                    }
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0) {
+                    minGallop = 0;
+                }
+                minGallop += 2;
+            }
+            this.minGallop = minGallop < 1 ? 1 : minGallop;
+            if (len1 == 1) {
+                System.arraycopy(a, cursor2, a, dest, len2);
+                a[dest + len2] = tmp[cursor1];
+            } else if (len1 == 0) {
+                throw new IllegalArgumentException("比较方法不满足全序关系");
+            } else {
+                System.arraycopy(tmp, cursor1, a, dest, len1);
+            }
+        }
+
+        /**
+         * 第二段较短时从后往前合并，第二段拷贝到中转数组
+         */
+        private void mergeHi(int base1, int len1, int base2, int len2) {
+            int[] tmp = ensureCapacity(len2);
+            System.arraycopy(a, base2, tmp, 0, len2);
+            int cursor1 = base1 + len1 - 1;
+            int cursor2 = len2 - 1;
+            int dest = base2 + len2 - 1;
+            a[dest--] = a[cursor1--];
+            if (--len1 == 0) {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+                return;
+            }
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+                return;
+            }
+            int minGallop = this.minGallop;
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (tmp[cursor2] < a[cursor1]) {
+                        a[dest--] = a[cursor1--];
+                        count1++;
+                        count2 = 0;
+                        if (--len1 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        a[dest--] = tmp[cursor2--];
+                        count2++;
+                        count1 = 0;
+                        if (--len2 == 1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+                do {
+                    count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        len1 -= count1;
+                        System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                        if (len1 == 0) {
+                            break outer;
+                        }
+                    }
+                    a[dest--] = tmp[cursor2--];
+                    if (--len2 == 1) {
+                        break outer;
+                    }
+                    count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        len2 -= count2;
+                        System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                        if (len2 <= 1) {
+                            break outer;
+                        }
+                    }
+                    a[dest--] = a[cursor1--];
+                    if (--len1 == 0) {
+                        break outer;
+                    }
+                    minGallop--;
+                } while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+                if (minGallop < 0) {
+                    minGallop = 0;
+                }
+                minGallop += 2;
+            }
+            this.minGallop = minGallop < 1 ? 1 : minGallop;
+            if (len2 == 1) {
+                dest -= len1;
+                cursor1 -= len1;
+                System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+                a[dest] = tmp[cursor2];
+            } else if (len2 == 0) {
+                throw new IllegalArgumentException("比较方法不满足全序关系");
+            } else {
+                System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+            }
+        }
+
+        private int[] ensureCapacity(int minCapacity) {
+            if (tmp.length < minCapacity) {
+                int newSize = Math.max(minCapacity, Math.min(tmp.length * 2, a.length >>> 1));
+                tmp = new int[newSize];
+            }
+            return tmp;
+        }
+    }
+}
+
+class TestTimSort {
+    public static void main(String[] args) {
+        int len = 1000000;
+        Random random = new Random();
+        // 有序的数据后面追加一批迟到的数据
+        int[] array = new int[len];
+        for (int i = 0; i < len - 1000; i++) {
+            array[i] = i;
+        }
+        for (int i = len - 1000; i < len; i++) {
+            array[i] = random.nextInt(len);
+        }
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        TimSort.sort(array);
+        System.out.println(Arrays.equals(expected, array));
+
+        // 稳定性：按key排序后，相同key的元素保持原来的先后顺序
+        Integer[][] pairs = new Integer[len][];
+        for (int i = 0; i < len; i++) {
+            pairs[i] = new Integer[]{random.nextInt(100), i};
+        }
+        TimSort.sort(pairs, Comparator.comparing((Integer[] pair) -> pair[0]));
+        boolean stable = true;
+        for (int i = 1; i < len; i++) {
+            if (pairs[i - 1][0].equals(pairs[i][0]) && pairs[i - 1][1] > pairs[i][1]) {
+                stable = false;
+                break;
+            }
+        }
+        System.out.println(stable);
+    }
+}
@@ -0,0 +1,217 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 块稀疏格式（BSR）的double矩阵
+ * <p>
+ * 把矩阵分成blockSize x blockSize的块，只保存含有非0元素的块，块按行压缩：第br个块行的块在[blockPointers[br], blockPointers[br + 1])，
+ * blockColumns是这些块的块列号，每个块的值按行优先顺序连续保存，块内的0也保存。
+ * 每个块只需要一个下标，非0元素聚集成块时比按行压缩省下大部分下标，矩阵乘向量时块内是连续的小稠密乘法。
+ * 行数、列数不是blockSize的整数倍时，最后一个块行（块列）超出矩阵的部分为0。
+ *
+ * @author Neptune
+ * @date 2020/7/14 9:30
+ */
+public final class BlockSparseMatrix implements DoubleMatrix {
+    private final int rows;
+    private final int cols;
+    private final int blockSize;
+    private final int[] blockPointers;
+    private final int[] blockColumns;
+    /**
+     * 第p个块第r行第c列的元素为values[p * blockSize * blockSize + r * blockSize + c]
+     */
+    private final double[] values;
+
+    BlockSparseMatrix(int rows, int cols, int blockSize, int[] blockPointers, int[] blockColumns, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.blockSize = blockSize;
+        this.blockPointers = blockPointers;
+        this.blockColumns = blockColumns;
+        this.values = values;
+    }
+
+    /**
+     * 由压缩矩阵创建，扫描两遍：第一遍统计每个块行的非空块个数，第二遍填充
+     *
+     * @param matrix    没有保存的元素为0的压缩矩阵
+     * @param blockSize 块的边长
+     * @return BlockSparseMatrix 块稀疏矩阵
+     */
+    public static BlockSparseMatrix fromCompressed(DoubleCompressedMatrix matrix, int blockSize) {
+        if (matrix.key != 0) {
+            throw new IllegalArgumentException("稀疏格式要求没有保存的元素为0");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块的边长必须为正数");
+        }
+        DoubleCompressedMatrix csr = matrix.toLayout(CompressedMatrix.Layout.ROW);
+        int rows = csr.rows;
+        int[] pointers = csr.pointers;
+        int[] indices = csr.indices;
+        int blockRows = (int) (((long) rows + blockSize - 1) / blockSize);
+        int blockCols = (int) (((long) csr.cols + blockSize - 1) / blockSize);
+        int[] blockPointers = new int[blockRows + 1];
+        int[] marker = new int[blockCols];
+        Arrays.fill(marker, -1);
+        for (int br = 0; br < blockRows; br++) {
+            int count = 0;
+            int first = br * blockSize;
+            int end = (int) Math.min(rows, (long) first + blockSize);
+            for (int i = first; i < end; i++) {
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    int bc = indices[k] / blockSize;
+                    if (marker[bc] != br) {
+                        marker[bc] = br;
+                        count++;
+                    }
+                }
+            }
+            blockPointers[br + 1] = blockPointers[br] + count;
+        }
+        int blocks = blockPointers[blockRows];
+        int area = blockSize * blockSize;
+        if ((long) blocks * area > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("块的总大小超出int范围，请减小块的边长");
+        }
+        int[] blockColumns = new int[blocks];
+        double[] values = new double[blocks * area];
+        // 第二遍重新用marker去重，slot记录每个块列在blockColumns中的位置
+        Arrays.fill(marker, -1);
+        int[] slot = new int[blockCols];
+        for (int br = 0; br < blockRows; br++) {
+            int start = blockPointers[br];
+            int next = start;
+            int first = br * blockSize;
+            int end = (int) Math.min(rows, (long) first + blockSize);
+            for (int i = first; i < end; i++) {
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    int bc = indices[k] / blockSize;
+                    if (marker[bc] != br) {
+                        marker[bc] = br;
+                        blockColumns[next++] = bc;
+                    }
+                }
+            }
+            Arrays.sort(blockColumns, start, next);
+            for (int p = start; p < next; p++) {
+                slot[blockColumns[p]] = p;
+            }
+            for (int i = first; i < end; i++) {
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    int col = indices[k];
+                    int bc = col / blockSize;
+                    values[slot[bc] * area + (i - first) * blockSize + (col - bc * blockSize)] = csr.values[k];
+                }
+            }
+        }
+        return new BlockSparseMatrix(rows, csr.cols, blockSize, blockPointers, blockColumns, values);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 非空块的个数
+     *
+     * @return int 块的个数
+     */
+    public int blockCount() {
+        return blockColumns.length;
+    }
+
+    @Override
+    public long storedCount() {
+        return values.length;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+        int br = i / blockSize;
+        int bc = j / blockSize;
+        int position = Arrays.binarySearch(blockColumns, blockPointers[br], blockPointers[br + 1], bc);
+        if (position < 0) {
+            return 0;
+        }
+        return values[position * blockSize * blockSize + (i - br * blockSize) * blockSize + (j - bc * blockSize)];
+    }
+
+    @Override
+    public void multiply(double[] x, double[] y) {
+        CompressedMatrix.checkVectors(rows, cols, x, y);
+        int area = blockSize * blockSize;
+        int blockRows = blockPointers.length - 1;
+        // 列数不是块边长的整数倍时，最后一个块列只有部分列在矩阵内
+        int partialColumn = cols % blockSize == 0 ? -1 : cols / blockSize;
+        for (int br = 0; br < blockRows; br++) {
+            int first = br * blockSize;
+            int height = Math.min(blockSize, rows - first);
+            int from = blockPointers[br];
+            int to = blockPointers[br + 1];
+            int full = to > from && blockColumns[to - 1] == partialColumn ? to - 1 : to;
+            if (blockSize == 4 && height == 4 && full == to) {
+                multiply4(from, to, x, y, first);
+                continue;
+            }
+            // 按行遍历这个块行的所有块，每行只写一次y
+            for (int r = 0; r < height; r++) {
+                double sum = 0;
+                int base = from * area + r * blockSize;
+                for (int p = from; p < full; p++, base += area) {
+                    int column = blockColumns[p] * blockSize;
+                    for (int c = 0; c < blockSize; c++) {
+                        sum += values[base + c] * x[column + c];
+                    }
+                }
+                if (full < to) {
+                    int column = partialColumn * blockSize;
+                    for (int c = 0; c < cols - column; c++) {
+                        sum += values[base + c] * x[column + c];
+                    }
+                }
+                y[first + r] = sum;
+            }
+        }
+    }
+
+    /**
+     * 默认的4x4块：每个块读一次x的4个元素，同时累加4行
+     */
+    private void multiply4(int from, int to, double[] x, double[] y, int first) {
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        for (int p = from, base = from << 4; p < to; p++, base += 16) {
+            int column = blockColumns[p] << 2;
+            double x0 = x[column];
+            double x1 = x[column + 1];
+            double x2 = x[column + 2];
+            double x3 = x[column + 3];
+            sum0 += values[base] * x0 + values[base + 1] * x1 + values[base + 2] * x2 + values[base + 3] * x3;
+            sum1 += values[base + 4] * x0 + values[base + 5] * x1 + values[base + 6] * x2 + values[base + 7] * x3;
+            sum2 += values[base + 8] * x0 + values[base + 9] * x1 + values[base + 10] * x2 + values[base + 11] * x3;
+            sum3 += values[base + 12] * x0 + values[base + 13] * x1 + values[base + 14] * x2 + values[base + 15] * x3;
+        }
+        y[first] = sum0;
+        y[first + 1] = sum1;
+        y[first + 2] = sum2;
+        y[first + 3] = sum3;
+    }
+}
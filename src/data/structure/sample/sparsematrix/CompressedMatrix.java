@@ -0,0 +1,277 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 压缩稀疏矩阵（CSR/CSC）的公共结构
+ * <p>
+ * 按行压缩（CSR）时，pointers是行指针，第i行的元素保存在[pointers[i], pointers[i + 1])，indices是这些元素的列号；
+ * 按列压缩（CSC）时行和列的角色互换。每一行（列）内的下标升序排列，按下标取元素是二分查找，复杂度O(log k)，k为该行（列）的元素个数。
+ * <p>
+ * 元素的值由子类保存在基本类型数组中，int、long值每个元素占8到12字节，
+ * 而{@link Matrix#compress(Integer[][], Integer)}的Integer三元组每个元素要80字节以上。
+ * 没有保存的元素的值为key，与{@link Matrix#compress(Integer[][], Integer)}的key含义相同。
+ *
+ * @author Neptune
+ * @date 2020/7/8 9:30
+ */
+public abstract class CompressedMatrix {
+    /**
+     * 压缩方式
+     */
+    public enum Layout {
+        /**
+         * 按行压缩（CSR）
+         */
+        ROW,
+        /**
+         * 按列压缩（CSC）
+         */
+        COLUMN
+    }
+
+    final int rows;
+    final int cols;
+    final Layout layout;
+    /**
+     * 按行压缩时为行指针，按列压缩时为列指针，长度为行数（列数）+ 1
+     */
+    final int[] pointers;
+    /**
+     * 按行压缩时为列号，按列压缩时为行号，长度为元素个数
+     */
+    final int[] indices;
+
+    CompressedMatrix(int rows, int cols, Layout layout, int[] pointers, int[] indices) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.pointers = pointers;
+        this.indices = indices;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 保存的元素个数
+     *
+     * @return int 元素个数
+     */
+    public int nnz() {
+        return pointers[pointers.length - 1];
+    }
+
+    /**
+     * 压缩的维度的大小，按行压缩时为行数
+     */
+    int majorDim() {
+        return layout == Layout.ROW ? rows : cols;
+    }
+
+    /**
+     * 另一个维度的大小，按行压缩时为列数
+     */
+    int minorDim() {
+        return layout == Layout.ROW ? cols : rows;
+    }
+
+    /**
+     * 查找第i行第j列的元素在值数组中的位置
+     *
+     * @return int 元素的位置，没有保存时返回-1
+     */
+    int find(int i, int j) {
+        checkIndex(i, j);
+        int major = layout == Layout.ROW ? i : j;
+        int minor = layout == Layout.ROW ? j : i;
+        int position = Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+        return position >= 0 ? position : -1;
+    }
+
+    void checkIndex(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+    }
+
+    /**
+     * 校验矩阵乘向量的参数
+     */
+    static void checkVectors(int rows, int cols, double[] x, double[] y) {
+        if (x.length != cols || y.length != rows) {
+            throw new IllegalArgumentException("向量长度与矩阵不匹配");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("x和y不能是同一个数组");
+        }
+    }
+
+    /**
+     * 转换压缩方式需要的结构：新的指针、下标，以及新的第k个元素对应原来的第order[k]个元素
+     */
+    static final class Structure {
+        final int[] pointers;
+        final int[] indices;
+        final int[] order;
+
+        Structure(int[] pointers, int[] indices, int[] order) {
+            this.pointers = pointers;
+            this.indices = indices;
+            this.order = order;
+        }
+    }
+
+    /**
+     * 交换行列的角色（CSR与CSC互相转换），计数排序，复杂度O(nnz + 行数 + 列数)
+     * <p>
+     * 按原来的压缩维度顺序扫描，所以新的每一行（列）内下标仍然是升序的
+     */
+    Structure transposeStructure() {
+        int nnz = nnz();
+        int minorDim = minorDim();
+        int[] newPointers = new int[minorDim + 1];
+        for (int k = 0; k < nnz; k++) {
+            newPointers[indices[k] + 1]++;
+        }
+        for (int m = 0; m < minorDim; m++) {
+            newPointers[m + 1] += newPointers[m];
+        }
+        int[] next = Arrays.copyOf(newPointers, minorDim);
+        int[] newIndices = new int[nnz];
+        int[] order = new int[nnz];
+        int majorDim = majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                int position = next[indices[k]]++;
+                newIndices[position] = major;
+                order[position] = k;
+            }
+        }
+        return new Structure(newPointers, newIndices, order);
+    }
+
+    /**
+     * 对三元组按(压缩维度下标, 另一维度下标)排序，两趟稳定的计数排序，复杂度O(nnz + 行数 + 列数)，
+     * 重复的位置会相邻，由子类合并
+     */
+    static Structure sortTriplets(int rows, int cols, int[] rowIndex, int[] colIndex, int valueCount, Layout layout) {
+        if (rowIndex.length != colIndex.length || rowIndex.length != valueCount) {
+            throw new IllegalArgumentException("行号、列号、值的个数必须相同");
+        }
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("行数、列数不能为负数");
+        }
+        int nnz = rowIndex.length;
+        for (int k = 0; k < nnz; k++) {
+            if (rowIndex[k] < 0 || rowIndex[k] >= rows || colIndex[k] < 0 || colIndex[k] >= cols) {
+                throw new IndexOutOfBoundsException("下标(" + rowIndex[k] + ", " + colIndex[k] + ")超出矩阵范围"
+                        + rows + "x" + cols);
+            }
+        }
+        int[] major = layout == Layout.ROW ? rowIndex : colIndex;
+        int[] minor = layout == Layout.ROW ? colIndex : rowIndex;
+        int majorDim = layout == Layout.ROW ? rows : cols;
+        int minorDim = layout == Layout.ROW ? cols : rows;
+        // 先按另一维度排序
+        int[] minorStart = new int[minorDim + 1];
+        for (int k = 0; k < nnz; k++) {
+            minorStart[minor[k] + 1]++;
+        }
+        for (int m = 0; m < minorDim; m++) {
+            minorStart[m + 1] += minorStart[m];
+        }
+        int[] byMinor = new int[nnz];
+        for (int k = 0; k < nnz; k++) {
+            byMinor[minorStart[minor[k]]++] = k;
+        }
+        // 再稳定地按压缩维度排序
+        int[] pointers = new int[majorDim + 1];
+        for (int k = 0; k < nnz; k++) {
+            pointers[major[k] + 1]++;
+        }
+        for (int m = 0; m < majorDim; m++) {
+            pointers[m + 1] += pointers[m];
+        }
+        int[] next = Arrays.copyOf(pointers, majorDim);
+        int[] order = new int[nnz];
+        int[] indices = new int[nnz];
+        for (int k : byMinor) {
+            int position = next[major[k]]++;
+            order[position] = k;
+            indices[position] = minor[k];
+        }
+        return new Structure(pointers, indices, order);
+    }
+
+    /**
+     * 就地去掉重复的位置，返回target，target[k]为排序后第k个元素合并到的新位置
+     */
+    static int[] mergeDuplicates(int[] pointers, int[] indices, int majorDim) {
+        int[] target = new int[indices.length];
+        int write = 0;
+        int start = 0;
+        for (int major = 0; major < majorDim; major++) {
+            int end = pointers[major + 1];
+            for (int k = start; k < end; k++) {
+                if (k > start && indices[k] == indices[write - 1]) {
+                    target[k] = write - 1;
+                } else {
+                    target[k] = write;
+                    indices[write++] = indices[k];
+                }
+            }
+            start = end;
+            pointers[major + 1] = write;
+        }
+        return target;
+    }
+}
+
+class TestCompressedMatrix {
+    public static void main(String[] args) {
+        int[][] source = new int[][]{
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 3, 0, 0, 0, 0, 7, 0, 0, 0, 0},
+                {0, 0, 0, 6, 0, 0, 0, 0, 0, 9, 0},
+                {5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 8, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 6, 0, 0, 0, 6, 0, 0, 0}
+        };
+        IntCompressedMatrix csr = IntCompressedMatrix.fromDense(source, 0, CompressedMatrix.Layout.ROW);
+        IntCompressedMatrix csc = csr.toLayout(CompressedMatrix.Layout.COLUMN);
+        System.out.println("nnz: " + csr.nnz() + ", get(2, 9): " + csr.get(2, 9) + ", get(2, 8): " + csc.get(2, 8));
+        System.out.println(Arrays.deepEquals(source, csc.toDense()));
+
+        int[] rowIndex = {2, 0, 2, 1, 0};
+        int[] colIndex = {1, 2, 1, 0, 0};
+        DoubleCompressedMatrix triplets = DoubleCompressedMatrix.fromTriplets(3, 3, rowIndex, colIndex,
+                new double[]{1.5, 2, 0.5, 4, 3}, CompressedMatrix.Layout.COLUMN);
+        // 重复位置(2, 1)的值相加
+        System.out.println(Arrays.deepToString(triplets.toDense()));
+
+        LongCompressedMatrix longs = LongCompressedMatrix.fromTriplets(3, 3, rowIndex, colIndex,
+                new long[]{1L << 40, 2, 3, 4, 5}, CompressedMatrix.Layout.ROW);
+        System.out.println(longs.get(2, 1) + " " + longs.toLayout(CompressedMatrix.Layout.COLUMN).get(2, 1));
+
+        // Matrix.compress的格式中重复的位置与Matrix.restore一致，以最后一个为准
+        Integer[][] compressed = {{3, 3, 3}, {2, 1, 5}, {0, 0, 1}, {2, 1, 7}};
+        IntCompressedMatrix fromCompressed = IntCompressedMatrix.fromCompressed(compressed, -1,
+                CompressedMatrix.Layout.ROW);
+        System.out.println(fromCompressed.get(2, 1) + " " + Matrix.restore(compressed, -1)[2][1]);
+    }
+}
@@ -0,0 +1,98 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 坐标格式（COO）的double稀疏矩阵，元素按行优先的顺序排列
+ * <p>
+ * 每个元素保存行号、列号和值，共16字节，没有行指针。元素个数远小于行数、大部分行为空时比按行压缩更省内存。
+ * 按下标取元素先二分查找行的范围，再在行内二分查找列号，O(log nnz)。
+ *
+ * @author Neptune
+ * @date 2020/7/14 9:30
+ */
+public final class CoordinateMatrix implements DoubleMatrix {
+    private final int rows;
+    private final int cols;
+    private final int[] rowIndex;
+    private final int[] colIndex;
+    private final double[] values;
+
+    CoordinateMatrix(int rows, int cols, int[] rowIndex, int[] colIndex, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowIndex = rowIndex;
+        this.colIndex = colIndex;
+        this.values = values;
+    }
+
+    /**
+     * 由压缩矩阵创建，与按行压缩的矩阵共用列号和值数组
+     *
+     * @param matrix 没有保存的元素为0的压缩矩阵
+     * @return CoordinateMatrix 坐标格式的矩阵
+     */
+    public static CoordinateMatrix fromCompressed(DoubleCompressedMatrix matrix) {
+        if (matrix.key != 0) {
+            throw new IllegalArgumentException("稀疏格式要求没有保存的元素为0");
+        }
+        DoubleCompressedMatrix csr = matrix.toLayout(CompressedMatrix.Layout.ROW);
+        int[] rowIndex = new int[csr.nnz()];
+        for (int i = 0; i < csr.rows; i++) {
+            Arrays.fill(rowIndex, csr.pointers[i], csr.pointers[i + 1], i);
+        }
+        return new CoordinateMatrix(csr.rows, csr.cols, rowIndex, csr.indices, csr.values);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public long storedCount() {
+        return values.length;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+        int from = lowerBound(i);
+        int to = lowerBound(i + 1);
+        int position = Arrays.binarySearch(colIndex, from, to, j);
+        return position < 0 ? 0 : values[position];
+    }
+
+    @Override
+    public void multiply(double[] x, double[] y) {
+        CompressedMatrix.checkVectors(rows, cols, x, y);
+        Arrays.fill(y, 0);
+        for (int k = 0; k < values.length; k++) {
+            y[rowIndex[k]] += values[k] * x[colIndex[k]];
+        }
+    }
+
+    /**
+     * 第一个行号不小于row的元素的位置
+     */
+    private int lowerBound(int row) {
+        int low = 0;
+        int high = rowIndex.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rowIndex[middle] < row) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
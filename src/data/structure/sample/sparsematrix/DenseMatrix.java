@@ -0,0 +1,127 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 按行优先顺序保存在一维double数组中的稠密矩阵
+ * <p>
+ * 每个元素8字节，没有下标，密度较高时比任何稀疏格式都省内存，矩阵乘向量是连续访问，也最快。
+ *
+ * @author Neptune
+ * @date 2020/7/14 9:30
+ */
+public final class DenseMatrix implements DoubleMatrix {
+    private final int rows;
+    private final int cols;
+    /**
+     * 第i行第j列的元素为data[i * cols + j]
+     */
+    private final double[] data;
+
+    DenseMatrix(int rows, int cols, double[] data) {
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    /**
+     * 复制二维数组
+     *
+     * @param matrix 矩阵，每行的元素个数相同
+     * @return DenseMatrix 稠密矩阵
+     */
+    public static DenseMatrix fromDense(double[][] matrix) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        double[] data = new double[checkSize(rows, cols)];
+        for (int i = 0; i < rows; i++) {
+            if (matrix[i].length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+            System.arraycopy(matrix[i], 0, data, i * cols, cols);
+        }
+        return new DenseMatrix(rows, cols, data);
+    }
+
+    /**
+     * 还原压缩矩阵，没有保存的元素为压缩矩阵的key
+     *
+     * @param matrix 压缩矩阵
+     * @return DenseMatrix 稠密矩阵
+     */
+    public static DenseMatrix fromCompressed(DoubleCompressedMatrix matrix) {
+        int rows = matrix.rows;
+        int cols = matrix.cols;
+        double[] data = new double[checkSize(rows, cols)];
+        if (matrix.key != 0) {
+            Arrays.fill(data, matrix.key);
+        }
+        boolean byRow = matrix.layout == CompressedMatrix.Layout.ROW;
+        int majorDim = matrix.majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = matrix.pointers[major]; k < matrix.pointers[major + 1]; k++) {
+                int minor = matrix.indices[k];
+                data[byRow ? major * cols + minor : minor * cols + major] = matrix.values[k];
+            }
+        }
+        return new DenseMatrix(rows, cols, data);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public long storedCount() {
+        return data.length;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+        return data[i * cols + j];
+    }
+
+    @Override
+    public void multiply(double[] x, double[] y) {
+        CompressedMatrix.checkVectors(rows, cols, x, y);
+        // 4个部分和互相独立，不必等上一次加法完成
+        int unrolled = cols & ~3;
+        for (int i = 0, offset = 0; i < rows; i++, offset += cols) {
+            double sum0 = 0;
+            double sum1 = 0;
+            double sum2 = 0;
+            double sum3 = 0;
+            int j = 0;
+            for (; j < unrolled; j += 4) {
+                sum0 += data[offset + j] * x[j];
+                sum1 += data[offset + j + 1] * x[j + 1];
+                sum2 += data[offset + j + 2] * x[j + 2];
+                sum3 += data[offset + j + 3] * x[j + 3];
+            }
+            for (; j < cols; j++) {
+                sum0 += data[offset + j] * x[j];
+            }
+            y[i] = (sum0 + sum1) + (sum2 + sum3);
+        }
+    }
+
+    private static int checkSize(int rows, int cols) {
+        long size = (long) rows * cols;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("矩阵" + rows + "x" + cols + "过大，不能保存为一维数组");
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,205 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 值为double的压缩稀疏矩阵
+ * <p>
+ * 压缩时用!=与key比较，-0.0与0.0视为相等，NaN总会被保存
+ *
+ * @author Neptune
+ * @date 2020/7/8 9:30
+ */
+public class DoubleCompressedMatrix extends CompressedMatrix implements DoubleMatrix {
+    /**
+     * 元素的值，与indices一一对应
+     */
+    final double[] values;
+    /**
+     * 没有保存的元素的值
+     */
+    final double key;
+
+    DoubleCompressedMatrix(int rows, int cols, Layout layout, int[] pointers, int[] indices, double[] values,
+                             double key) {
+        super(rows, cols, layout, pointers, indices);
+        this.values = values;
+        this.key = key;
+    }
+
+    /**
+     * 压缩二维数组，扫描两遍：第一遍统计每行（列）的元素个数，第二遍填充
+     *
+     * @param matrix 稀疏矩阵
+     * @param key    稀疏矩阵中非关键信息元素，不保存
+     * @param layout 压缩方式
+     * @return DoubleCompressedMatrix 压缩矩阵
+     */
+    public static DoubleCompressedMatrix fromDense(double[][] matrix, double key, Layout layout) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        for (double[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+        }
+        boolean byRow = layout == Layout.ROW;
+        int[] pointers = new int[(byRow ? rows : cols) + 1];
+        for (int i = 0; i < rows; i++) {
+            double[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    pointers[(byRow ? i : j) + 1]++;
+                }
+            }
+        }
+        int nnz = ParallelSparseMath.prefixSum(pointers, pointers.length - 1);
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        // 按行扫描，按列压缩时每列内的行号自然是升序的
+        int[] next = Arrays.copyOf(pointers, pointers.length - 1);
+        for (int i = 0; i < rows; i++) {
+            double[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    int position = next[byRow ? i : j]++;
+                    indices[position] = byRow ? j : i;
+                    values[position] = row[j];
+                }
+            }
+        }
+        return new DoubleCompressedMatrix(rows, cols, layout, pointers, indices, values, key);
+    }
+
+    /**
+     * 由三元组创建，三元组可以是任意顺序，同一位置出现多次时值相加，没有保存的元素为0
+     *
+     * @param rows     行数
+     * @param cols     列数
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     * @param values   每个元素的值
+     * @param layout   压缩方式
+     * @return DoubleCompressedMatrix 压缩矩阵
+     */
+    public static DoubleCompressedMatrix fromTriplets(int rows, int cols, int[] rowIndex, int[] colIndex,
+                                                      double[] values, Layout layout) {
+        Structure structure = sortTriplets(rows, cols, rowIndex, colIndex, values.length, layout);
+        int[] order = structure.order;
+        int[] target = mergeDuplicates(structure.pointers, structure.indices, layout == Layout.ROW ? rows : cols);
+        int nnz = structure.pointers[structure.pointers.length - 1];
+        double[] sorted = new double[nnz];
+        for (int k = 0; k < order.length; k++) {
+            sorted[target[k]] += values[order[k]];
+        }
+        return new DoubleCompressedMatrix(rows, cols, layout, structure.pointers,
+                Arrays.copyOf(structure.indices, nnz), sorted, 0);
+    }
+
+    /**
+     * 取第i行第j列的元素，O(log k)
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return double 元素的值，没有保存时为key
+     */
+    @Override
+    public double get(int i, int j) {
+        int position = find(i, j);
+        return position < 0 ? key : values[position];
+    }
+
+    @Override
+    public long storedCount() {
+        return nnz();
+    }
+
+    /**
+     * 计算y = A·x，结果写入y，要求没有保存的元素为0
+     * <p>
+     * 按行压缩时每行做一次点积；按列压缩时逐列把x[j]乘上该列的元素累加到y
+     *
+     * @param x 向量，长度为列数
+     * @param y 结果，长度为行数，不能与x是同一个数组
+     */
+    @Override
+    public void multiply(double[] x, double[] y) {
+        if (key != 0) {
+            throw new IllegalStateException("矩阵乘向量要求没有保存的元素为0");
+        }
+        checkVectors(rows, cols, x, y);
+        if (layout == Layout.ROW) {
+            for (int i = 0; i < rows; i++) {
+                double sum = 0;
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    sum += values[k] * x[indices[k]];
+                }
+                y[i] = sum;
+            }
+        } else {
+            Arrays.fill(y, 0);
+            for (int j = 0; j < cols; j++) {
+                double scale = x[j];
+                for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                    y[indices[k]] += values[k] * scale;
+                }
+            }
+        }
+    }
+
+    /**
+     * 没有保存的元素的值
+     *
+     * @return double 没有保存的元素的值
+     */
+    public double getKey() {
+        return key;
+    }
+
+    /**
+     * 转换为另一种压缩方式，O(nnz + 行数 + 列数)
+     *
+     * @param layout 压缩方式
+     * @return DoubleCompressedMatrix 压缩方式相同时返回自身
+     */
+    public DoubleCompressedMatrix toLayout(Layout layout) {
+        if (layout == this.layout) {
+            return this;
+        }
+        Structure structure = transposeStructure();
+        int[] order = structure.order;
+        double[] newValues = new double[order.length];
+        for (int k = 0; k < order.length; k++) {
+            newValues[k] = values[order[k]];
+        }
+        return new DoubleCompressedMatrix(rows, cols, layout, structure.pointers, structure.indices, newValues, key);
+    }
+
+    /**
+     * 还原为二维数组，没有保存的元素为key
+     *
+     * @return double[][] 稀疏矩阵
+     */
+    public double[][] toDense() {
+        double[][] result = new double[rows][cols];
+        if (key != 0) {
+            for (double[] row : result) {
+                Arrays.fill(row, key);
+            }
+        }
+        int majorDim = majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                if (layout == Layout.ROW) {
+                    result[major][indices[k]] = values[k];
+                } else {
+                    result[indices[k]][major] = values[k];
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package data.structure.sample.sparsematrix;
+
+/**
+ * double矩阵的读取与矩阵乘向量，由{@link MatrixFormatSelector}按密度选出的各种存储格式共同实现
+ * <p>
+ * 稀疏格式中没有保存的元素为0。
+ *
+ * @author Neptune
+ * @date 2020/7/14 9:30
+ */
+public interface DoubleMatrix {
+    int getRows();
+
+    int getCols();
+
+    /**
+     * 保存的元素个数，稠密矩阵为行数 * 列数，块稀疏矩阵包括块内补的0
+     *
+     * @return long 元素个数
+     */
+    long storedCount();
+
+    /**
+     * 取第i行第j列的元素
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return double 元素的值
+     */
+    double get(int i, int j);
+
+    /**
+     * 计算y = A·x，结果写入y
+     *
+     * @param x 向量，长度为列数
+     * @param y 结果，长度为行数，不能与x是同一个数组
+     */
+    void multiply(double[] x, double[] y);
+
+    /**
+     * 计算A·x
+     *
+     * @param x 向量，长度为列数
+     * @return double[] 长度为行数的结果
+     */
+    default double[] multiply(double[] x) {
+        double[] y = new double[getRows()];
+        multiply(x, y);
+        return y;
+    }
+}
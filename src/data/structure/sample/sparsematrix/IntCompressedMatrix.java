@@ -0,0 +1,223 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 值为int的压缩稀疏矩阵
+ *
+ * @author Neptune
+ * @date 2020/7/8 9:30
+ */
+public class IntCompressedMatrix extends CompressedMatrix {
+    /**
+     * 元素的值，与indices一一对应
+     */
+    final int[] values;
+    /**
+     * 没有保存的元素的值
+     */
+    final int key;
+
+    IntCompressedMatrix(int rows, int cols, Layout layout, int[] pointers, int[] indices, int[] values, int key) {
+        super(rows, cols, layout, pointers, indices);
+        this.values = values;
+        this.key = key;
+    }
+
+    /**
+     * 压缩二维数组，扫描两遍：第一遍统计每行（列）的元素个数，第二遍填充
+     *
+     * @param matrix 稀疏矩阵
+     * @param key    稀疏矩阵中非关键信息元素，不保存
+     * @param layout 压缩方式
+     * @return IntCompressedMatrix 压缩矩阵
+     */
+    public static IntCompressedMatrix fromDense(int[][] matrix, int key, Layout layout) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        for (int[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+        }
+        boolean byRow = layout == Layout.ROW;
+        int[] pointers = new int[(byRow ? rows : cols) + 1];
+        for (int i = 0; i < rows; i++) {
+            int[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    pointers[(byRow ? i : j) + 1]++;
+                }
+            }
+        }
+        int nnz = ParallelSparseMath.prefixSum(pointers, pointers.length - 1);
+        int[] indices = new int[nnz];
+        int[] values = new int[nnz];
+        // 按行扫描，按列压缩时每列内的行号自然是升序的
+        int[] next = Arrays.copyOf(pointers, pointers.length - 1);
+        for (int i = 0; i < rows; i++) {
+            int[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    int position = next[byRow ? i : j]++;
+                    indices[position] = byRow ? j : i;
+                    values[position] = row[j];
+                }
+            }
+        }
+        return new IntCompressedMatrix(rows, cols, layout, pointers, indices, values, key);
+    }
+
+    /**
+     * 由三元组创建，三元组可以是任意顺序，同一位置出现多次时值相加，没有保存的元素为0
+     *
+     * @param rows     行数
+     * @param cols     列数
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     * @param values   每个元素的值
+     * @param layout   压缩方式
+     * @return IntCompressedMatrix 压缩矩阵
+     */
+    public static IntCompressedMatrix fromTriplets(int rows, int cols, int[] rowIndex, int[] colIndex, int[] values,
+                                                   Layout layout) {
+        Structure structure = sortTriplets(rows, cols, rowIndex, colIndex, values.length, layout);
+        int[] order = structure.order;
+        int[] target = mergeDuplicates(structure.pointers, structure.indices, layout == Layout.ROW ? rows : cols);
+        int nnz = structure.pointers[structure.pointers.length - 1];
+        int[] sorted = new int[nnz];
+        for (int k = 0; k < order.length; k++) {
+            sorted[target[k]] += values[order[k]];
+        }
+        return new IntCompressedMatrix(rows, cols, layout, structure.pointers,
+                Arrays.copyOf(structure.indices, nnz), sorted, 0);
+    }
+
+    /**
+     * 由{@link Matrix#compress(Integer[][], Integer)}生成的压缩矩阵创建，没有保存的元素为key
+     * <p>
+     * 与{@link Matrix#restore(Integer[][], Integer)}一致，同一位置出现多次时以最后一个为准，不相加
+     *
+     * @param compressed 第一行为{行数, 列数, 元素个数}，之后每行为{行号, 列号, 值}
+     * @param key        没有保存的元素的值
+     * @param layout     压缩方式
+     * @return IntCompressedMatrix 压缩矩阵
+     */
+    public static IntCompressedMatrix fromCompressed(Integer[][] compressed, int key, Layout layout) {
+        if (null == compressed || compressed.length == 0) {
+            throw new IllegalArgumentException("压缩矩阵不能为空");
+        }
+        int count = compressed[0][2];
+        if (count != compressed.length - 1) {
+            throw new IllegalArgumentException("请输入正确的压缩矩阵");
+        }
+        int[] rowIndex = new int[count];
+        int[] colIndex = new int[count];
+        int[] values = new int[count];
+        for (int k = 0; k < count; k++) {
+            Integer[] triplet = compressed[k + 1];
+            rowIndex[k] = triplet[0];
+            colIndex[k] = triplet[1];
+            values[k] = triplet[2];
+        }
+        int rows = compressed[0][0];
+        int cols = compressed[0][1];
+        Structure structure = sortTriplets(rows, cols, rowIndex, colIndex, count, layout);
+        int[] order = structure.order;
+        int[] target = mergeDuplicates(structure.pointers, structure.indices, layout == Layout.ROW ? rows : cols);
+        int nnz = structure.pointers[structure.pointers.length - 1];
+        int[] sorted = new int[nnz];
+        // 排序是稳定的，重复的位置按原来的顺序相邻，后面的值覆盖前面的
+        for (int k = 0; k < order.length; k++) {
+            sorted[target[k]] = values[order[k]];
+        }
+        return new IntCompressedMatrix(rows, cols, layout, structure.pointers,
+                Arrays.copyOf(structure.indices, nnz), sorted, key);
+    }
+
+    /**
+     * 取第i行第j列的元素，O(log k)
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return int 元素的值，没有保存时为key
+     */
+    public int get(int i, int j) {
+        int position = find(i, j);
+        return position < 0 ? key : values[position];
+    }
+
+    /**
+     * 没有保存的元素的值
+     *
+     * @return int 没有保存的元素的值
+     */
+    public int getKey() {
+        return key;
+    }
+
+    /**
+     * 转换为另一种压缩方式，O(nnz + 行数 + 列数)
+     *
+     * @param layout 压缩方式
+     * @return IntCompressedMatrix 压缩方式相同时返回自身
+     */
+    public IntCompressedMatrix toLayout(Layout layout) {
+        if (layout == this.layout) {
+            return this;
+        }
+        Structure structure = transposeStructure();
+        int[] order = structure.order;
+        int[] newValues = new int[order.length];
+        for (int k = 0; k < order.length; k++) {
+            newValues[k] = values[order[k]];
+        }
+        return new IntCompressedMatrix(rows, cols, layout, structure.pointers, structure.indices, newValues, key);
+    }
+
+    /**
+     * 还原为二维数组，没有保存的元素为key
+     *
+     * @return int[][] 稀疏矩阵
+     */
+    public int[][] toDense() {
+        int[][] result = new int[rows][cols];
+        if (key != 0) {
+            for (int[] row : result) {
+                Arrays.fill(row, key);
+            }
+        }
+        int majorDim = majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                if (layout == Layout.ROW) {
+                    result[major][indices[k]] = values[k];
+                } else {
+                    result[indices[k]][major] = values[k];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 转换为{@link Matrix#compress(Integer[][], Integer)}的格式，按行优先的顺序排列
+     *
+     * @return Integer[][] 第一行为{行数, 列数, 元素个数}，之后每行为{行号, 列号, 值}
+     */
+    public Integer[][] toCompressed() {
+        IntCompressedMatrix csr = toLayout(Layout.ROW);
+        int nnz = nnz();
+        Integer[][] result = new Integer[nnz + 1][];
+        result[0] = new Integer[]{rows, cols, nnz};
+        for (int i = 0; i < rows; i++) {
+            for (int k = csr.pointers[i]; k < csr.pointers[i + 1]; k++) {
+                result[k + 1] = new Integer[]{i, csr.indices[k], csr.values[k]};
+            }
+        }
+        return result;
+    }
+}
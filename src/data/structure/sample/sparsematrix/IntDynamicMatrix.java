@@ -0,0 +1,406 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 可修改的int稀疏矩阵（DOK，dictionary of keys）
+ * <p>
+ * 元素保存在开放寻址的哈希表中，键是把行号、列号拼成的long，键和值分别保存在long[]和int[]中，不装箱。
+ * 冲突时线性探测，删除时把后面的元素往前移（backward shift），不留墓碑，所以设置、清除、读取单个元素都是O(1)。
+ * <p>
+ * 写多的阶段用这个类逐个或批量修改，读多的阶段用{@link #freeze()}转换为{@link IntCompressedMatrix}，
+ * 转换用计数排序，O(nnz + 行数 + 列数)；需要再次修改时用{@link #from(IntCompressedMatrix)}转换回来。
+ * 没有保存的元素为key，设置为key相当于清除。这个类不是线程安全的。
+ *
+ * @author Neptune
+ * @date 2020/7/13 9:40
+ */
+public class IntDynamicMatrix {
+    private static final long EMPTY = -1L;
+    private static final int MIN_CAPACITY = 16;
+    /**
+     * 元素个数达到容量的这个比例时扩容，线性探测在装载因子较低时探测长度很短
+     */
+    private static final double LOAD_FACTOR = 0.6;
+
+    private final int rows;
+    private final int cols;
+    private final int key;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * @param rows 行数
+     * @param cols 列数
+     * @param key  没有保存的元素的值
+     */
+    public IntDynamicMatrix(int rows, int cols, int key) {
+        this(rows, cols, key, 0);
+    }
+
+    /**
+     * @param rows         行数
+     * @param cols         列数
+     * @param key          没有保存的元素的值
+     * @param expectedSize 预计保存的元素个数，避免反复扩容
+     */
+    public IntDynamicMatrix(int rows, int cols, int key, int expectedSize) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("行数、列数不能为负数");
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("预计元素个数不能为负数");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.key = key;
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * 由压缩矩阵创建，没有保存的元素的值与压缩矩阵相同
+     *
+     * @param matrix 压缩矩阵
+     * @return IntDynamicMatrix 可修改的矩阵
+     */
+    public static IntDynamicMatrix from(IntCompressedMatrix matrix) {
+        IntDynamicMatrix result = new IntDynamicMatrix(matrix.rows, matrix.cols, matrix.key, matrix.nnz());
+        boolean byRow = matrix.layout == CompressedMatrix.Layout.ROW;
+        int majorDim = matrix.majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = matrix.pointers[major]; k < matrix.pointers[major + 1]; k++) {
+                int minor = matrix.indices[k];
+                result.put(byRow ? pack(major, minor) : pack(minor, major), matrix.values[k]);
+            }
+        }
+        return result;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    /**
+     * 保存的元素个数
+     *
+     * @return int 元素个数
+     */
+    public int nnz() {
+        return size;
+    }
+
+    /**
+     * 取第i行第j列的元素
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return int 元素的值，没有保存时为key
+     */
+    public int get(int i, int j) {
+        checkIndex(i, j);
+        int slot = find(pack(i, j));
+        return slot < 0 ? key : values[slot];
+    }
+
+    /**
+     * 设置第i行第j列的元素，值为key时清除
+     *
+     * @param i     行号
+     * @param j     列号
+     * @param value 新的值
+     * @return int 原来的值，没有保存时为key
+     */
+    public int set(int i, int j, int value) {
+        checkIndex(i, j);
+        long packed = pack(i, j);
+        return value == key ? remove(packed) : put(packed, value);
+    }
+
+    /**
+     * 第i行第j列的元素加上delta，结果为key时清除
+     *
+     * @param i     行号
+     * @param j     列号
+     * @param delta 增量
+     * @return int 新的值
+     */
+    public int add(int i, int j, int delta) {
+        checkIndex(i, j);
+        long packed = pack(i, j);
+        int slot = find(packed);
+        int value = (slot < 0 ? key : values[slot]) + delta;
+        if (value == key) {
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        } else if (slot >= 0) {
+            values[slot] = value;
+        } else {
+            put(packed, value);
+        }
+        return value;
+    }
+
+    /**
+     * 清除第i行第j列的元素
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return int 原来的值，没有保存时为key
+     */
+    public int clear(int i, int j) {
+        checkIndex(i, j);
+        return remove(pack(i, j));
+    }
+
+    /**
+     * 批量设置，按顺序执行，同一位置出现多次时以最后一次为准，值为key时清除
+     * <p>
+     * 先校验所有下标并一次性扩容，下标越界时不会修改矩阵
+     *
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     * @param values   每个元素的新值
+     */
+    public void setAll(int[] rowIndex, int[] colIndex, int[] values) {
+        checkBatch(rowIndex, colIndex, values);
+        for (int k = 0; k < rowIndex.length; k++) {
+            long packed = pack(rowIndex[k], colIndex[k]);
+            if (values[k] == key) {
+                remove(packed);
+            } else {
+                put(packed, values[k]);
+            }
+        }
+    }
+
+    /**
+     * 批量累加，按顺序执行，同一位置出现多次时增量相加，结果为key时清除
+     * <p>
+     * 先校验所有下标并一次性扩容，下标越界时不会修改矩阵
+     *
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     * @param deltas   每个元素的增量
+     */
+    public void addAll(int[] rowIndex, int[] colIndex, int[] deltas) {
+        checkBatch(rowIndex, colIndex, deltas);
+        for (int k = 0; k < rowIndex.length; k++) {
+            add(rowIndex[k], colIndex[k], deltas[k]);
+        }
+    }
+
+    /**
+     * 批量清除
+     *
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     */
+    public void clearAll(int[] rowIndex, int[] colIndex) {
+        if (rowIndex.length != colIndex.length) {
+            throw new IllegalArgumentException("行号、列号的个数必须相同");
+        }
+        for (int k = 0; k < rowIndex.length; k++) {
+            checkIndex(rowIndex[k], colIndex[k]);
+        }
+        for (int k = 0; k < rowIndex.length; k++) {
+            remove(pack(rowIndex[k], colIndex[k]));
+        }
+    }
+
+    /**
+     * 转换为按行压缩的矩阵，计数排序，O(nnz + 行数 + 列数)，之后仍然可以继续修改这个矩阵
+     *
+     * @return IntCompressedMatrix 按行压缩的矩阵，没有保存的元素为key
+     */
+    public IntCompressedMatrix freeze() {
+        int[] rowIndex = new int[size];
+        int[] colIndex = new int[size];
+        int[] entries = new int[size];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            long packed = keys[slot];
+            if (packed != EMPTY) {
+                rowIndex[n] = (int) (packed >>> 32);
+                colIndex[n] = (int) packed;
+                entries[n++] = values[slot];
+            }
+        }
+        CompressedMatrix.Structure structure = CompressedMatrix.sortTriplets(rows, cols, rowIndex, colIndex, size,
+                CompressedMatrix.Layout.ROW);
+        int[] order = structure.order;
+        int[] sorted = new int[size];
+        for (int k = 0; k < size; k++) {
+            sorted[k] = entries[order[k]];
+        }
+        return new IntCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, structure.pointers,
+                structure.indices, sorted, key);
+    }
+
+    private static long pack(int i, int j) {
+        return ((long) i << 32) | j;
+    }
+
+    private int slot(long packed) {
+        // Fibonacci散列，行号和列号的高位都能参与
+        return (int) ((packed * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private int find(long packed) {
+        for (int slot = slot(packed); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == packed) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private int put(long packed, int value) {
+        int slot = slot(packed);
+        for (long current; (current = keys[slot]) != EMPTY; slot = (slot + 1) & mask) {
+            if (current == packed) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = packed;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return key;
+    }
+
+    private int remove(long packed) {
+        int slot = find(packed);
+        if (slot < 0) {
+            return key;
+        }
+        int previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    /**
+     * 删除slot处的元素，把同一探测链上后面的元素往前移，填补空位
+     */
+    private void removeAt(int slot) {
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = slot(keys[next]);
+            // 从理想位置到next的距离不小于从空位到next的距离时，元素可以移到空位
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    private void checkBatch(int[] rowIndex, int[] colIndex, int[] values) {
+        if (rowIndex.length != colIndex.length || rowIndex.length != values.length) {
+            throw new IllegalArgumentException("行号、列号、值的个数必须相同");
+        }
+        for (int k = 0; k < rowIndex.length; k++) {
+            checkIndex(rowIndex[k], colIndex[k]);
+        }
+        int capacity = capacityFor(size + rowIndex.length);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    private void checkIndex(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1;
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("元素个数过多：" + expectedSize);
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int k = 0; k < oldKeys.length; k++) {
+            long packed = oldKeys[k];
+            if (packed != EMPTY) {
+                int slot = slot(packed);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = packed;
+                values[slot] = oldValues[k];
+            }
+        }
+    }
+}
+
+class TestIntDynamicMatrix {
+    public static void main(String[] args) {
+        int rows = 100000;
+        int cols = 1000;
+        int updates = 5000000;
+        Random random = new Random();
+        IntDynamicMatrix matrix = new IntDynamicMatrix(rows, cols, 0);
+        long start = System.nanoTime();
+        for (int u = 0; u < updates; u++) {
+            int i = random.nextInt(rows);
+            int j = random.nextInt(cols);
+            if (random.nextInt(4) == 0) {
+                matrix.clear(i, j);
+            } else {
+                matrix.set(i, j, random.nextInt(100));
+            }
+        }
+        System.out.println(updates + " updates: " + (System.nanoTime() - start) / 1000000 + "ms, nnz: "
+                + matrix.nnz());
+        start = System.nanoTime();
+        IntCompressedMatrix frozen = matrix.freeze();
+        System.out.println("freeze: " + (System.nanoTime() - start) / 1000000 + "ms");
+        boolean same = frozen.nnz() == matrix.nnz();
+        for (int k = 0; k < 100000; k++) {
+            int i = random.nextInt(rows);
+            int j = random.nextInt(cols);
+            same &= frozen.get(i, j) == matrix.get(i, j);
+        }
+        System.out.println(same);
+
+        IntDynamicMatrix small = new IntDynamicMatrix(3, 3, -1);
+        small.setAll(new int[]{0, 1, 2, 1}, new int[]{0, 1, 2, 1}, new int[]{1, 2, 3, 4});
+        small.addAll(new int[]{0, 2}, new int[]{0, 0}, new int[]{-2, 5});
+        System.out.println(Arrays.deepToString(small.freeze().toDense()) + ", nnz: " + small.nnz());
+    }
+}
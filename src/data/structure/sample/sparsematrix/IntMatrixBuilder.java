@@ -0,0 +1,337 @@
+package data.structure.sample.sparsematrix;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * 按行流式构建int压缩矩阵（CSR），不需要先在内存中生成稠密矩阵
+ * <p>
+ * 数据可以逐行传入，也可以按行优先的顺序逐个元素传入（{@link #add(int)}、{@link #addAll(IntStream)}），
+ * 或者从文本文件、二进制文件中读取。每传入一个元素只检查它是否等于key，不等于key时追加到按需增长的数组中，
+ * 内存只与保存的元素个数和行数成正比。
+ * <p>
+ * 与{@link Matrix#compress(Integer[][], Integer)}一样要求每行的元素个数相同，
+ * 列数可以在创建时指定，也可以由第一行决定。
+ *
+ * @author Neptune
+ * @date 2020/7/9 14:10
+ */
+public class IntMatrixBuilder {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int READ_BUFFER = 64 << 10;
+
+    /**
+     * 稀疏矩阵中非关键信息元素，不保存
+     */
+    private final int key;
+    /**
+     * 列数，-1表示还没有确定
+     */
+    private int cols;
+    private int rows;
+    private int nnz;
+    private int[] pointers = new int[INITIAL_CAPACITY];
+    private int[] indices = new int[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    /**
+     * 逐个元素传入时，当前行已经传入的元素个数
+     */
+    private int column;
+
+    /**
+     * 创建构建器，列数由第一行决定
+     *
+     * @param key 稀疏矩阵中非关键信息元素，不保存
+     */
+    public IntMatrixBuilder(int key) {
+        this.key = key;
+        this.cols = -1;
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param cols 列数
+     * @param key  稀疏矩阵中非关键信息元素，不保存
+     */
+    public IntMatrixBuilder(int cols, int key) {
+        if (cols < 0) {
+            throw new IllegalArgumentException("列数不能为负数");
+        }
+        this.key = key;
+        this.cols = cols;
+    }
+
+    /**
+     * 传入一行
+     *
+     * @param row 一行的元素
+     * @return IntMatrixBuilder 构建器自身
+     */
+    public IntMatrixBuilder addRow(int[] row) {
+        if (null == row) {
+            throw new IllegalArgumentException("行不能为null");
+        }
+        return addRow(row, row.length);
+    }
+
+    private IntMatrixBuilder addRow(int[] row, int length) {
+        if (column != 0) {
+            throw new IllegalStateException("上一行还没有传入完整");
+        }
+        if (cols < 0) {
+            cols = length;
+        } else if (length != cols) {
+            throw new IllegalArgumentException("请输入合法的稀疏矩阵：第" + rows + "行有" + length + "个元素，应为" + cols);
+        }
+        for (int j = 0; j < length; j++) {
+            if (row[j] != key) {
+                append(j, row[j]);
+            }
+        }
+        endRow();
+        return this;
+    }
+
+    /**
+     * 按行优先的顺序传入一个元素，需要已经确定列数
+     *
+     * @param value 元素的值
+     * @return IntMatrixBuilder 构建器自身
+     */
+    public IntMatrixBuilder add(int value) {
+        if (cols <= 0) {
+            throw new IllegalStateException("逐个传入元素前需要确定列数");
+        }
+        if (value != key) {
+            append(column, value);
+        }
+        if (++column == cols) {
+            column = 0;
+            endRow();
+        }
+        return this;
+    }
+
+    /**
+     * 按行优先的顺序传入所有元素，需要已经确定列数
+     *
+     * @param stream 元素
+     * @return IntMatrixBuilder 构建器自身
+     */
+    public IntMatrixBuilder addAll(IntStream stream) {
+        stream.sequential().forEachOrdered(this::add);
+        return this;
+    }
+
+    /**
+     * 读取文本格式的稠密矩阵：每行一个矩阵行，元素之间用空格、制表符或逗号分隔，空行会被忽略
+     *
+     * @param reader 输入，不会被关闭
+     * @return IntMatrixBuilder 构建器自身
+     * @throws IOException 读取失败
+     */
+    public IntMatrixBuilder readText(Reader reader) throws IOException {
+        char[] buffer = new char[READ_BUFFER];
+        int[] row = new int[Math.max(cols, INITIAL_CAPACITY)];
+        int length = 0;
+        long number = 0;
+        boolean negative = false;
+        boolean inNumber = false;
+        int read;
+        while ((read = reader.read(buffer)) > 0) {
+            for (int p = 0; p < read; p++) {
+                char c = buffer[p];
+                if (c >= '0' && c <= '9') {
+                    number = number * 10 + (c - '0');
+                    if (number > (long) Integer.MAX_VALUE + 1) {
+                        throw new IllegalArgumentException("第" + rows + "行的数值超出int范围");
+                    }
+                    inNumber = true;
+                } else if (c == '-' && !inNumber && !negative) {
+                    negative = true;
+                } else if (c == ' ' || c == '\t' || c == ',' || c == '\r' || c == '\n') {
+                    if (inNumber) {
+                        if (length == row.length) {
+                            row = Arrays.copyOf(row, length + (length >> 1));
+                        }
+                        row[length++] = toInt(number, negative);
+                    } else if (negative) {
+                        throw new IllegalArgumentException("第" + rows + "行有多余的负号");
+                    }
+                    number = 0;
+                    negative = false;
+                    inNumber = false;
+                    if (c == '\n' && length > 0) {
+                        addRow(row, length);
+                        length = 0;
+                    }
+                } else {
+                    throw new IllegalArgumentException("第" + rows + "行有非法字符'" + c + "'");
+                }
+            }
+        }
+        if (inNumber) {
+            if (length == row.length) {
+                row = Arrays.copyOf(row, length + 1);
+            }
+            row[length++] = toInt(number, negative);
+        } else if (negative) {
+            throw new IllegalArgumentException("第" + rows + "行有多余的负号");
+        }
+        if (length > 0) {
+            addRow(row, length);
+        }
+        return this;
+    }
+
+    private int toInt(long number, boolean negative) {
+        long value = negative ? -number : number;
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("第" + rows + "行的数值超出int范围");
+        }
+        return (int) value;
+    }
+
+    /**
+     * 读取二进制格式的稠密矩阵：按行优先的顺序排列的大端int，需要已经确定列数
+     *
+     * @param input 输入，不会被关闭
+     * @return IntMatrixBuilder 构建器自身
+     * @throws IOException 读取失败
+     */
+    public IntMatrixBuilder readBinary(InputStream input) throws IOException {
+        if (column != 0) {
+            throw new IllegalStateException("上一行还没有传入完整");
+        }
+        InputStream in = input instanceof BufferedInputStream ? input : new BufferedInputStream(input, READ_BUFFER);
+        byte[] bytes = new byte[READ_BUFFER];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int filled = 0;
+        int read;
+        while ((read = in.read(bytes, filled, bytes.length - filled)) > 0) {
+            filled += read;
+            int whole = filled & ~3;
+            for (int p = 0; p < whole; p += Integer.BYTES) {
+                add(buffer.getInt(p));
+            }
+            // 不足4字节的部分留到下一次
+            System.arraycopy(bytes, whole, bytes, 0, filled - whole);
+            filled -= whole;
+        }
+        if (filled != 0) {
+            throw new IllegalArgumentException("文件长度不是4的整数倍");
+        }
+        if (column != 0) {
+            throw new IllegalArgumentException("最后一行不完整");
+        }
+        return this;
+    }
+
+    /**
+     * 已经传入的完整行数
+     *
+     * @return int 行数
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * 已经保存的元素个数
+     *
+     * @return int 元素个数
+     */
+    public int nnz() {
+        return nnz;
+    }
+
+    /**
+     * 用已经传入的完整行生成压缩矩阵，之后还可以继续传入
+     *
+     * @return IntCompressedMatrix 按行压缩的矩阵
+     */
+    public IntCompressedMatrix build() {
+        if (column != 0) {
+            throw new IllegalStateException("最后一行不完整");
+        }
+        int size = pointers[rows];
+        return new IntCompressedMatrix(rows, Math.max(cols, 0), CompressedMatrix.Layout.ROW,
+                Arrays.copyOf(pointers, rows + 1), Arrays.copyOf(indices, size), Arrays.copyOf(values, size), key);
+    }
+
+    private void append(int col, int value) {
+        if (nnz == indices.length) {
+            int capacity = nnz + (nnz >> 1);
+            indices = Arrays.copyOf(indices, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        indices[nnz] = col;
+        values[nnz] = value;
+        nnz++;
+    }
+
+    private void endRow() {
+        if (rows + 1 == pointers.length) {
+            pointers = Arrays.copyOf(pointers, pointers.length + (pointers.length >> 1));
+        }
+        pointers[++rows] = nnz;
+    }
+}
+
+class TestIntMatrixBuilder {
+    public static void main(String[] args) throws IOException {
+        int rows = 300;
+        int cols = 200;
+        Random random = new Random();
+        int[][] dense = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                dense[i][j] = random.nextInt(50) == 0 ? random.nextInt(2000) - 1000 : 0;
+            }
+        }
+        IntCompressedMatrix expected = IntCompressedMatrix.fromDense(dense, 0, CompressedMatrix.Layout.ROW);
+
+        IntMatrixBuilder byRow = new IntMatrixBuilder(0);
+        for (int[] row : dense) {
+            byRow.addRow(row);
+        }
+        System.out.println(Arrays.deepEquals(dense, byRow.build().toDense()));
+
+        IntMatrixBuilder byStream = new IntMatrixBuilder(cols, 0)
+                .addAll(Arrays.stream(dense).flatMapToInt(Arrays::stream));
+        System.out.println(Arrays.deepEquals(dense, byStream.build().toDense()));
+
+        StringBuilder text = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int[] row : dense) {
+            for (int j = 0; j < cols; j++) {
+                text.append(row[j]).append(j == cols - 1 ? "\n" : ",");
+                out.writeInt(row[j]);
+            }
+        }
+        IntCompressedMatrix fromText = new IntMatrixBuilder(0).readText(new StringReader(text.toString())).build();
+        System.out.println(Arrays.deepEquals(dense, fromText.toDense()));
+        IntCompressedMatrix fromBinary = new IntMatrixBuilder(cols, 0)
+                .readBinary(new ByteArrayInputStream(bytes.toByteArray())).build();
+        System.out.println(Arrays.deepEquals(dense, fromBinary.toDense()) + ", nnz: " + fromBinary.nnz()
+                + "/" + expected.nnz());
+
+        try {
+            new IntMatrixBuilder(0).readText(new StringReader("1 0 0\n0 2\n"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+
+/**
+ * 值为long的压缩稀疏矩阵
+ *
+ * @author Neptune
+ * @date 2020/7/8 9:30
+ */
+public class LongCompressedMatrix extends CompressedMatrix {
+    /**
+     * 元素的值，与indices一一对应
+     */
+    final long[] values;
+    /**
+     * 没有保存的元素的值
+     */
+    final long key;
+
+    LongCompressedMatrix(int rows, int cols, Layout layout, int[] pointers, int[] indices, long[] values,
+                           long key) {
+        super(rows, cols, layout, pointers, indices);
+        this.values = values;
+        this.key = key;
+    }
+
+    /**
+     * 压缩二维数组，扫描两遍：第一遍统计每行（列）的元素个数，第二遍填充
+     *
+     * @param matrix 稀疏矩阵
+     * @param key    稀疏矩阵中非关键信息元素，不保存
+     * @param layout 压缩方式
+     * @return LongCompressedMatrix 压缩矩阵
+     */
+    public static LongCompressedMatrix fromDense(long[][] matrix, long key, Layout layout) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        for (long[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+        }
+        boolean byRow = layout == Layout.ROW;
+        int[] pointers = new int[(byRow ? rows : cols) + 1];
+        for (int i = 0; i < rows; i++) {
+            long[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    pointers[(byRow ? i : j) + 1]++;
+                }
+            }
+        }
+        int nnz = ParallelSparseMath.prefixSum(pointers, pointers.length - 1);
+        int[] indices = new int[nnz];
+        long[] values = new long[nnz];
+        // 按行扫描，按列压缩时每列内的行号自然是升序的
+        int[] next = Arrays.copyOf(pointers, pointers.length - 1);
+        for (int i = 0; i < rows; i++) {
+            long[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != key) {
+                    int position = next[byRow ? i : j]++;
+                    indices[position] = byRow ? j : i;
+                    values[position] = row[j];
+                }
+            }
+        }
+        return new LongCompressedMatrix(rows, cols, layout, pointers, indices, values, key);
+    }
+
+    /**
+     * 由三元组创建，三元组可以是任意顺序，同一位置出现多次时值相加，没有保存的元素为0
+     *
+     * @param rows     行数
+     * @param cols     列数
+     * @param rowIndex 每个元素的行号
+     * @param colIndex 每个元素的列号
+     * @param values   每个元素的值
+     * @param layout   压缩方式
+     * @return LongCompressedMatrix 压缩矩阵
+     */
+    public static LongCompressedMatrix fromTriplets(int rows, int cols, int[] rowIndex, int[] colIndex,
+                                                    long[] values, Layout layout) {
+        Structure structure = sortTriplets(rows, cols, rowIndex, colIndex, values.length, layout);
+        int[] order = structure.order;
+        int[] target = mergeDuplicates(structure.pointers, structure.indices, layout == Layout.ROW ? rows : cols);
+        int nnz = structure.pointers[structure.pointers.length - 1];
+        long[] sorted = new long[nnz];
+        for (int k = 0; k < order.length; k++) {
+            sorted[target[k]] += values[order[k]];
+        }
+        return new LongCompressedMatrix(rows, cols, layout, structure.pointers,
+                Arrays.copyOf(structure.indices, nnz), sorted, 0);
+    }
+
+    /**
+     * 取第i行第j列的元素，O(log k)
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return long 元素的值，没有保存时为key
+     */
+    public long get(int i, int j) {
+        int position = find(i, j);
+        return position < 0 ? key : values[position];
+    }
+
+    /**
+     * 没有保存的元素的值
+     *
+     * @return long 没有保存的元素的值
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * 转换为另一种压缩方式，O(nnz + 行数 + 列数)
+     *
+     * @param layout 压缩方式
+     * @return LongCompressedMatrix 压缩方式相同时返回自身
+     */
+    public LongCompressedMatrix toLayout(Layout layout) {
+        if (layout == this.layout) {
+            return this;
+        }
+        Structure structure = transposeStructure();
+        int[] order = structure.order;
+        long[] newValues = new long[order.length];
+        for (int k = 0; k < order.length; k++) {
+            newValues[k] = values[order[k]];
+        }
+        return new LongCompressedMatrix(rows, cols, layout, structure.pointers, structure.indices, newValues, key);
+    }
+
+    /**
+     * 还原为二维数组，没有保存的元素为key
+     *
+     * @return long[][] 稀疏矩阵
+     */
+    public long[][] toDense() {
+        long[][] result = new long[rows][cols];
+        if (key != 0) {
+            for (long[] row : result) {
+                Arrays.fill(row, key);
+            }
+        }
+        int majorDim = majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                if (layout == Layout.ROW) {
+                    result[major][indices[k]] = values[k];
+                } else {
+                    result[indices[k]][major] = values[k];
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+package data.structure.sample.sparsematrix;
+
+import java.io.IOException;
+
+/**
+ * 由{@link MatrixFile#map(java.nio.file.Path)}映射的只读压缩矩阵
+ * <p>
+ * 指针、下标、值都直接从映射的文件中读取，不占用堆内存，按下标取元素与{@link CompressedMatrix}一样是二分查找，O(log k)。
+ * 需要频繁随机访问或者修改时可以用{@link #load()}复制到堆中。
+ * <p>
+ * 映射时只检查文件头和指针数组的首尾，不读取整个文件。文件中间的指针损坏时，取到这一行（列）的元素会抛出{@link IllegalStateException}；
+ * 下标损坏时查找结果不确定。{@link #load()}会完整检查指针和下标。
+ *
+ * @author Neptune
+ * @date 2020/7/11 9:50
+ */
+public final class MappedMatrix {
+    private final int rows;
+    private final int cols;
+    private final CompressedMatrix.Layout layout;
+    private final MatrixFile.ValueType valueType;
+    private final int nnz;
+    /**
+     * 没有保存的元素的值，int按符号扩展，double为原始位模式
+     */
+    private final long keyBits;
+    private final MappedSection pointers;
+    private final MappedSection indices;
+    private final MappedSection values;
+
+    MappedMatrix(int rows, int cols, CompressedMatrix.Layout layout, MatrixFile.ValueType valueType, int nnz,
+                 long keyBits, MappedSection pointers, MappedSection indices, MappedSection values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.layout = layout;
+        this.valueType = valueType;
+        this.nnz = nnz;
+        this.keyBits = keyBits;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public CompressedMatrix.Layout getLayout() {
+        return layout;
+    }
+
+    public MatrixFile.ValueType getValueType() {
+        return valueType;
+    }
+
+    /**
+     * 保存的元素个数
+     *
+     * @return int 元素个数
+     */
+    public int nnz() {
+        return nnz;
+    }
+
+    /**
+     * 取第i行第j列的int元素，值类型需要为int
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return int 元素的值，没有保存时为key
+     */
+    public int getInt(int i, int j) {
+        if (valueType != MatrixFile.ValueType.INT) {
+            throw new IllegalStateException("值类型为" + valueType + "，不能按int读取");
+        }
+        int position = find(i, j);
+        return position < 0 ? (int) keyBits : values.getInt(position);
+    }
+
+    /**
+     * 取第i行第j列的元素，值类型需要为int或long
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return long 元素的值，没有保存时为key
+     */
+    public long getLong(int i, int j) {
+        if (valueType == MatrixFile.ValueType.DOUBLE) {
+            throw new IllegalStateException("值类型为" + valueType + "，不能按long读取");
+        }
+        int position = find(i, j);
+        if (position < 0) {
+            return keyBits;
+        }
+        return valueType == MatrixFile.ValueType.INT ? values.getInt(position) : values.getLong(position);
+    }
+
+    /**
+     * 取第i行第j列的元素，任意值类型
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return double 元素的值，没有保存时为key
+     */
+    public double getDouble(int i, int j) {
+        if (valueType != MatrixFile.ValueType.DOUBLE) {
+            return getLong(i, j);
+        }
+        int position = find(i, j);
+        return position < 0 ? Double.longBitsToDouble(keyBits) : values.getDouble(position);
+    }
+
+    /**
+     * 复制到堆中，返回与值类型对应的{@link IntCompressedMatrix}、{@link LongCompressedMatrix}或{@link DoubleCompressedMatrix}
+     *
+     * @return CompressedMatrix 压缩矩阵
+     * @throws IOException 指针不是从0单调不减到nnz，或者下标超出范围、在一行（列）内不是严格递增
+     */
+    public CompressedMatrix load() throws IOException {
+        int majorDim = layout == CompressedMatrix.Layout.ROW ? rows : cols;
+        int minorDim = layout == CompressedMatrix.Layout.ROW ? cols : rows;
+        int[] heapPointers = pointers.toInts(majorDim + 1);
+        int[] heapIndices = indices.toInts(nnz);
+        if (heapPointers[0] != 0 || heapPointers[majorDim] != nnz) {
+            throw new IOException("指针数组损坏");
+        }
+        for (int major = 0; major < majorDim; major++) {
+            int from = heapPointers[major];
+            int to = heapPointers[major + 1];
+            // 第一个指针为0，每个指针都不小于前一个并且不超过nnz，所有指针都在[0, nnz]内
+            if (from > to || to > nnz) {
+                throw new IOException("指针数组损坏：第" + (major + 1) + "个指针不正确");
+            }
+            for (int k = from; k < to; k++) {
+                int index = heapIndices[k];
+                if (index < 0 || index >= minorDim || (k > from && index <= heapIndices[k - 1])) {
+                    throw new IOException("下标数组损坏：位置" + k);
+                }
+            }
+        }
+        switch (valueType) {
+            case INT:
+                return new IntCompressedMatrix(rows, cols, layout, heapPointers, heapIndices, values.toInts(nnz),
+                        (int) keyBits);
+            case LONG:
+                return new LongCompressedMatrix(rows, cols, layout, heapPointers, heapIndices, values.toLongs(nnz),
+                        keyBits);
+            default:
+                return new DoubleCompressedMatrix(rows, cols, layout, heapPointers, heapIndices,
+                        values.toDoubles(nnz), Double.longBitsToDouble(keyBits));
+        }
+    }
+
+    /**
+     * 查找第i行第j列的元素在值数组中的位置
+     *
+     * @return int 元素的位置，没有保存时返回-1
+     */
+    private int find(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+        int major = layout == CompressedMatrix.Layout.ROW ? i : j;
+        int minor = layout == CompressedMatrix.Layout.ROW ? j : i;
+        int from = pointers.getInt(major);
+        int to = pointers.getInt(major + 1);
+        // 映射时没有检查全部指针，损坏的指针在这里发现，不让映射缓冲区抛出越界异常
+        if (from < 0 || from > to || to > nnz) {
+            throw new IllegalStateException("文件损坏：第" + major + "个指针不正确");
+        }
+        return indices.binarySearch(from, to, minor);
+    }
+}
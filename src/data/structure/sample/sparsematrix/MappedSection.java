@@ -0,0 +1,102 @@
+package data.structure.sample.sparsematrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 文件中一段只读映射的基本类型数组
+ * <p>
+ * 一个MappedByteBuffer最多映射2GB，所以按1GB分段映射，元素大小都是2的幂，不会有元素跨段。
+ *
+ * @author Neptune
+ * @date 2020/7/11 9:50
+ */
+final class MappedSection {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+
+    MappedSection(FileChannel channel, long offset, long length) throws IOException {
+        int count = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        segments = new ByteBuffer[count];
+        for (int s = 0; s < count; s++) {
+            long start = (long) s << SEGMENT_SHIFT;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+                    Math.min(length - start, 1L << SEGMENT_SHIFT)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    int getInt(long index) {
+        long position = index << 2;
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    long getLong(long index) {
+        long position = index << 3;
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    double getDouble(long index) {
+        long position = index << 3;
+        return segments[(int) (position >>> SEGMENT_SHIFT)].getDouble((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * 二分查找[from, to)中的int，没有找到时返回-1
+     */
+    int binarySearch(int from, int to, int target) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = getInt(middle);
+            if (value < target) {
+                low = middle + 1;
+            } else if (value > target) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把整段复制到堆中的数组，数组长度为元素个数
+     */
+    int[] toInts(int length) {
+        int[] target = new int[length];
+        int k = 0;
+        for (ByteBuffer segment : segments) {
+            int count = Math.min(segment.capacity() / Integer.BYTES, length - k);
+            segment.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(target, k, count);
+            k += count;
+        }
+        return target;
+    }
+
+    long[] toLongs(int length) {
+        long[] target = new long[length];
+        int k = 0;
+        for (ByteBuffer segment : segments) {
+            int count = Math.min(segment.capacity() / Long.BYTES, length - k);
+            segment.duplicate().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(target, k, count);
+            k += count;
+        }
+        return target;
+    }
+
+    double[] toDoubles(int length) {
+        double[] target = new double[length];
+        int k = 0;
+        for (ByteBuffer segment : segments) {
+            int count = Math.min(segment.capacity() / Double.BYTES, length - k);
+            segment.duplicate().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(target, k, count);
+            k += count;
+        }
+        return target;
+    }
+}
@@ -1,9 +1,14 @@
 package data.structure.sample.sparsematrix;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 稀疏矩阵的转换与还原
+ * <p>
+ * 压缩结果每个元素是一个Integer三元组，只适合演示和小矩阵，
+ * 数据量大时请使用{@link IntCompressedMatrix}等基本类型的压缩矩阵。
+ * 只需要读取部分元素时用{@link #view(Integer[][], Integer)}，不必还原整个矩阵
  *
  * @author Neptune
  * @date 2020/6/17 17:08
@@ -39,7 +44,7 @@ public class Matrix {
         }
         // 开始遍历矩阵并提取关键信息
         // 保存关键信息
-        LinkedList<Integer[]> keyInfo = new LinkedList<>();
+        List<Integer[]> keyInfo = new ArrayList<>();
         for (int i = 0; i < rowlen; i++) {
             for (int j = 0; j < collen; j++) {
                 if (!key.equals(matrix[i][j])) {
@@ -59,7 +64,18 @@ public class Matrix {
 
 
     /**
-     * 传入一个小规模矩阵和填充元素，将小规模矩阵还原为稀疏矩阵
+     * 传入一个小规模矩阵和填充元素，创建只读视图，按下标取元素O(log k)，不需要还原整个矩阵
+     *
+     * @param matrix 压缩矩阵
+     * @param fill   填充元素
+     * @return MatrixView 只读视图
+     */
+    public static MatrixView view(Integer[][] matrix, Integer fill) {
+        return new MatrixView(matrix, fill);
+    }
+
+    /**
+     * 传入一个小规模矩阵和填充元素，将小规模矩阵还原为稀疏矩阵，时间和空间都是O(行数 * 列数)
      *
      * @param matrix 压缩矩阵
      * @param fill   填充元素
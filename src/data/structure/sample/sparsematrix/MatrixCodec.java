@@ -0,0 +1,680 @@
+package data.structure.sample.sparsematrix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 压缩矩阵的紧凑编码，用于网络传输和快照
+ * <p>
+ * 与{@link MatrixFile}逐个保存int不同，这里的整数用变长编码（varint，每字节7位，最高位表示后面还有字节）或按位打包：
+ * <ul>
+ * <li>指针保存为每行（列）的元素个数，varint</li>
+ * <li>每行（列）内的下标严格递增，第一个用varint保存原值，之后保存与前一个的差减1，相邻的下标差为0。
+ * 每行用1字节保存最大的差需要的位数w，再把这一行的差按w位一个紧密排列（小端位序），解码时没有分支</li>
+ * <li>值按游程编码（RLE）：先保存连续相同的值的个数，再保存这个值；int、long用zigzag变换后的varint，double保存原始的8字节</li>
+ * </ul>
+ * 格式：
+ * <pre>
+ * int     魔数 "SPMZ"
+ * byte    版本号
+ * byte    值类型，与{@link MatrixFile.ValueType}相同
+ * byte    压缩方式：0 按行，1 按列
+ * varint  行数、列数、元素个数
+ * key     int、long为zigzag varint，double为8字节
+ * varint  每行（列）的元素个数
+ * 下标    每个非空行(varint第一个下标, byte位数, 按位打包的差)
+ * 游程    (varint个数, 值)...
+ * </pre>
+ * 编码和解码都只经过一个64KB的缓冲区（一行的下标超过缓冲区时才扩容），可以直接读写网络或文件流；
+ * 解码时逐行流式写入最终数组，不需要中间数组。
+ * 文件头中的行数、列数和元素个数只用来校验，数组随实际解码出的数据分块增长，数据损坏或截断时抛出IOException，
+ * 不会先按文件头分配大数组。注意位数为0的行和长游程本身就是合法的高倍压缩，解码不可信的数据时仍要限制元素个数。
+ * 需要不复制到堆中直接访问时请用{@link MatrixFile}。
+ *
+ * @author Neptune
+ * @date 2020/7/15 10:10
+ */
+public final class MatrixCodec {
+    /**
+     * 魔数，"SPMZ"
+     */
+    static final int MAGIC = 0x53504D5A;
+    static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 << 10;
+    /**
+     * 解码时指针数组的初始长度
+     */
+    private static final int POINTER_CHUNK = 64 << 10;
+    /**
+     * 解码时下标和值数组的初始长度，也是一次解码的下标个数，必须是8的倍数，使每一段都从整字节开始
+     */
+    private static final int ELEMENT_CHUNK = 64 << 10;
+
+    private MatrixCodec() {
+    }
+
+    /**
+     * 编码为字节数组
+     *
+     * @param matrix 压缩矩阵
+     * @return byte[] 编码结果
+     */
+    public static byte[] encode(CompressedMatrix matrix) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            encode(matrix, bytes);
+        } catch (IOException e) {
+            // ByteArrayOutputStream不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 编码并写入输出流
+     *
+     * @param matrix 压缩矩阵
+     * @param out    输出，不会被关闭
+     * @throws IOException 写入失败
+     */
+    public static void encode(CompressedMatrix matrix, OutputStream out) throws IOException {
+        MatrixFile.ValueType type = MatrixFile.ValueType.of(matrix);
+        Output output = new Output(out);
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(type.code);
+        output.writeByte(matrix.layout.ordinal());
+        output.writeVarint(matrix.rows);
+        output.writeVarint(matrix.cols);
+        int nnz = matrix.nnz();
+        output.writeVarint(nnz);
+        if (type == MatrixFile.ValueType.INT) {
+            output.writeVarint(zigzag(((IntCompressedMatrix) matrix).key));
+        } else if (type == MatrixFile.ValueType.LONG) {
+            output.writeVarlong(zigzag(((LongCompressedMatrix) matrix).key));
+        } else {
+            output.writeLong(Double.doubleToRawLongBits(((DoubleCompressedMatrix) matrix).key));
+        }
+        int[] pointers = matrix.pointers;
+        int[] indices = matrix.indices;
+        int majorDim = matrix.majorDim();
+        for (int major = 0; major < majorDim; major++) {
+            output.writeVarint(pointers[major + 1] - pointers[major]);
+        }
+        for (int major = 0; major < majorDim; major++) {
+            int from = pointers[major];
+            int to = pointers[major + 1];
+            if (from == to) {
+                continue;
+            }
+            // 第一个下标可能很大，单独保存，不影响差的位数
+            output.writeVarint(indices[from]);
+            int maxGap = 0;
+            for (int k = from + 1; k < to; k++) {
+                maxGap = Math.max(maxGap, indices[k] - indices[k - 1] - 1);
+            }
+            int width = Integer.SIZE - Integer.numberOfLeadingZeros(maxGap);
+            output.writeByte(width);
+            for (int k = from + 1; k < to; k++) {
+                output.writeBits(indices[k] - indices[k - 1] - 1, width);
+            }
+            output.alignToByte();
+        }
+        if (type == MatrixFile.ValueType.INT) {
+            int[] values = ((IntCompressedMatrix) matrix).values;
+            for (int k = 0; k < nnz; ) {
+                int end = k + 1;
+                while (end < nnz && values[end] == values[k]) {
+                    end++;
+                }
+                output.writeVarint(end - k);
+                output.writeVarint(zigzag(values[k]));
+                k = end;
+            }
+        } else if (type == MatrixFile.ValueType.LONG) {
+            long[] values = ((LongCompressedMatrix) matrix).values;
+            for (int k = 0; k < nnz; ) {
+                int end = k + 1;
+                while (end < nnz && values[end] == values[k]) {
+                    end++;
+                }
+                output.writeVarint(end - k);
+                output.writeVarlong(zigzag(values[k]));
+                k = end;
+            }
+        } else {
+            double[] values = ((DoubleCompressedMatrix) matrix).values;
+            for (int k = 0; k < nnz; ) {
+                long bits = Double.doubleToRawLongBits(values[k]);
+                int end = k + 1;
+                while (end < nnz && Double.doubleToRawLongBits(values[end]) == bits) {
+                    end++;
+                }
+                output.writeVarint(end - k);
+                output.writeLong(bits);
+                k = end;
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * 从字节数组解码
+     *
+     * @param bytes 编码结果
+     * @return CompressedMatrix 与值类型对应的压缩矩阵
+     * @throws IOException 数据格式不正确
+     */
+    public static CompressedMatrix decode(byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * 从输入流解码，只读取一个矩阵的数据
+     *
+     * @param in 输入，不会被关闭；内部有缓冲，解码后流的位置可能超过矩阵数据的末尾
+     * @return CompressedMatrix 与值类型对应的压缩矩阵
+     * @throws IOException 读取失败或数据格式不正确
+     */
+    public static CompressedMatrix decode(InputStream in) throws IOException {
+        Input input = new Input(in);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("不是压缩矩阵的编码");
+        }
+        int version = input.readByte();
+        if (version > VERSION) {
+            throw new IOException("不支持的版本" + version + "，当前支持到" + VERSION);
+        }
+        MatrixFile.ValueType type = MatrixFile.ValueType.of(input.readByte());
+        int layoutCode = input.readByte();
+        if (null == type || layoutCode >= CompressedMatrix.Layout.values().length) {
+            throw new IOException("压缩数据损坏");
+        }
+        CompressedMatrix.Layout layout = CompressedMatrix.Layout.values()[layoutCode];
+        int rows = input.readVarint();
+        int cols = input.readVarint();
+        int nnz = input.readVarint();
+        if (rows < 0 || cols < 0 || nnz < 0) {
+            throw new IOException("压缩数据损坏");
+        }
+        long key;
+        if (type == MatrixFile.ValueType.INT) {
+            key = unzigzag(input.readVarint());
+        } else if (type == MatrixFile.ValueType.LONG) {
+            key = unzigzag(input.readVarlong());
+        } else {
+            key = input.readLong();
+        }
+        int majorDim = layout == CompressedMatrix.Layout.ROW ? rows : cols;
+        int minorDim = layout == CompressedMatrix.Layout.ROW ? cols : rows;
+        if (majorDim == Integer.MAX_VALUE) {
+            throw new IOException("压缩数据损坏");
+        }
+        // 行（列）数来自文件头，指针数组随读到的数据增长，文件头损坏或数据截断时在读到末尾时失败，不会先按文件头分配内存
+        int[] pointers = new int[Math.min(majorDim, POINTER_CHUNK) + 1];
+        for (int major = 0; major < majorDim; major++) {
+            if (major + 1 == pointers.length) {
+                pointers = Arrays.copyOf(pointers, (int) Math.min(majorDim + 1L, 2L * pointers.length));
+            }
+            int count = input.readVarint();
+            if (count < 0 || count > nnz - pointers[major]) {
+                throw new IOException("压缩数据损坏");
+            }
+            pointers[major + 1] = pointers[major] + count;
+        }
+        if (pointers[majorDim] != nnz) {
+            throw new IOException("压缩数据损坏");
+        }
+        // 一行的元素个数只受nnz约束，下标和值数组同样随解码出的数据增长，截断的数据在读到末尾时失败
+        int[] indices = new int[Math.min(nnz, ELEMENT_CHUNK)];
+        for (int major = 0; major < majorDim; major++) {
+            if (pointers[major] < pointers[major + 1]) {
+                indices = input.readPackedGaps(indices, pointers[major], pointers[major + 1], minorDim, nnz);
+            }
+        }
+        switch (type) {
+            case INT: {
+                int[] values = new int[Math.min(nnz, ELEMENT_CHUNK)];
+                for (int k = 0; k < nnz; ) {
+                    int end = runEnd(k, input.readVarint(), nnz);
+                    int value = (int) unzigzag(input.readVarint());
+                    if (end > values.length) {
+                        values = Arrays.copyOf(values, grow(values.length, end, nnz));
+                    }
+                    Arrays.fill(values, k, end, value);
+                    k = end;
+                }
+                return new IntCompressedMatrix(rows, cols, layout, pointers, indices, values, (int) key);
+            }
+            case LONG: {
+                long[] values = new long[Math.min(nnz, ELEMENT_CHUNK)];
+                for (int k = 0; k < nnz; ) {
+                    int end = runEnd(k, input.readVarint(), nnz);
+                    long value = unzigzag(input.readVarlong());
+                    if (end > values.length) {
+                        values = Arrays.copyOf(values, grow(values.length, end, nnz));
+                    }
+                    Arrays.fill(values, k, end, value);
+                    k = end;
+                }
+                return new LongCompressedMatrix(rows, cols, layout, pointers, indices, values, key);
+            }
+            default: {
+                double[] values = new double[Math.min(nnz, ELEMENT_CHUNK)];
+                for (int k = 0; k < nnz; ) {
+                    int end = runEnd(k, input.readVarint(), nnz);
+                    double value = Double.longBitsToDouble(input.readLong());
+                    if (end > values.length) {
+                        values = Arrays.copyOf(values, grow(values.length, end, nnz));
+                    }
+                    Arrays.fill(values, k, end, value);
+                    k = end;
+                }
+                return new DoubleCompressedMatrix(rows, cols, layout, pointers, indices, values,
+                        Double.longBitsToDouble(key));
+            }
+        }
+    }
+
+    /**
+     * 解码时数组的新长度：至少翻倍，不超过nnz
+     */
+    private static int grow(int length, int required, int nnz) {
+        return (int) Math.min(nnz, Math.max(required, 2L * length));
+    }
+
+    private static int runEnd(int start, int length, int nnz) throws IOException {
+        if (length <= 0 || length > nnz - start) {
+            throw new IOException("压缩数据损坏");
+        }
+        return start + length;
+    }
+
+    /**
+     * zigzag变换，把绝对值小的负数变成小的正数：0, -1, 1, -2 ... 变为0, 1, 2, 3 ...
+     */
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 带缓冲的输出，多字节的定长整数为小端字节序
+     */
+    private static final class Output {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private long bits;
+        private int bitCount;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            for (int shift = 0; shift < Long.SIZE; shift += 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarint(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarlong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * 写入value的低width位，不足1字节的部分先留在bits中
+         */
+        void writeBits(int value, int width) throws IOException {
+            bits |= (value & 0xFFFFFFFFL) << bitCount;
+            bitCount += width;
+            while (bitCount >= 8) {
+                writeByte((int) bits);
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        /**
+         * 写出剩余不足1字节的位
+         */
+        void alignToByte() throws IOException {
+            if (bitCount > 0) {
+                writeByte((int) bits);
+            }
+            bits = 0;
+            bitCount = 0;
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (position + bytes > buffer.length) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 带缓冲的输入，缓冲区中剩余的字节足够时走不检查边界的快速路径
+     */
+    private static final class Input {
+        private final InputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        /**
+         * 按小端字节序读取buffer中的long
+         */
+        private ByteBuffer view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        private int position;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int readByte() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+                value |= readByte() << shift;
+            }
+            return value;
+        }
+
+        long readLong() throws IOException {
+            if (limit - position >= Long.BYTES) {
+                long value = view.getLong(position);
+                position += Long.BYTES;
+                return value;
+            }
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 8) {
+                value |= (long) readByte() << shift;
+            }
+            return value;
+        }
+
+        int readVarint() throws IOException {
+            if (limit - position >= 5) {
+                int b = buffer[position++];
+                if (b >= 0) {
+                    return b;
+                }
+                int value = b & 0x7F;
+                for (int shift = 7; shift < 35; shift += 7) {
+                    b = buffer[position++];
+                    value |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        return value;
+                    }
+                }
+                throw new IOException("压缩数据损坏");
+            }
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+            throw new IOException("压缩数据损坏");
+        }
+
+        long readVarlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+            throw new IOException("压缩数据损坏");
+        }
+
+        /**
+         * 解码一行（列）的下标：先读第一个下标和位数w，再读按w位打包的差（与前一个下标的差减1），解码后必须小于bound
+         * <p>
+         * 每次把{@link #ELEMENT_CHUNK}个差的数据读入缓冲区，每个差用一次8字节的读取加移位取出，没有分支；
+         * target在读到数据后才按需扩容，最长为nnz
+         *
+         * @return int[] target或扩容后的数组
+         */
+        int[] readPackedGaps(int[] target, int from, int to, int bound, int nnz) throws IOException {
+            int first = readVarint();
+            if (first < 0 || first >= bound) {
+                throw new IOException("压缩数据损坏");
+            }
+            int width = readByte();
+            if (width > Integer.SIZE - 1) {
+                throw new IOException("压缩数据损坏");
+            }
+            if (from == target.length) {
+                target = Arrays.copyOf(target, grow(target.length, from + 1, nnz));
+            }
+            target[from++] = first;
+            long mask = (1L << width) - 1;
+            long previous = first;
+            while (from < to) {
+                // 除最后一段外每段的个数是8的倍数，段的数据从整字节开始，与一次打包的结果相同
+                int end = (int) Math.min(to, (long) from + ELEMENT_CHUNK);
+                int length = (int) (((long) (end - from) * width + 7) >>> 3);
+                require(length);
+                if (end > target.length) {
+                    target = Arrays.copyOf(target, grow(target.length, end, nnz));
+                }
+                int base = position;
+                // 能安全地读8字节的最后一个位置
+                int wordEnd = limit - Long.BYTES;
+                long bitPosition = 0;
+                for (int k = from; k < end; k++, bitPosition += width) {
+                    int index = base + (int) (bitPosition >>> 3);
+                    long word = index <= wordEnd ? view.getLong(index) : tailWord(index);
+                    previous += ((word >>> (bitPosition & 7)) & mask) + 1;
+                    target[k] = (int) previous;
+                }
+                // 下标递增，只需要检查每段的最后一个
+                if (previous >= bound) {
+                    throw new IOException("压缩数据损坏");
+                }
+                position = base + length;
+                from = end;
+            }
+            return target;
+        }
+
+        /**
+         * 缓冲区末尾不足8字节时逐字节拼出
+         */
+        private long tailWord(int index) {
+            long word = 0;
+            for (int b = 0; index + b < limit && b < Long.BYTES; b++) {
+                word |= (buffer[index + b] & 0xFFL) << (b << 3);
+            }
+            return word;
+        }
+
+        /**
+         * 保证缓冲区中至少有bytes个字节，缓冲区不够大时扩容
+         */
+        private void require(int bytes) throws IOException {
+            if (limit - position >= bytes) {
+                return;
+            }
+            int remaining = limit - position;
+            if (bytes > buffer.length) {
+                byte[] larger = new byte[bytes];
+                System.arraycopy(buffer, position, larger, 0, remaining);
+                buffer = larger;
+                view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                System.arraycopy(buffer, position, buffer, 0, remaining);
+            }
+            position = 0;
+            limit = remaining;
+            while (limit < bytes) {
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    throw new EOFException("压缩数据不完整");
+                }
+                limit += read;
+            }
+        }
+
+        private void fill() throws IOException {
+            int read;
+            do {
+                read = in.read(buffer);
+            } while (read == 0);
+            if (read < 0) {
+                throw new EOFException("压缩数据不完整");
+            }
+            position = 0;
+            limit = read;
+        }
+    }
+}
+
+class TestMatrixCodec {
+    public static void main(String[] args) throws IOException {
+        // 带权重的图：每个节点的邻居集中在附近，大部分权重为1
+        int n = 200000;
+        int degree = 20;
+        Random random = new Random();
+        int[] from = new int[n * degree];
+        int[] to = new int[n * degree];
+        int[] weight = new int[n * degree];
+        for (int e = 0; e < from.length; e++) {
+            from[e] = e / degree;
+            to[e] = Math.floorMod(from[e] + (int) (random.nextGaussian() * 500), n);
+            weight[e] = random.nextInt(10) == 0 ? random.nextInt(100) : 1;
+        }
+        IntCompressedMatrix graph = IntCompressedMatrix.fromTriplets(n, n, from, to, weight,
+                CompressedMatrix.Layout.ROW);
+        long raw = MatrixFile.HEADER_SIZE + 4L * (n + 1) + 8L * graph.nnz();
+
+        long start = System.nanoTime();
+        byte[] encoded = MatrixCodec.encode(graph);
+        long encodeTime = System.nanoTime() - start;
+        IntCompressedMatrix decoded = null;
+        long decodeTime = Long.MAX_VALUE;
+        for (int repeat = 0; repeat < 20; repeat++) {
+            start = System.nanoTime();
+            decoded = (IntCompressedMatrix) MatrixCodec.decode(encoded);
+            decodeTime = Math.min(decodeTime, System.nanoTime() - start);
+        }
+        System.out.println("raw " + raw / 1024 + "KB, encoded " + encoded.length / 1024 + "KB, ratio "
+                + String.format("%.2f", (double) raw / encoded.length) + ", encode " + encodeTime / 1000000
+                + "ms, decode " + decodeTime / 1000000 + "ms ("
+                + String.format("%.0f", raw / (decodeTime / 1e9) / (1 << 20)) + "MB/s of decoded data)");
+        System.out.println(Arrays.equals(graph.pointers, decoded.pointers)
+                && Arrays.equals(graph.indices, decoded.indices) && Arrays.equals(graph.values, decoded.values));
+
+        double[][] dense = {{0, 1.5, 1.5}, {-2, 0, 0}};
+        DoubleCompressedMatrix small = DoubleCompressedMatrix.fromDense(dense, 0, CompressedMatrix.Layout.COLUMN);
+        DoubleCompressedMatrix back = (DoubleCompressedMatrix) MatrixCodec.decode(MatrixCodec.encode(small));
+        System.out.println(Arrays.deepToString(back.toDense()) + ", " + MatrixCodec.encode(small).length + " bytes");
+
+        // 一行跨越多个解码分段
+        int width = 1 << 20;
+        int[] columns = new int[width / 3];
+        for (int k = 0; k < columns.length; k++) {
+            columns[k] = 3 * k + random.nextInt(3);
+        }
+        IntCompressedMatrix wide = IntCompressedMatrix.fromTriplets(1, width, new int[columns.length], columns,
+                columns, CompressedMatrix.Layout.ROW);
+        IntCompressedMatrix wideBack = (IntCompressedMatrix) MatrixCodec.decode(MatrixCodec.encode(wide));
+        System.out.println(Arrays.equals(wide.indices, wideBack.indices) && Arrays.equals(wide.values, wideBack.values));
+
+        // 损坏的数据只抛出IOException：文件头声明一行有2^31-9个元素但数据在此截断，不能先按文件头分配数组
+        ByteArrayOutputStream forged = new ByteArrayOutputStream();
+        forged.write(new byte[]{'Z', 'M', 'P', 'S', MatrixCodec.VERSION, (byte) MatrixFile.ValueType.INT.code, 0, 1});
+        byte[] huge = {(byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        forged.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        forged.write(huge);
+        forged.write(0);
+        forged.write(huge);
+        int rejected = rejects(forged.toByteArray()) ? 1 : 0;
+        int tries = 1;
+        byte[] sample = MatrixCodec.encode(small);
+        for (int k = 0; k < sample.length; k++, tries++) {
+            rejected += rejects(Arrays.copyOf(sample, k)) ? 1 : 0;
+        }
+        for (int k = 0; k < 200; k++, tries += 2) {
+            rejected += rejects(Arrays.copyOf(encoded, random.nextInt(encoded.length))) ? 1 : 0;
+            byte[] flipped = encoded.clone();
+            flipped[random.nextInt(64)] ^= (byte) (1 << random.nextInt(8));
+            // 翻转的位可能只改变了某个值，这样的数据仍能解码
+            rejected += rejects(flipped) ? 1 : 0;
+        }
+        System.out.println("rejected " + rejected + " of " + tries + " corrupt inputs");
+    }
+
+    /**
+     * 解码失败时只能抛出IOException，其他异常和OutOfMemoryError直接中断测试
+     */
+    private static boolean rejects(byte[] bytes) {
+        try {
+            MatrixCodec.decode(bytes);
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
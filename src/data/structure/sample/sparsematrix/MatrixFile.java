@@ -0,0 +1,348 @@
+package data.structure.sample.sparsematrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * 压缩矩阵的二进制文件格式
+ * <p>
+ * 文件由64字节的文件头和三个连续的基本类型数组组成，所有数值都是小端字节序，每个数组的起始位置按8字节对齐：
+ * <pre>
+ * 0   int   魔数 "SPMX"
+ * 4   int   版本号
+ * 8   byte  值类型：1 int，2 long，3 double
+ * 9   byte  压缩方式：0 按行，1 按列
+ * 12  int   行数
+ * 16  int   列数
+ * 24  long  元素个数nnz
+ * 32  long  key，int按符号扩展，double为原始位模式
+ * 40  long  指针数组的起始位置，int[行数（列数）+ 1]
+ * 48  long  下标数组的起始位置，int[nnz]
+ * 56  long  值数组的起始位置，int/long/double[nnz]
+ * </pre>
+ * {@link #map(Path)}用{@link FileChannel#map}只读映射文件，不把数据复制到堆中，打开大文件也只需要读文件头，
+ * 数据由操作系统按需换入。只读映射使用操作系统的页缓存，多个进程打开同一个文件时共享同一份物理内存。
+ * {@link Matrix#compress(Integer[][], Integer)}的结果可以先用{@link IntCompressedMatrix#fromCompressed}转换后再写入。
+ * 需要更小的快照或者网络传输时用{@link MatrixCodec}。
+ *
+ * @author Neptune
+ * @date 2020/7/11 9:50
+ */
+public final class MatrixFile {
+    /**
+     * 魔数，"SPMX"
+     */
+    static final int MAGIC = 0x584D5053;
+    /**
+     * 当前版本号，读取时拒绝更高的版本
+     */
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    /**
+     * 值类型
+     */
+    public enum ValueType {
+        INT(1, Integer.BYTES),
+        LONG(2, Long.BYTES),
+        DOUBLE(3, Double.BYTES);
+
+        final int code;
+        final int bytes;
+
+        ValueType(int code, int bytes) {
+            this.code = code;
+            this.bytes = bytes;
+        }
+
+        static ValueType of(int code) {
+            for (ValueType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        static ValueType of(CompressedMatrix matrix) {
+            if (matrix instanceof IntCompressedMatrix) {
+                return INT;
+            }
+            if (matrix instanceof LongCompressedMatrix) {
+                return LONG;
+            }
+            if (matrix instanceof DoubleCompressedMatrix) {
+                return DOUBLE;
+            }
+            throw new IllegalArgumentException("不支持的矩阵类型：" + matrix.getClass().getName());
+        }
+    }
+
+    private MatrixFile() {
+    }
+
+    /**
+     * 把压缩矩阵写入文件，文件已存在时覆盖
+     * <p>
+     * 先写到同一目录下的临时文件，再原子地替换目标文件。已经映射了旧文件的进程继续读到旧的内容，
+     * 不会因为文件被原地截断而在访问映射时崩溃
+     *
+     * @param matrix 压缩矩阵
+     * @param path   文件路径
+     * @throws IOException 写入失败
+     */
+    public static void write(CompressedMatrix matrix, Path path) throws IOException {
+        ValueType type = ValueType.of(matrix);
+        int nnz = matrix.nnz();
+        long pointersOffset = HEADER_SIZE;
+        long indicesOffset = align(pointersOffset + (long) Integer.BYTES * matrix.pointers.length);
+        long valuesOffset = align(indicesOffset + (long) Integer.BYTES * nnz);
+        long keyBits;
+        if (type == ValueType.INT) {
+            keyBits = ((IntCompressedMatrix) matrix).key;
+        } else if (type == ValueType.LONG) {
+            keyBits = ((LongCompressedMatrix) matrix).key;
+        } else {
+            keyBits = Double.doubleToRawLongBits(((DoubleCompressedMatrix) matrix).key);
+        }
+        // 不用Files.createTempFile，它创建的文件只有所有者可读，其他用户的进程无法映射
+        Path temp = path.toAbsolutePath().resolveSibling(
+                path.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION)
+                        .put((byte) type.code).put((byte) matrix.layout.ordinal()).putShort((short) 0)
+                        .putInt(matrix.rows).putInt(matrix.cols).putInt(0)
+                        .putLong(nnz).putLong(keyBits)
+                        .putLong(pointersOffset).putLong(indicesOffset).putLong(valuesOffset);
+                Writer writer = new Writer(channel, buffer);
+                writer.ints(matrix.pointers, matrix.pointers.length);
+                writer.padTo(indicesOffset);
+                writer.ints(matrix.indices, nnz);
+                writer.padTo(valuesOffset);
+                if (type == ValueType.INT) {
+                    writer.ints(((IntCompressedMatrix) matrix).values, nnz);
+                } else if (type == ValueType.LONG) {
+                    writer.longs(((LongCompressedMatrix) matrix).values, nnz);
+                } else {
+                    writer.doubles(((DoubleCompressedMatrix) matrix).values, nnz);
+                }
+                writer.flush();
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            // 移动成功后临时文件已经不存在
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 只读映射压缩矩阵文件
+     *
+     * @param path 文件路径
+     * @return MappedMatrix 映射的矩阵，不需要关闭，不再使用后由GC解除映射
+     * @throws IOException 读取失败、文件头不正确或者指针数组首尾不正确；其余数据的检查见{@link MappedMatrix}
+     */
+    public static MappedMatrix map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("不是压缩矩阵文件：" + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("不是压缩矩阵文件：" + path);
+            }
+            int version = header.getInt(4);
+            if (version > VERSION) {
+                throw new IOException("不支持的版本" + version + "，当前支持到" + VERSION);
+            }
+            ValueType type = ValueType.of(header.get(8));
+            int layoutCode = header.get(9);
+            if (null == type || layoutCode < 0 || layoutCode >= CompressedMatrix.Layout.values().length) {
+                throw new IOException("文件头损坏：" + path);
+            }
+            CompressedMatrix.Layout layout = CompressedMatrix.Layout.values()[layoutCode];
+            int rows = header.getInt(12);
+            int cols = header.getInt(16);
+            long nnz = header.getLong(24);
+            long keyBits = header.getLong(32);
+            long pointersOffset = header.getLong(40);
+            long indicesOffset = header.getLong(48);
+            long valuesOffset = header.getLong(56);
+            long pointerCount = (layout == CompressedMatrix.Layout.ROW ? rows : cols) + 1L;
+            // 每个起始位置先确认不超过文件大小再参与加法，数组长度都小于2^35，加法不会溢出
+            if (rows < 0 || cols < 0 || nnz < 0 || nnz > Integer.MAX_VALUE
+                    || pointersOffset < HEADER_SIZE || pointersOffset > size
+                    || indicesOffset < pointersOffset + Integer.BYTES * pointerCount || indicesOffset > size
+                    || valuesOffset < indicesOffset + Integer.BYTES * nnz || valuesOffset > size
+                    || size < valuesOffset + type.bytes * nnz) {
+                throw new IOException("文件头损坏或文件不完整：" + path);
+            }
+            MappedSection pointers = new MappedSection(channel, pointersOffset, Integer.BYTES * pointerCount);
+            // 只检查首尾，中间的指针在取元素时检查，打开大文件时不需要读取整个指针数组
+            if (pointers.getInt(0) != 0 || pointers.getInt(pointerCount - 1) != nnz) {
+                throw new IOException("指针数组损坏：" + path);
+            }
+            return new MappedMatrix(rows, cols, layout, type, (int) nnz, keyBits, pointers,
+                    new MappedSection(channel, indicesOffset, Integer.BYTES * nnz),
+                    new MappedSection(channel, valuesOffset, type.bytes * nnz));
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * 通过直接缓冲区写文件，攒满后一次写入
+     */
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long position;
+
+        Writer(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.position = buffer.position();
+        }
+
+        void ints(int[] array, int length) throws IOException {
+            for (int k = 0; k < length; ) {
+                int count = Math.min(length - k, buffer.remaining() / Integer.BYTES);
+                if (count == 0) {
+                    drain();
+                    continue;
+                }
+                buffer.asIntBuffer().put(array, k, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                k += count;
+            }
+            position += (long) Integer.BYTES * length;
+        }
+
+        void longs(long[] array, int length) throws IOException {
+            for (int k = 0; k < length; ) {
+                int count = Math.min(length - k, buffer.remaining() / Long.BYTES);
+                if (count == 0) {
+                    drain();
+                    continue;
+                }
+                buffer.asLongBuffer().put(array, k, count);
+                buffer.position(buffer.position() + count * Long.BYTES);
+                k += count;
+            }
+            position += (long) Long.BYTES * length;
+        }
+
+        void doubles(double[] array, int length) throws IOException {
+            for (int k = 0; k < length; ) {
+                int count = Math.min(length - k, buffer.remaining() / Double.BYTES);
+                if (count == 0) {
+                    drain();
+                    continue;
+                }
+                buffer.asDoubleBuffer().put(array, k, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                k += count;
+            }
+            position += (long) Double.BYTES * length;
+        }
+
+        void padTo(long offset) throws IOException {
+            while (position < offset) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
+
+class TestMatrixFile {
+    public static void main(String[] args) throws IOException {
+        int rows = 20000;
+        int cols = 20000;
+        int count = 2000000;
+        Random random = new Random();
+        int[] rowIndex = new int[count];
+        int[] colIndex = new int[count];
+        double[] values = new double[count];
+        for (int k = 0; k < count; k++) {
+            rowIndex[k] = random.nextInt(rows);
+            colIndex[k] = random.nextInt(cols);
+            values[k] = random.nextDouble();
+        }
+        DoubleCompressedMatrix matrix = DoubleCompressedMatrix.fromTriplets(rows, cols, rowIndex, colIndex, values,
+                CompressedMatrix.Layout.ROW);
+        File file = File.createTempFile("matrix", ".spmx");
+        file.deleteOnExit();
+        MatrixFile.write(matrix, file.toPath());
+
+        long start = System.nanoTime();
+        MappedMatrix mapped = MatrixFile.map(file.toPath());
+        double sample = mapped.getDouble(rowIndex[0], colIndex[0]);
+        System.out.println("map and first lookup: " + (System.nanoTime() - start) / 1000 + "us, file size: "
+                + file.length() / 1024 + "KB");
+        boolean same = sample == matrix.get(rowIndex[0], colIndex[0]);
+        for (int k = 0; k < 100000; k++) {
+            int i = random.nextInt(rows);
+            int j = random.nextInt(cols);
+            same &= mapped.getDouble(i, j) == matrix.get(i, j);
+            same &= mapped.getDouble(rowIndex[k], colIndex[k]) == matrix.get(rowIndex[k], colIndex[k]);
+        }
+        System.out.println(same);
+
+        int[][] dense = {{0, 3, 0}, {-1, 0, 0}};
+        MatrixFile.write(IntCompressedMatrix.fromDense(dense, 0, CompressedMatrix.Layout.COLUMN), file.toPath());
+        IntCompressedMatrix loaded = (IntCompressedMatrix) MatrixFile.map(file.toPath()).load();
+        System.out.println(java.util.Arrays.deepToString(loaded.toDense()));
+        // 覆盖写入替换的是文件而不是原地截断，之前的映射仍然可以读到旧的内容
+        System.out.println(mapped.getDouble(rowIndex[0], colIndex[0]) == sample
+                && mapped.getDouble(rowIndex[count - 1], colIndex[count - 1])
+                == matrix.get(rowIndex[count - 1], colIndex[count - 1]));
+
+        // 文件头中的起始位置接近Long.MAX_VALUE时，检查中的加法不能溢出，要抛出IOException
+        File forged = File.createTempFile("matrix", ".spmx");
+        forged.deleteOnExit();
+        Files.copy(file.toPath(), forged.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(forged.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            offset.putLong(0, Long.MAX_VALUE - 3);
+            channel.write(offset, 40);
+        }
+        try {
+            MatrixFile.map(forged.toPath());
+            System.out.println(false);
+        } catch (IOException e) {
+            System.out.println(e.getMessage().startsWith("文件头损坏"));
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 按密度和块的填充率选择矩阵的存储格式：坐标格式（COO）、按行压缩（CSR）、块稀疏（BSR）或稠密数组
+ * <p>
+ * 先抽样估计元素个数和含有非0元素的块的个数，再估算每种格式占用的字节数，选最小的一种：
+ * <pre>
+ * COO    16 * nnz
+ * CSR    12 * nnz + 4 * (行数 + 1)
+ * BSR    块数 * (8 * 块边长² + 4) + 4 * (块行数 + 1)
+ * 稠密   8 * 行数 * 列数
+ * </pre>
+ * 矩阵乘向量受内存带宽限制，占用内存最小的格式通常也是最快的。所有格式都实现{@link DoubleMatrix}，调用方不需要关心选了哪一种。
+ * <p>
+ * 输入为二维数组时随机抽取若干个块，同时估计密度和非空块的比例，选中稠密格式时不需要压缩；
+ * 输入为压缩矩阵时元素个数是精确的，随机抽取若干个元素，用所在块的元素个数的倒数的平均值估计块数。
+ * 抽样使用固定的种子，同一个矩阵总是选出同一种格式。
+ *
+ * @author Neptune
+ * @date 2020/7/14 9:30
+ */
+public class MatrixFormatSelector {
+    /**
+     * 存储格式
+     */
+    public enum Format {
+        /**
+         * 坐标格式，{@link CoordinateMatrix}
+         */
+        COO,
+        /**
+         * 按行压缩，{@link DoubleCompressedMatrix}
+         */
+        CSR,
+        /**
+         * 块稀疏，{@link BlockSparseMatrix}
+         */
+        BSR,
+        /**
+         * 稠密数组，{@link DenseMatrix}
+         */
+        DENSE
+    }
+
+    public static final int DEFAULT_BLOCK_SIZE = 4;
+    public static final int DEFAULT_SAMPLES = 1024;
+    private static final long SEED = 20200714L;
+
+    private final int blockSize;
+    private final int samples;
+
+    public MatrixFormatSelector() {
+        this(DEFAULT_BLOCK_SIZE, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * @param blockSize 块稀疏格式的块边长
+     * @param samples   抽样的个数
+     */
+    public MatrixFormatSelector(int blockSize, int samples) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("块的边长必须为正数");
+        }
+        if (samples <= 0) {
+            throw new IllegalArgumentException("抽样个数必须为正数");
+        }
+        this.blockSize = blockSize;
+        this.samples = samples;
+    }
+
+    /**
+     * 选择二维数组的存储格式，0为没有保存的元素
+     *
+     * @param matrix 矩阵
+     * @return Format 估计占用内存最小的格式
+     */
+    public Format choose(double[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        int blockRows = (int) (((long) rows + blockSize - 1) / blockSize);
+        int blockCols = (int) (((long) cols + blockSize - 1) / blockSize);
+        long totalBlocks = (long) blockRows * blockCols;
+        if (totalBlocks == 0) {
+            return Format.CSR;
+        }
+        // 块不多时逐个统计，否则随机抽样
+        boolean exhaustive = totalBlocks <= samples;
+        int count = exhaustive ? (int) totalBlocks : samples;
+        Random random = new Random(SEED);
+        long sampledCells = 0;
+        long sampledNnz = 0;
+        int nonEmpty = 0;
+        for (int s = 0; s < count; s++) {
+            long block = exhaustive ? s : (long) (random.nextDouble() * totalBlocks);
+            int firstRow = (int) (block / blockCols) * blockSize;
+            int firstCol = (int) (block % blockCols) * blockSize;
+            int endRow = (int) Math.min(rows, (long) firstRow + blockSize);
+            int endCol = (int) Math.min(cols, (long) firstCol + blockSize);
+            int filled = 0;
+            for (int i = firstRow; i < endRow; i++) {
+                double[] row = matrix[i];
+                for (int j = firstCol; j < endCol; j++) {
+                    if (row[j] != 0) {
+                        filled++;
+                    }
+                }
+            }
+            sampledCells += (long) (endRow - firstRow) * (endCol - firstCol);
+            sampledNnz += filled;
+            if (filled > 0) {
+                nonEmpty++;
+            }
+        }
+        long nnz = Math.round((double) sampledNnz / sampledCells * rows * cols);
+        long blocks = Math.round((double) nonEmpty / count * totalBlocks);
+        return best(rows, cols, nnz, blocks);
+    }
+
+    /**
+     * 选择压缩矩阵的存储格式
+     *
+     * @param matrix 没有保存的元素为0的压缩矩阵
+     * @return Format 估计占用内存最小的格式
+     */
+    public Format choose(DoubleCompressedMatrix matrix) {
+        return chooseRows(toRows(matrix));
+    }
+
+    /**
+     * 把二维数组转换为估计占用内存最小的格式，0为没有保存的元素
+     *
+     * @param matrix 矩阵
+     * @return DoubleMatrix 选出的格式的矩阵
+     */
+    public DoubleMatrix select(double[][] matrix) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        if (choose(matrix) == Format.DENSE) {
+            return DenseMatrix.fromDense(matrix);
+        }
+        // 压缩后元素个数是精确的，重新选择一次
+        return select(DoubleCompressedMatrix.fromDense(matrix, 0, CompressedMatrix.Layout.ROW));
+    }
+
+    /**
+     * 把压缩矩阵转换为估计占用内存最小的格式
+     *
+     * @param matrix 没有保存的元素为0的压缩矩阵
+     * @return DoubleMatrix 选出的格式的矩阵，选中按行压缩时为按行压缩的matrix
+     */
+    public DoubleMatrix select(DoubleCompressedMatrix matrix) {
+        DoubleCompressedMatrix csr = toRows(matrix);
+        switch (chooseRows(csr)) {
+            case COO:
+                return CoordinateMatrix.fromCompressed(csr);
+            case BSR:
+                return BlockSparseMatrix.fromCompressed(csr, blockSize);
+            case DENSE:
+                return DenseMatrix.fromCompressed(csr);
+            default:
+                return csr;
+        }
+    }
+
+    private static DoubleCompressedMatrix toRows(DoubleCompressedMatrix matrix) {
+        if (matrix.key != 0) {
+            throw new IllegalArgumentException("稀疏格式要求没有保存的元素为0");
+        }
+        return matrix.toLayout(CompressedMatrix.Layout.ROW);
+    }
+
+    private Format chooseRows(DoubleCompressedMatrix csr) {
+        int nnz = csr.nnz();
+        int[] pointers = csr.pointers;
+        int[] indices = csr.indices;
+        long blocks;
+        if (nnz <= samples) {
+            // 元素不多时精确统计：按(块行号, 块列号)排序后数不同的个数
+            long[] keys = new long[nnz];
+            for (int i = 0; i < csr.rows; i++) {
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    keys[k] = ((long) (i / blockSize) << 32) | (indices[k] / blockSize);
+                }
+            }
+            Arrays.sort(keys);
+            blocks = 0;
+            for (int k = 0; k < nnz; k++) {
+                if (k == 0 || keys[k] != keys[k - 1]) {
+                    blocks++;
+                }
+            }
+        } else {
+            // 每个块的元素被抽中的概率与它的元素个数成正比，所以块数 = nnz * E[1 / 所在块的元素个数]
+            Random random = new Random(SEED);
+            double inverseSum = 0;
+            for (int s = 0; s < samples; s++) {
+                int k = random.nextInt(nnz);
+                int row = rowOf(pointers, csr.rows, k);
+                int firstRow = row - row % blockSize;
+                int endRow = (int) Math.min(csr.rows, (long) firstRow + blockSize);
+                int firstCol = indices[k] - indices[k] % blockSize;
+                long endCol = (long) firstCol + blockSize;
+                int filled = 0;
+                for (int i = firstRow; i < endRow; i++) {
+                    filled += lowerBound(indices, pointers[i], pointers[i + 1], endCol)
+                            - lowerBound(indices, pointers[i], pointers[i + 1], firstCol);
+                }
+                inverseSum += 1.0 / filled;
+            }
+            blocks = Math.round(nnz * inverseSum / samples);
+        }
+        return best(csr.rows, csr.cols, nnz, blocks);
+    }
+
+    /**
+     * 估算每种格式占用的字节数，选最小的，相同时依次优先CSR、COO、BSR、稠密
+     */
+    private Format best(int rows, int cols, long nnz, long blocks) {
+        Format best = Format.CSR;
+        long min = 12 * nnz + 4 * (rows + 1L);
+        long coo = 16 * nnz;
+        if (coo < min) {
+            best = Format.COO;
+            min = coo;
+        }
+        long area = (long) blockSize * blockSize;
+        long blockRows = ((long) rows + blockSize - 1) / blockSize;
+        long bsr = blocks * (8 * area + 4) + 4 * (blockRows + 1);
+        if (blocks * area <= Integer.MAX_VALUE && bsr < min) {
+            best = Format.BSR;
+            min = bsr;
+        }
+        long cells = (long) rows * cols;
+        if (cells <= Integer.MAX_VALUE && 8 * cells < min) {
+            best = Format.DENSE;
+        }
+        return best;
+    }
+
+    /**
+     * 第k个元素所在的行：最后一个pointers[i] <= k的i
+     */
+    private static int rowOf(int[] pointers, int rows, int k) {
+        int low = 0;
+        int high = rows - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (pointers[middle] <= k) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * [from, to)中第一个不小于target的位置
+     */
+    private static int lowerBound(int[] indices, int from, int to, long target) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (indices[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
+
+class TestMatrixFormatSelector {
+    public static void main(String[] args) {
+        Random random = new Random();
+        MatrixFormatSelector selector = new MatrixFormatSelector();
+
+        // 几乎全空：大部分行没有元素
+        int n = 200000;
+        int[] rowIndex = new int[100];
+        int[] colIndex = new int[100];
+        for (int k = 0; k < rowIndex.length; k++) {
+            rowIndex[k] = random.nextInt(n);
+            colIndex[k] = random.nextInt(n);
+        }
+        report("0.0000003%", selector, DoubleCompressedMatrix.fromTriplets(n, n, rowIndex, colIndex,
+                random.doubles(rowIndex.length).toArray(), CompressedMatrix.Layout.ROW));
+
+        // 均匀分布的0.5%
+        double[][] uniform = new double[4000][2000];
+        for (double[] row : uniform) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(200) == 0 ? random.nextDouble() : 0;
+            }
+        }
+        report("0.5% uniform", selector, DoubleCompressedMatrix.fromDense(uniform, 0, CompressedMatrix.Layout.ROW));
+
+        // 聚集成8x8稠密块的2%
+        double[][] clustered = new double[4000][2000];
+        for (int b = 0; b < 2500; b++) {
+            int top = random.nextInt(500) * 8;
+            int left = random.nextInt(250) * 8;
+            for (int i = top; i < top + 8; i++) {
+                for (int j = left; j < left + 8; j++) {
+                    clustered[i][j] = random.nextDouble() + 1;
+                }
+            }
+        }
+        report("2% clustered", selector, DoubleCompressedMatrix.fromDense(clustered, 0, CompressedMatrix.Layout.ROW));
+
+        // 80%，直接从二维数组选择，选中稠密格式时不需要压缩
+        double[][] dense = new double[2000][2000];
+        for (double[] row : dense) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(5) < 4 ? random.nextDouble() : 0;
+            }
+        }
+        System.out.println("80%: " + selector.choose(dense) + " ("
+                + selector.select(dense).getClass().getSimpleName() + ")");
+    }
+
+    private static void report(String name, MatrixFormatSelector selector, DoubleCompressedMatrix csr) {
+        DoubleMatrix selected = selector.select(csr);
+        double[] x = random(csr.cols);
+        double[] expected = csr.multiply(x);
+        long start = System.nanoTime();
+        double[] y = selected.multiply(x);
+        long elapsed = System.nanoTime() - start;
+        double error = 0;
+        for (int i = 0; i < y.length; i++) {
+            error = Math.max(error, Math.abs(y[i] - expected[i]));
+        }
+        System.out.println(name + ": " + selector.choose(csr) + " (" + selected.getClass().getSimpleName()
+                + "), stored " + selected.storedCount() + " of nnz " + csr.nnz() + ", multiply "
+                + elapsed / 1000 + "us, max error " + error);
+    }
+
+    private static double[] random(int n) {
+        double[] x = new double[n];
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble();
+        }
+        return x;
+    }
+}
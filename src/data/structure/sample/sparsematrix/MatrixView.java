@@ -0,0 +1,286 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Matrix#compress(Integer[][], Integer)}结果的只读视图，不需要{@link Matrix#restore(Integer[][], Integer)}就能按下标取元素
+ * <p>
+ * 创建时只建立行索引：每行的三元组按列号排序后的列号数组和它们在压缩矩阵中的位置，O(nnz + 行数)，
+ * compress的结果本来就是按行优先排序的，此时不需要排序。按下标取元素在所在行内二分查找，O(log k)。
+ * 列索引在第一次按列遍历时才建立。
+ * <p>
+ * 没有保存的元素为fill，与restore的填充元素含义相同；同一位置出现多次时与restore一样以最后一次为准。
+ * 需要完整的稠密矩阵时仍然可以调用{@link #restore()}。
+ *
+ * @author Neptune
+ * @date 2020/7/12 10:20
+ */
+public class MatrixView {
+    private final Integer[][] matrix;
+    private final int rows;
+    private final int cols;
+    private final Integer fill;
+    /**
+     * 第i行的元素在colIndex、entry中的范围为[rowStart[i], rowStart[i + 1])
+     */
+    private final int[] rowStart;
+    /**
+     * 每行内升序排列的列号
+     */
+    private final int[] colIndex;
+    /**
+     * 与colIndex一一对应，元素在压缩矩阵中的行号
+     */
+    private final int[] entry;
+    /**
+     * 列索引，第一次按列遍历时建立
+     */
+    private volatile ColumnIndex columnIndex;
+
+    /**
+     * 创建视图
+     *
+     * @param matrix 压缩矩阵，第一行为{行数, 列数, 元素个数}，之后每行为{行号, 列号, 值}，视图不会复制也不会修改它
+     * @param fill   填充元素，为null时为0
+     */
+    public MatrixView(Integer[][] matrix, Integer fill) {
+        if (null == matrix) {
+            throw new RuntimeException("压缩矩阵不能为null");
+        }
+        this.matrix = matrix;
+        this.fill = null == fill ? 0 : fill;
+        // compress对空矩阵返回空数组
+        this.rows = matrix.length == 0 ? 0 : matrix[0][0];
+        this.cols = matrix.length == 0 ? 0 : matrix[0][1];
+        int count = matrix.length == 0 ? 0 : matrix[0][2];
+        if (matrix.length != 0 && count != matrix.length - 1) {
+            throw new RuntimeException("请输入正确的压缩矩阵");
+        }
+        boolean sorted = true;
+        for (int k = 1; k <= count; k++) {
+            Integer[] triplet = matrix[k];
+            if (triplet[0] > rows - 1 || triplet[0] < 0 || triplet[1] > cols - 1 || triplet[1] < 0) {
+                throw new RuntimeException("请输入正确的压缩矩阵");
+            }
+            if (sorted && k > 1) {
+                Integer[] previous = matrix[k - 1];
+                sorted = previous[0] < triplet[0] || (previous[0].equals(triplet[0]) && previous[1] < triplet[1]);
+            }
+        }
+        if (sorted) {
+            rowStart = new int[rows + 1];
+            colIndex = new int[count];
+            entry = new int[count];
+            for (int k = 0; k < count; k++) {
+                Integer[] triplet = matrix[k + 1];
+                rowStart[triplet[0] + 1]++;
+                colIndex[k] = triplet[1];
+                entry[k] = k + 1;
+            }
+            for (int i = 0; i < rows; i++) {
+                rowStart[i + 1] += rowStart[i];
+            }
+        } else {
+            int[] rowIndex = new int[count];
+            int[] columnIndex = new int[count];
+            for (int k = 0; k < count; k++) {
+                rowIndex[k] = matrix[k + 1][0];
+                columnIndex[k] = matrix[k + 1][1];
+            }
+            CompressedMatrix.Structure structure = CompressedMatrix.sortTriplets(rows, cols, rowIndex, columnIndex,
+                    count, CompressedMatrix.Layout.ROW);
+            // 排序是稳定的，重复的位置保留最后一个
+            int[] order = structure.order;
+            int[] target = CompressedMatrix.mergeDuplicates(structure.pointers, structure.indices, rows);
+            int nnz = structure.pointers[rows];
+            int[] positions = new int[nnz];
+            for (int k = 0; k < count; k++) {
+                positions[target[k]] = order[k] + 1;
+            }
+            rowStart = structure.pointers;
+            colIndex = nnz == count ? structure.indices : Arrays.copyOf(structure.indices, nnz);
+            entry = positions;
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public Integer getFill() {
+        return fill;
+    }
+
+    /**
+     * 保存的元素个数，重复的位置只算一次
+     *
+     * @return int 元素个数
+     */
+    public int nnz() {
+        return entry.length;
+    }
+
+    /**
+     * 取第i行第j列的元素，在第i行内二分查找，O(log k)
+     *
+     * @param i 行号
+     * @param j 列号
+     * @return Integer 元素的值，没有保存时为fill
+     */
+    public Integer get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("下标(" + i + ", " + j + ")超出矩阵范围" + rows + "x" + cols);
+        }
+        int position = Arrays.binarySearch(colIndex, rowStart[i], rowStart[i + 1], j);
+        return position < 0 ? fill : matrix[entry[position]][2];
+    }
+
+    /**
+     * 按列号升序遍历第i行保存的元素
+     *
+     * @param i 行号
+     * @return Iterator 压缩矩阵中的三元组{行号, 列号, 值}，不要修改
+     */
+    public Iterator<Integer[]> rowIterator(int i) {
+        if (i < 0 || i >= rows) {
+            throw new IndexOutOfBoundsException("行号" + i + "超出矩阵范围" + rows + "x" + cols);
+        }
+        return new EntryIterator(null, rowStart[i], rowStart[i + 1]);
+    }
+
+    /**
+     * 按行号升序遍历第j列保存的元素，第一次调用时建立列索引，O(nnz + 列数)
+     *
+     * @param j 列号
+     * @return Iterator 压缩矩阵中的三元组{行号, 列号, 值}，不要修改
+     */
+    public Iterator<Integer[]> columnIterator(int j) {
+        if (j < 0 || j >= cols) {
+            throw new IndexOutOfBoundsException("列号" + j + "超出矩阵范围" + rows + "x" + cols);
+        }
+        ColumnIndex index = columnIndex();
+        return new EntryIterator(index.order, index.colStart[j], index.colStart[j + 1]);
+    }
+
+    /**
+     * 还原为稀疏矩阵，与{@link Matrix#restore(Integer[][], Integer)}相同
+     *
+     * @return Integer[][] 稀疏矩阵
+     */
+    public Integer[][] restore() {
+        Integer[][] result = new Integer[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            Integer[] row = result[i];
+            Arrays.fill(row, fill);
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                row[colIndex[k]] = matrix[entry[k]][2];
+            }
+        }
+        return result;
+    }
+
+    private ColumnIndex columnIndex() {
+        ColumnIndex index = columnIndex;
+        if (null == index) {
+            // 并发时可能重复建立，结果相同
+            int nnz = entry.length;
+            int[] colStart = new int[cols + 1];
+            for (int k = 0; k < nnz; k++) {
+                colStart[colIndex[k] + 1]++;
+            }
+            for (int j = 0; j < cols; j++) {
+                colStart[j + 1] += colStart[j];
+            }
+            int[] next = Arrays.copyOf(colStart, cols);
+            int[] order = new int[nnz];
+            // 按行扫描，每列内的行号自然是升序的
+            for (int k = 0; k < nnz; k++) {
+                order[next[colIndex[k]]++] = k;
+            }
+            index = new ColumnIndex(colStart, order);
+            columnIndex = index;
+        }
+        return index;
+    }
+
+    private static final class ColumnIndex {
+        final int[] colStart;
+        /**
+         * 按列排列的元素在行索引中的位置
+         */
+        final int[] order;
+
+        ColumnIndex(int[] colStart, int[] order) {
+            this.colStart = colStart;
+            this.order = order;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Integer[]> {
+        private final int[] order;
+        private final int end;
+        private int next;
+
+        EntryIterator(int[] order, int start, int end) {
+            this.order = order;
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public Integer[] next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            int position = null == order ? next : order[next];
+            next++;
+            return matrix[entry[position]];
+        }
+    }
+}
+
+class TestMatrixView {
+    public static void main(String[] args) {
+        Integer[][] source = new Integer[][]{
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 3, 0, 0, 0, 0, 7, 0, 0, 0, 0},
+                {0, 0, 0, 6, 0, 0, 0, 0, 0, 9, 0},
+                {5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 8, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9},
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 6, 0, 0, 0, 6, 0, 0, 0}
+        };
+        Integer[][] compressed = Matrix.compress(source, null);
+        MatrixView view = Matrix.view(compressed, -1);
+        System.out.println("get(2, 9): " + view.get(2, 9) + ", get(2, 8): " + view.get(2, 8));
+        System.out.println(Arrays.deepEquals(Matrix.restore(compressed, -1), view.restore()));
+
+        StringBuilder column = new StringBuilder("column 3:");
+        for (Iterator<Integer[]> iterator = view.columnIterator(3); iterator.hasNext(); ) {
+            Integer[] triplet = iterator.next();
+            column.append(" (").append(triplet[0]).append(", ").append(triplet[2]).append(")");
+        }
+        System.out.println(column);
+
+        // 乱序且有重复位置的压缩矩阵
+        Integer[][] unordered = {{3, 3, 4}, {2, 1, 5}, {0, 2, 1}, {2, 1, 7}, {1, 0, 2}};
+        MatrixView unorderedView = Matrix.view(unordered, null);
+        System.out.println(Arrays.deepEquals(Matrix.restore(unordered, null), unorderedView.restore())
+                + ", nnz: " + unorderedView.nnz() + ", get(2, 1): " + unorderedView.get(2, 1));
+    }
+}
@@ -0,0 +1,689 @@
+package data.structure.sample.sparsematrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于Fork/Join的压缩矩阵运算：矩阵乘向量（SpMV）、矩阵乘矩阵（SpGEMM）、加法、数乘、转置，以及稠密矩阵的压缩
+ * <p>
+ * 所有运算都直接在按行压缩的{@link DoubleCompressedMatrix}上进行，按行划分给各个子任务。
+ * 划分时不是按行数平均，而是按"元素个数 + 行数"平均，个别行特别长时也不会让某个线程拖慢整体。
+ * 矩阵乘法用Gustavson算法：每个子任务持有一个长度为列数的double累加数组和标记数组，
+ * 先统计每行结果的元素个数，求前缀和确定位置后再并行计算，结果直接写入最终数组。
+ * <p>
+ * 压缩稠密矩阵同样分两遍：先并行统计每行的元素个数，求前缀和得到行指针，再并行把每行写入最终数组，
+ * 逐个元素比较的是基本类型，不会装箱，也不会为每个元素分配对象。
+ * <p>
+ * 运算按线性代数的含义进行，要求矩阵没有保存的元素为0。按列压缩的矩阵会先转换为按行压缩，反复计算时请先转换好。
+ *
+ * @author Neptune
+ * @date 2020/7/10 10:20
+ */
+public class ParallelSparseMath {
+    /**
+     * 默认阈值，元素个数不超过这个值时单线程计算
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+    /**
+     * 每个线程平均分到的子任务个数，子任务多一些便于工作窃取
+     */
+    private static final int PARTS_PER_THREAD = 4;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * 使用默认阈值和公共线程池
+     */
+    public ParallelSparseMath() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param threshold 元素个数不超过这个值时单线程计算
+     * @param pool      执行任务的线程池
+     */
+    public ParallelSparseMath(int threshold, ForkJoinPool pool) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("阈值不能为负数");
+        }
+        if (null == pool) {
+            throw new IllegalArgumentException("线程池不能为null");
+        }
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    // ==================== 矩阵乘向量 ====================
+
+    /**
+     * 计算y = A·x
+     *
+     * @param a 矩阵
+     * @param x 向量，长度为A的列数
+     * @return double[] 长度为A的行数的结果
+     */
+    public double[] multiply(DoubleCompressedMatrix a, double[] x) {
+        double[] y = new double[a.rows];
+        multiply(a, x, y);
+        return y;
+    }
+
+    /**
+     * 计算y = A·x，结果写入y，迭代计算时可以复用y
+     *
+     * @param a 矩阵
+     * @param x 向量，长度为A的列数
+     * @param y 结果，长度为A的行数，不能与x是同一个数组
+     */
+    public void multiply(DoubleCompressedMatrix a, double[] x, double[] y) {
+        DoubleCompressedMatrix csr = checkOperand(a);
+        if (x.length != a.cols || y.length != a.rows) {
+            throw new IllegalArgumentException("向量长度与矩阵不匹配");
+        }
+        if (x == y) {
+            throw new IllegalArgumentException("x和y不能是同一个数组");
+        }
+        int[] pointers = csr.pointers;
+        int[] indices = csr.indices;
+        double[] values = csr.values;
+        forEachPart(pointers, csr.rows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double sum = 0;
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    sum += values[k] * x[indices[k]];
+                }
+                y[i] = sum;
+            }
+        });
+    }
+
+    // ==================== 矩阵乘矩阵 ====================
+
+    /**
+     * 计算C = A·B
+     *
+     * @param a 左矩阵
+     * @param b 右矩阵，行数等于A的列数
+     * @return DoubleCompressedMatrix 按行压缩的结果，每行内列号升序
+     */
+    public DoubleCompressedMatrix multiply(DoubleCompressedMatrix a, DoubleCompressedMatrix b) {
+        DoubleCompressedMatrix left = checkOperand(a);
+        DoubleCompressedMatrix right = checkOperand(b);
+        if (a.cols != b.rows) {
+            throw new IllegalArgumentException("矩阵大小不匹配：" + a.rows + "x" + a.cols + "与" + b.rows + "x" + b.cols);
+        }
+        int rows = a.rows;
+        int cols = b.cols;
+        int[] ap = left.pointers, ai = left.indices, bp = right.pointers, bi = right.indices;
+        double[] av = left.values, bv = right.values;
+        // 按A的每行要处理的B的元素个数估算工作量
+        int[] work = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            long cost = 0;
+            for (int k = ap[i]; k < ap[i + 1]; k++) {
+                cost += bp[ai[k] + 1] - bp[ai[k]];
+            }
+            work[i + 1] = (int) Math.min(Integer.MAX_VALUE, work[i] + cost);
+        }
+        // 第一遍：统计每行结果的元素个数
+        int[] pointers = new int[rows + 1];
+        forEachPart(work, rows, (from, to) -> {
+            int[] marker = new int[cols];
+            Arrays.fill(marker, -1);
+            for (int i = from; i < to; i++) {
+                int count = 0;
+                for (int k = ap[i]; k < ap[i + 1]; k++) {
+                    int row = ai[k];
+                    for (int q = bp[row]; q < bp[row + 1]; q++) {
+                        if (marker[bi[q]] != i) {
+                            marker[bi[q]] = i;
+                            count++;
+                        }
+                    }
+                }
+                pointers[i + 1] = count;
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        // 第二遍：累加并写入结果
+        forEachPart(work, rows, (from, to) -> {
+            int[] marker = new int[cols];
+            Arrays.fill(marker, -1);
+            double[] accumulator = new double[cols];
+            for (int i = from; i < to; i++) {
+                int start = pointers[i];
+                int end = start;
+                for (int k = ap[i]; k < ap[i + 1]; k++) {
+                    int row = ai[k];
+                    double scale = av[k];
+                    for (int q = bp[row]; q < bp[row + 1]; q++) {
+                        int col = bi[q];
+                        if (marker[col] != i) {
+                            marker[col] = i;
+                            indices[end++] = col;
+                            accumulator[col] = scale * bv[q];
+                        } else {
+                            accumulator[col] += scale * bv[q];
+                        }
+                    }
+                }
+                Arrays.sort(indices, start, end);
+                for (int k = start; k < end; k++) {
+                    values[k] = accumulator[indices[k]];
+                }
+            }
+        });
+        return new DoubleCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, pointers, indices, values, 0);
+    }
+
+    // ==================== 加法、数乘、转置 ====================
+
+    /**
+     * 计算A + B
+     *
+     * @param a 矩阵
+     * @param b 大小与A相同的矩阵
+     * @return DoubleCompressedMatrix 按行压缩的结果
+     */
+    public DoubleCompressedMatrix add(DoubleCompressedMatrix a, DoubleCompressedMatrix b) {
+        DoubleCompressedMatrix left = checkOperand(a);
+        DoubleCompressedMatrix right = checkOperand(b);
+        if (a.rows != b.rows || a.cols != b.cols) {
+            throw new IllegalArgumentException("矩阵大小不匹配：" + a.rows + "x" + a.cols + "与" + b.rows + "x" + b.cols);
+        }
+        int rows = a.rows;
+        int[] ap = left.pointers, ai = left.indices, bp = right.pointers, bi = right.indices;
+        double[] av = left.values, bv = right.values;
+        int[] work = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            work[i + 1] = (int) Math.min(Integer.MAX_VALUE, (long) ap[i + 1] + bp[i + 1]);
+        }
+        // 第一遍：统计每行合并后的元素个数
+        int[] pointers = new int[rows + 1];
+        forEachPart(work, rows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = ap[i], q = bp[i], count = 0;
+                while (p < ap[i + 1] && q < bp[i + 1]) {
+                    int c = Integer.compare(ai[p], bi[q]);
+                    p += c <= 0 ? 1 : 0;
+                    q += c >= 0 ? 1 : 0;
+                    count++;
+                }
+                pointers[i + 1] = count + (ap[i + 1] - p) + (bp[i + 1] - q);
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        // 第二遍：合并两个有序的行
+        forEachPart(work, rows, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int p = ap[i], q = bp[i], k = pointers[i];
+                while (p < ap[i + 1] && q < bp[i + 1]) {
+                    if (ai[p] < bi[q]) {
+                        indices[k] = ai[p];
+                        values[k++] = av[p++];
+                    } else if (ai[p] > bi[q]) {
+                        indices[k] = bi[q];
+                        values[k++] = bv[q++];
+                    } else {
+                        indices[k] = ai[p];
+                        values[k++] = av[p++] + bv[q++];
+                    }
+                }
+                for (; p < ap[i + 1]; p++, k++) {
+                    indices[k] = ai[p];
+                    values[k] = av[p];
+                }
+                for (; q < bp[i + 1]; q++, k++) {
+                    indices[k] = bi[q];
+                    values[k] = bv[q];
+                }
+            }
+        });
+        return new DoubleCompressedMatrix(rows, a.cols, CompressedMatrix.Layout.ROW, pointers, indices, values, 0);
+    }
+
+    /**
+     * 计算alpha·A，结构与A共用，只复制值数组
+     *
+     * @param a     矩阵
+     * @param alpha 系数
+     * @return DoubleCompressedMatrix 压缩方式与A相同的结果
+     */
+    public DoubleCompressedMatrix scale(DoubleCompressedMatrix a, double alpha) {
+        checkKey(a);
+        double[] source = a.values;
+        double[] values = new double[source.length];
+        forEachPart(a.pointers, a.majorDim(), (from, to) -> {
+            for (int k = a.pointers[from]; k < a.pointers[to]; k++) {
+                values[k] = alpha * source[k];
+            }
+        });
+        return new DoubleCompressedMatrix(a.rows, a.cols, a.layout, a.pointers, a.indices, values, 0);
+    }
+
+    /**
+     * 转置，结果按行压缩
+     * <p>
+     * A按列压缩的数组恰好就是A的转置按行压缩的数组，所以按列压缩的矩阵转置不需要计算，
+     * 按行压缩的矩阵转置相当于一次压缩方式转换，复杂度O(nnz + 行数 + 列数)
+     *
+     * @param a 矩阵
+     * @return DoubleCompressedMatrix 按行压缩的转置矩阵
+     */
+    public DoubleCompressedMatrix transpose(DoubleCompressedMatrix a) {
+        DoubleCompressedMatrix csc = a.toLayout(CompressedMatrix.Layout.COLUMN);
+        return new DoubleCompressedMatrix(a.cols, a.rows, CompressedMatrix.Layout.ROW, csc.pointers, csc.indices,
+                csc.values, a.key);
+    }
+
+    // ==================== 压缩 ====================
+
+    /**
+     * 并行压缩二维数组，结果按行压缩
+     *
+     * @param matrix 稀疏矩阵
+     * @param key    稀疏矩阵中非关键信息元素，不保存
+     * @return IntCompressedMatrix 按行压缩的矩阵
+     */
+    public IntCompressedMatrix compress(int[][] matrix, int key) {
+        int cols = checkDense(matrix);
+        int rows = matrix.length;
+        int[] pointers = new int[rows + 1];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] row = matrix[i];
+                int count = 0;
+                for (int j = 0; j < cols; j++) {
+                    if (row[j] != key) {
+                        count++;
+                    }
+                }
+                pointers[i + 1] = count;
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        int[] values = new int[nnz];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] row = matrix[i];
+                int position = pointers[i];
+                for (int j = 0; j < cols; j++) {
+                    if (row[j] != key) {
+                        indices[position] = j;
+                        values[position++] = row[j];
+                    }
+                }
+            }
+        });
+        return new IntCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, pointers, indices, values, key);
+    }
+
+    /**
+     * 并行压缩按行优先顺序保存的一维数组，结果按行压缩
+     *
+     * @param data 稀疏矩阵，第i行第j列的元素为data[i * cols + j]
+     * @param rows 行数
+     * @param cols 列数
+     * @param key  稀疏矩阵中非关键信息元素，不保存
+     * @return IntCompressedMatrix 按行压缩的矩阵
+     */
+    public IntCompressedMatrix compress(int[] data, int rows, int cols, int key) {
+        checkFlat(null == data ? -1 : data.length, rows, cols);
+        int[] pointers = new int[rows + 1];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = i * cols;
+                int count = 0;
+                for (int j = 0; j < cols; j++) {
+                    if (data[offset + j] != key) {
+                        count++;
+                    }
+                }
+                pointers[i + 1] = count;
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        int[] values = new int[nnz];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = i * cols;
+                int position = pointers[i];
+                for (int j = 0; j < cols; j++) {
+                    int value = data[offset + j];
+                    if (value != key) {
+                        indices[position] = j;
+                        values[position++] = value;
+                    }
+                }
+            }
+        });
+        return new IntCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, pointers, indices, values, key);
+    }
+
+    /**
+     * 并行压缩二维数组，结果按行压缩
+     *
+     * @param matrix 稀疏矩阵
+     * @param key    稀疏矩阵中非关键信息元素，不保存
+     * @return DoubleCompressedMatrix 按行压缩的矩阵
+     */
+    public DoubleCompressedMatrix compress(double[][] matrix, double key) {
+        int cols = checkDense(matrix);
+        int rows = matrix.length;
+        int[] pointers = new int[rows + 1];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double[] row = matrix[i];
+                int count = 0;
+                for (int j = 0; j < cols; j++) {
+                    if (row[j] != key) {
+                        count++;
+                    }
+                }
+                pointers[i + 1] = count;
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double[] row = matrix[i];
+                int position = pointers[i];
+                for (int j = 0; j < cols; j++) {
+                    if (row[j] != key) {
+                        indices[position] = j;
+                        values[position++] = row[j];
+                    }
+                }
+            }
+        });
+        return new DoubleCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, pointers, indices, values, key);
+    }
+
+    /**
+     * 并行压缩按行优先顺序保存的一维数组，结果按行压缩
+     *
+     * @param data 稀疏矩阵，第i行第j列的元素为data[i * cols + j]
+     * @param rows 行数
+     * @param cols 列数
+     * @param key  稀疏矩阵中非关键信息元素，不保存
+     * @return DoubleCompressedMatrix 按行压缩的矩阵
+     */
+    public DoubleCompressedMatrix compress(double[] data, int rows, int cols, double key) {
+        checkFlat(null == data ? -1 : data.length, rows, cols);
+        int[] pointers = new int[rows + 1];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = i * cols;
+                int count = 0;
+                for (int j = 0; j < cols; j++) {
+                    if (data[offset + j] != key) {
+                        count++;
+                    }
+                }
+                pointers[i + 1] = count;
+            }
+        });
+        int nnz = prefixSum(pointers, rows);
+        int[] indices = new int[nnz];
+        double[] values = new double[nnz];
+        forEachEqualPart(rows, cols, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int offset = i * cols;
+                int position = pointers[i];
+                for (int j = 0; j < cols; j++) {
+                    double value = data[offset + j];
+                    if (value != key) {
+                        indices[position] = j;
+                        values[position++] = value;
+                    }
+                }
+            }
+        });
+        return new DoubleCompressedMatrix(rows, cols, CompressedMatrix.Layout.ROW, pointers, indices, values, key);
+    }
+
+    /**
+     * 校验二维数组每行的元素个数相同
+     *
+     * @return int 列数
+     */
+    private static int checkDense(int[][] matrix) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int cols = matrix.length == 0 ? 0 : matrix[0].length;
+        for (int[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+        }
+        return cols;
+    }
+
+    private static int checkDense(double[][] matrix) {
+        if (null == matrix) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        int cols = matrix.length == 0 ? 0 : matrix[0].length;
+        for (double[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("请输入合法的稀疏矩阵");
+            }
+        }
+        return cols;
+    }
+
+    private static void checkFlat(int length, int rows, int cols) {
+        if (length < 0) {
+            throw new IllegalArgumentException("矩阵不能为null");
+        }
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("行数、列数不能为负数");
+        }
+        if ((long) rows * cols != length) {
+            throw new IllegalArgumentException("数组长度" + length + "与矩阵大小" + rows + "x" + cols + "不匹配");
+        }
+    }
+
+    /**
+     * 把每行的元素个数就地转换为行指针，元素个数超出int范围时抛出{@link IllegalArgumentException}
+     *
+     * @return int 元素个数
+     */
+    static int prefixSum(int[] pointers, int rows) {
+        long sum = 0;
+        for (int i = 1; i <= rows; i++) {
+            sum += pointers[i];
+            if (sum > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("元素个数超出int范围");
+            }
+            pointers[i] = (int) sum;
+        }
+        return (int) sum;
+    }
+
+    // ==================== 划分 ====================
+
+    /**
+     * 处理[from, to)行的子任务
+     */
+    private interface RowRange {
+        void run(int from, int to);
+    }
+
+    /**
+     * 按"工作量 + 行数"平均划分行，并行执行
+     *
+     * @param work 工作量的前缀和，长度为行数 + 1，例如行指针
+     * @param rows 行数
+     */
+    private void forEachPart(int[] work, int rows, RowRange body) {
+        long total = (long) work[rows] + rows;
+        int parts = (int) Math.min(rows, (long) pool.getParallelism() * PARTS_PER_THREAD);
+        if (total <= threshold || parts <= 1) {
+            body.run(0, rows);
+            return;
+        }
+        invokeParts(partition(work, rows, parts), body);
+    }
+
+    /**
+     * 每行的工作量相同时按行数平均划分，并行执行
+     *
+     * @param rows    行数
+     * @param rowWork 每行的工作量，例如列数
+     */
+    private void forEachEqualPart(int rows, int rowWork, RowRange body) {
+        long total = (long) rows * Math.max(rowWork, 1);
+        int parts = (int) Math.min(rows, (long) pool.getParallelism() * PARTS_PER_THREAD);
+        if (total <= threshold || parts <= 1) {
+            body.run(0, rows);
+            return;
+        }
+        int[] bounds = new int[parts + 1];
+        for (int p = 1; p <= parts; p++) {
+            bounds[p] = (int) ((long) rows * p / parts);
+        }
+        invokeParts(bounds, body);
+    }
+
+    private void invokeParts(int[] bounds, RowRange body) {
+        int parts = bounds.length - 1;
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            int from = bounds[p];
+            int to = bounds[p + 1];
+            if (from < to) {
+                tasks.add(ForkJoinTask.adapt(() -> body.run(from, to)));
+            }
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * 在"work[i] + i"上二分查找，把行分成parts段，每段的工作量接近
+     */
+    static int[] partition(int[] work, int rows, int parts) {
+        int[] bounds = new int[parts + 1];
+        long total = (long) work[rows] + rows;
+        for (int p = 1; p < parts; p++) {
+            long target = total * p / parts;
+            int lo = bounds[p - 1], hi = rows;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((long) work[mid] + mid < target) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            bounds[p] = lo;
+        }
+        bounds[parts] = rows;
+        return bounds;
+    }
+
+    private static DoubleCompressedMatrix checkOperand(DoubleCompressedMatrix a) {
+        checkKey(a);
+        return a.toLayout(CompressedMatrix.Layout.ROW);
+    }
+
+    private static void checkKey(DoubleCompressedMatrix a) {
+        if (a.key != 0) {
+            throw new IllegalArgumentException("矩阵运算要求没有保存的元素为0");
+        }
+    }
+}
+
+class TestParallelSparseMath {
+    public static void main(String[] args) {
+        // 随机的有向图，少数节点的出边特别多
+        int n = 200000;
+        Random random = new Random();
+        int edges = 2000000;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        double[] weight = new double[edges];
+        for (int e = 0; e < edges; e++) {
+            from[e] = random.nextInt(10) == 0 ? random.nextInt(100) : random.nextInt(n);
+            to[e] = random.nextInt(n);
+            weight[e] = 1;
+        }
+        DoubleCompressedMatrix adjacency = DoubleCompressedMatrix.fromTriplets(n, n, from, to, weight,
+                CompressedMatrix.Layout.ROW);
+        ParallelSparseMath math = new ParallelSparseMath();
+        // 按出度归一化后转置，得到PageRank的转移矩阵
+        double[] outDegree = math.multiply(adjacency, filled(n, 1));
+        int[] pointers = adjacency.pointers;
+        double[] normalized = new double[adjacency.nnz()];
+        for (int i = 0; i < n; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                normalized[k] = adjacency.values[k] / outDegree[i];
+            }
+        }
+        DoubleCompressedMatrix transition = math.transpose(new DoubleCompressedMatrix(n, n,
+                CompressedMatrix.Layout.ROW, pointers, adjacency.indices, normalized, 0));
+        double[] rank = filled(n, 1.0 / n);
+        double[] next = new double[n];
+        long start = System.nanoTime();
+        for (int iteration = 0; iteration < 20; iteration++) {
+            math.multiply(transition, rank, next);
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                next[i] = 0.15 / n + 0.85 * next[i];
+                sum += next[i];
+            }
+            // 没有出边的节点的权重平均分给所有节点
+            for (int i = 0; i < n; i++) {
+                next[i] += (1 - sum) / n;
+            }
+            double[] t = rank;
+            rank = next;
+            next = t;
+        }
+        System.out.println("20 iterations: " + (System.nanoTime() - start) / 1000000 + "ms, nnz: "
+                + transition.nnz());
+
+        int side = 4000;
+        double[] dense = new double[side * side];
+        for (int k = 0; k < dense.length; k++) {
+            dense[k] = random.nextInt(20) == 0 ? random.nextDouble() : 0;
+        }
+        start = System.nanoTime();
+        DoubleCompressedMatrix compressed = math.compress(dense, side, side, 0);
+        System.out.println("compress " + side + "x" + side + ": " + (System.nanoTime() - start) / 1000000
+                + "ms, nnz: " + compressed.nnz());
+
+        double[][] a = {{1, 0, 2}, {0, 3, 0}};
+        double[][] b = {{0, 1}, {4, 0}, {5, 6}};
+        DoubleCompressedMatrix ma = math.compress(a, 0);
+        DoubleCompressedMatrix mb = DoubleCompressedMatrix.fromDense(b, 0, CompressedMatrix.Layout.COLUMN);
+        System.out.println(Arrays.deepToString(math.multiply(ma, mb).toDense()));
+        System.out.println(Arrays.deepToString(math.add(ma, math.scale(ma, 2)).toDense()));
+        System.out.println(Arrays.deepToString(math.transpose(ma).toDense()));
+    }
+
+    private static double[] filled(int n, double value) {
+        double[] array = new double[n];
+        Arrays.fill(array, value);
+        return array;
+    }
+}
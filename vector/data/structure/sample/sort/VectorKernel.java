@@ -0,0 +1,402 @@
+package data.structure.sample.sort;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * {@link SortingNetwork}的SIMD版本，基于jdk.incubator.vector，每个向量256位（8个int或4个long）
+ * <p>
+ * 排序网络：先用向量内的重排（rearrange）加min/max把每个向量排好序，再逐级用双调合并把向量两两合并，
+ * 向量之间的比较交换直接是两个向量的min/max；长度不足的部分用带掩码的读写，空位补最大值。
+ * <p>
+ * 合并：每次把一个向量与手中的向量做双调合并，写出较小的一半，留下较大的一半，
+ * 下一个向量从当前首元素较小的那一段读入；剩下不足一个向量时交给标量合并。
+ * <p>
+ * jdk.incubator.vector是孵化模块，这个类不在src中，需要单独编译到同一个输出目录：
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp out -d out vector/data/structure/sample/sort/VectorKernel.java
+ * java --add-modules jdk.incubator.vector -cp out ...
+ * </pre>
+ * 没有编译、没有加模块或者CPU的向量宽度不足256位时，{@link SortingNetwork}使用标量版本。
+ *
+ * @author Neptune
+ * @date 2020/7/1 10:40
+ */
+final class VectorKernel implements SortingNetwork.Kernel {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_256;
+    private static final int INT_LANES = INTS.length();
+    private static final int LONG_LANES = LONGS.length();
+
+    private static final IntVector INT_MAX = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+    private static final VectorShuffle<Integer> INT_REVERSE = INTS.shuffleFromOp(i -> INT_LANES - 1 - i);
+    private static final VectorShuffle<Integer> INT_XOR1 = INTS.shuffleFromOp(i -> i ^ 1);
+    private static final VectorShuffle<Integer> INT_XOR2 = INTS.shuffleFromOp(i -> i ^ 2);
+    private static final VectorShuffle<Integer> INT_XOR4 = INTS.shuffleFromOp(i -> i ^ 4);
+    private static final VectorShuffle<Integer> INT_FLIP4 = INTS.shuffleFromOp(i -> i ^ 3);
+    /**
+     * 比较交换后取较大值的通道：下标的第j位为1
+     */
+    private static final VectorMask<Integer> INT_UPPER1 = intUpper(1);
+    private static final VectorMask<Integer> INT_UPPER2 = intUpper(2);
+    private static final VectorMask<Integer> INT_UPPER4 = intUpper(4);
+
+    private static final LongVector LONG_MAX = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+    private static final VectorShuffle<Long> LONG_REVERSE = LONGS.shuffleFromOp(i -> LONG_LANES - 1 - i);
+    private static final VectorShuffle<Long> LONG_XOR1 = LONGS.shuffleFromOp(i -> i ^ 1);
+    private static final VectorShuffle<Long> LONG_XOR2 = LONGS.shuffleFromOp(i -> i ^ 2);
+    private static final VectorMask<Long> LONG_UPPER1 = longUpper(1);
+    private static final VectorMask<Long> LONG_UPPER2 = longUpper(2);
+
+    /**
+     * 向量宽度不足256位时256位的向量由软件模拟，比标量还慢，抛出异常让{@link SortingNetwork}改用标量版本
+     */
+    VectorKernel() {
+        if (IntVector.SPECIES_PREFERRED.vectorBitSize() < INTS.vectorBitSize()) {
+            throw new UnsupportedOperationException("CPU的向量宽度不足" + INTS.vectorBitSize() + "位");
+        }
+    }
+
+    private static VectorMask<Integer> intUpper(int bit) {
+        boolean[] bits = new boolean[INT_LANES];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = (i & bit) != 0;
+        }
+        return VectorMask.fromArray(INTS, bits, 0);
+    }
+
+    private static VectorMask<Long> longUpper(int bit) {
+        boolean[] bits = new boolean[LONG_LANES];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = (i & bit) != 0;
+        }
+        return VectorMask.fromArray(LONGS, bits, 0);
+    }
+
+    // ==================== int[] ====================
+
+    /**
+     * 向量内的一步比较交换：每个通道与shuffle指定的通道比较，upper中的通道取较大值，其余取较小值
+     */
+    private static IntVector step(IntVector v, VectorShuffle<Integer> shuffle, VectorMask<Integer> upper) {
+        IntVector partner = v.rearrange(shuffle);
+        return v.min(partner).blend(v.max(partner), upper);
+    }
+
+    /**
+     * 对一个向量的8个通道排序
+     */
+    private static IntVector sort(IntVector v) {
+        v = step(v, INT_XOR1, INT_UPPER1);
+        v = step(v, INT_FLIP4, INT_UPPER2);
+        v = step(v, INT_XOR1, INT_UPPER1);
+        v = step(v, INT_REVERSE, INT_UPPER4);
+        v = step(v, INT_XOR2, INT_UPPER2);
+        return step(v, INT_XOR1, INT_UPPER1);
+    }
+
+    /**
+     * 8个通道的双调序列的半清理，比较距离4、2、1，结果升序
+     */
+    private static IntVector clean(IntVector v) {
+        v = step(v, INT_XOR4, INT_UPPER4);
+        v = step(v, INT_XOR2, INT_UPPER2);
+        return step(v, INT_XOR1, INT_UPPER1);
+    }
+
+    private static IntVector load(int[] array, int from, int count) {
+        if (count >= INT_LANES) {
+            return IntVector.fromArray(INTS, array, from);
+        }
+        if (count <= 0) {
+            return INT_MAX;
+        }
+        VectorMask<Integer> mask = INTS.indexInRange(0, count);
+        return INT_MAX.blend(IntVector.fromArray(INTS, array, from, mask), mask);
+    }
+
+    private static void store(IntVector v, int[] array, int from, int count) {
+        if (count >= INT_LANES) {
+            v.intoArray(array, from);
+        } else if (count > 0) {
+            v.intoArray(array, from, INTS.indexInRange(0, count));
+        }
+    }
+
+    @Override
+    public void sortSmall(int[] array, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return;
+        }
+        if (n <= INT_LANES) {
+            store(sort(load(array, from, n)), array, from, n);
+            return;
+        }
+        IntVector v0 = sort(load(array, from, n));
+        IntVector v1 = sort(load(array, from + INT_LANES, n - INT_LANES));
+        // 两个有序向量的双调合并：第二个反转后逐通道比较交换，两半各自半清理
+        IntVector r = v1.rearrange(INT_REVERSE);
+        v1 = clean(v0.max(r));
+        v0 = clean(v0.min(r));
+        if (n <= 2 * INT_LANES) {
+            store(v0, array, from, n);
+            store(v1, array, from + INT_LANES, n - INT_LANES);
+            return;
+        }
+        IntVector v2 = sort(load(array, from + 2 * INT_LANES, n - 2 * INT_LANES));
+        IntVector v3 = sort(load(array, from + 3 * INT_LANES, n - 3 * INT_LANES));
+        r = v3.rearrange(INT_REVERSE);
+        v3 = clean(v2.max(r));
+        v2 = clean(v2.min(r));
+        // 合并(v0, v1)和(v2, v3)：v0与反转的v3、v1与反转的v2比较交换，得到两个双调的16元素序列
+        IntVector r3 = v3.rearrange(INT_REVERSE);
+        IntVector r2 = v2.rearrange(INT_REVERSE);
+        IntVector lo0 = v0.min(r3);
+        IntVector hi0 = v0.max(r3);
+        IntVector lo1 = v1.min(r2);
+        IntVector hi1 = v1.max(r2);
+        // 每个16元素序列先在两个向量之间比较交换，再各自半清理
+        store(clean(lo0.min(lo1)), array, from, n);
+        store(clean(lo0.max(lo1)), array, from + INT_LANES, n - INT_LANES);
+        store(clean(hi0.min(hi1)), array, from + 2 * INT_LANES, n - 2 * INT_LANES);
+        store(clean(hi0.max(hi1)), array, from + 3 * INT_LANES, n - 3 * INT_LANES);
+    }
+
+    @Override
+    public void merge(int[] src, int lo1, int hi1, int lo2, int hi2, int[] dst, int dstLo) {
+        int k = dstLo;
+        if (hi1 - lo1 >= INT_LANES && hi2 - lo2 >= INT_LANES) {
+            // 较大的一半暂存在dst中已写出部分的后面，下一轮再读回来，向量不跨循环保存
+            IntVector.fromArray(INTS, src, lo1).intoArray(dst, k);
+            lo1 += INT_LANES;
+            int next = lo2;
+            lo2 += INT_LANES;
+            while (true) {
+                IntVector carry = IntVector.fromArray(INTS, dst, k);
+                IntVector r = IntVector.fromArray(INTS, src, next).rearrange(INT_REVERSE);
+                clean(carry.min(r)).intoArray(dst, k);
+                k += INT_LANES;
+                if (lo1 + INT_LANES > hi1 || lo2 + INT_LANES > hi2) {
+                    clean(carry.max(r)).intoArray(dst, k);
+                    break;
+                }
+                clean(carry.max(r)).intoArray(dst, k);
+                // 已写出的都不大于两段剩下的元素，下一个向量取自首元素较小的一段
+                int takeFirst = src[lo1] <= src[lo2] ? 1 : 0;
+                next = takeFirst == 1 ? lo1 : lo2;
+                lo1 += takeFirst * INT_LANES;
+                lo2 += (1 - takeFirst) * INT_LANES;
+            }
+            // dst[k, k + INT_LANES)是有序的，与两段剩下的元素三路合并，直到这些元素用完
+            int[] rest = Arrays.copyOfRange(dst, k, k + INT_LANES);
+            int c = 0;
+            while (c < INT_LANES) {
+                int value = rest[c];
+                if (lo1 < hi1 && src[lo1] < value && (lo2 >= hi2 || src[lo1] <= src[lo2])) {
+                    dst[k++] = src[lo1++];
+                } else if (lo2 < hi2 && src[lo2] < value) {
+                    dst[k++] = src[lo2++];
+                } else {
+                    dst[k++] = value;
+                    c++;
+                }
+            }
+        }
+        SortStats.comparisons(k - dstLo);
+        SortingNetwork.scalarMerge(src, lo1, hi1, lo2, hi2, dst, k);
+    }
+
+    // ==================== long[] ====================
+
+    private static LongVector step(LongVector v, VectorShuffle<Long> shuffle, VectorMask<Long> upper) {
+        LongVector partner = v.rearrange(shuffle);
+        return v.min(partner).blend(v.max(partner), upper);
+    }
+
+    /**
+     * 对一个向量的4个通道排序
+     */
+    private static LongVector sort(LongVector v) {
+        v = step(v, LONG_XOR1, LONG_UPPER1);
+        v = step(v, LONG_REVERSE, LONG_UPPER2);
+        return step(v, LONG_XOR1, LONG_UPPER1);
+    }
+
+    private static LongVector clean(LongVector v) {
+        v = step(v, LONG_XOR2, LONG_UPPER2);
+        return step(v, LONG_XOR1, LONG_UPPER1);
+    }
+
+    private static LongVector load(long[] array, int from, int count) {
+        if (count >= LONG_LANES) {
+            return LongVector.fromArray(LONGS, array, from);
+        }
+        if (count <= 0) {
+            return LONG_MAX;
+        }
+        VectorMask<Long> mask = LONGS.indexInRange(0, count);
+        return LONG_MAX.blend(LongVector.fromArray(LONGS, array, from, mask), mask);
+    }
+
+    private static void store(LongVector v, long[] array, int from, int count) {
+        if (count >= LONG_LANES) {
+            v.intoArray(array, from);
+        } else if (count > 0) {
+            v.intoArray(array, from, LONGS.indexInRange(0, count));
+        }
+    }
+
+    @Override
+    public void sortSmall(long[] array, int from, int to) {
+        int n = to - from;
+        if (n < 2) {
+            return;
+        }
+        if (n <= LONG_LANES) {
+            store(sort(load(array, from, n)), array, from, n);
+            return;
+        }
+        int vectors = n <= 2 * LONG_LANES ? 2 : n <= 4 * LONG_LANES ? 4 : 8;
+        // 每个向量排序后两两合并成8个元素的有序序列
+        LongVector v0 = sort(load(array, from, n));
+        LongVector v1 = sort(load(array, from + LONG_LANES, n - LONG_LANES));
+        LongVector r = v1.rearrange(LONG_REVERSE);
+        v1 = clean(v0.max(r));
+        v0 = clean(v0.min(r));
+        if (vectors == 2) {
+            store(v0, array, from, n);
+            store(v1, array, from + LONG_LANES, n - LONG_LANES);
+            return;
+        }
+        LongVector v2 = sort(load(array, from + 2 * LONG_LANES, n - 2 * LONG_LANES));
+        LongVector v3 = sort(load(array, from + 3 * LONG_LANES, n - 3 * LONG_LANES));
+        r = v3.rearrange(LONG_REVERSE);
+        v3 = clean(v2.max(r));
+        v2 = clean(v2.min(r));
+        // 合并成16个元素的有序序列(v0, v1, v2, v3)
+        LongVector r3 = v3.rearrange(LONG_REVERSE);
+        LongVector r2 = v2.rearrange(LONG_REVERSE);
+        LongVector lo0 = v0.min(r3);
+        LongVector hi0 = v0.max(r3);
+        LongVector lo1 = v1.min(r2);
+        LongVector hi1 = v1.max(r2);
+        v0 = clean(lo0.min(lo1));
+        v1 = clean(lo0.max(lo1));
+        v2 = clean(hi0.min(hi1));
+        v3 = clean(hi0.max(hi1));
+        if (vectors == 4) {
+            store(v0, array, from, n);
+            store(v1, array, from + LONG_LANES, n - LONG_LANES);
+            store(v2, array, from + 2 * LONG_LANES, n - 2 * LONG_LANES);
+            store(v3, array, from + 3 * LONG_LANES, n - 3 * LONG_LANES);
+            return;
+        }
+        // 后16个元素同样处理
+        LongVector v4 = sort(load(array, from + 4 * LONG_LANES, n - 4 * LONG_LANES));
+        LongVector v5 = sort(load(array, from + 5 * LONG_LANES, n - 5 * LONG_LANES));
+        r = v5.rearrange(LONG_REVERSE);
+        v5 = clean(v4.max(r));
+        v4 = clean(v4.min(r));
+        LongVector v6 = sort(load(array, from + 6 * LONG_LANES, n - 6 * LONG_LANES));
+        LongVector v7 = sort(load(array, from + 7 * LONG_LANES, n - 7 * LONG_LANES));
+        r = v7.rearrange(LONG_REVERSE);
+        v7 = clean(v6.max(r));
+        v6 = clean(v6.min(r));
+        LongVector r7 = v7.rearrange(LONG_REVERSE);
+        LongVector r6 = v6.rearrange(LONG_REVERSE);
+        lo0 = v4.min(r7);
+        hi0 = v4.max(r7);
+        lo1 = v5.min(r6);
+        hi1 = v5.max(r6);
+        v4 = clean(lo0.min(lo1));
+        v5 = clean(lo0.max(lo1));
+        v6 = clean(hi0.min(hi1));
+        v7 = clean(hi0.max(hi1));
+        // 合并两个16元素的有序序列：v[i]与反转的v[7 - i]比较交换，每一半再按距离2、1个向量比较交换后半清理
+        r7 = v7.rearrange(LONG_REVERSE);
+        r6 = v6.rearrange(LONG_REVERSE);
+        LongVector r5 = v5.rearrange(LONG_REVERSE);
+        LongVector r4 = v4.rearrange(LONG_REVERSE);
+        lo0 = v0.min(r7);
+        hi0 = v0.max(r7);
+        lo1 = v1.min(r6);
+        hi1 = v1.max(r6);
+        LongVector lo2 = v2.min(r5);
+        LongVector hi2 = v2.max(r5);
+        LongVector lo3 = v3.min(r4);
+        LongVector hi3 = v3.max(r4);
+        store(bitonic4(lo0, lo1, lo2, lo3, 0), array, from, n);
+        store(bitonic4(lo0, lo1, lo2, lo3, 1), array, from + LONG_LANES, n - LONG_LANES);
+        store(bitonic4(lo0, lo1, lo2, lo3, 2), array, from + 2 * LONG_LANES, n - 2 * LONG_LANES);
+        store(bitonic4(lo0, lo1, lo2, lo3, 3), array, from + 3 * LONG_LANES, n - 3 * LONG_LANES);
+        store(bitonic4(hi0, hi1, hi2, hi3, 0), array, from + 4 * LONG_LANES, n - 4 * LONG_LANES);
+        store(bitonic4(hi0, hi1, hi2, hi3, 1), array, from + 5 * LONG_LANES, n - 5 * LONG_LANES);
+        store(bitonic4(hi0, hi1, hi2, hi3, 2), array, from + 6 * LONG_LANES, n - 6 * LONG_LANES);
+        store(bitonic4(hi0, hi1, hi2, hi3, 3), array, from + 7 * LONG_LANES, n - 7 * LONG_LANES);
+    }
+
+    /**
+     * 对4个向量组成的双调序列半清理，返回结果的第index个向量
+     * <p>
+     * 先按距离2个向量比较交换，再按距离1个向量比较交换，最后向量内半清理；
+     * 每个输出向量只依赖其中两次min/max，分开计算可以避免返回多个向量
+     */
+    private static LongVector bitonic4(LongVector a, LongVector b, LongVector c, LongVector d, int index) {
+        LongVector x;
+        LongVector y;
+        if (index < 2) {
+            x = a.min(c);
+            y = b.min(d);
+        } else {
+            x = a.max(c);
+            y = b.max(d);
+        }
+        return clean((index & 1) == 0 ? x.min(y) : x.max(y));
+    }
+
+    @Override
+    public void merge(long[] src, int lo1, int hi1, int lo2, int hi2, long[] dst, int dstLo) {
+        int k = dstLo;
+        if (hi1 - lo1 >= LONG_LANES && hi2 - lo2 >= LONG_LANES) {
+            LongVector carry = LongVector.fromArray(LONGS, src, lo1);
+            lo1 += LONG_LANES;
+            LongVector next = LongVector.fromArray(LONGS, src, lo2);
+            lo2 += LONG_LANES;
+            while (true) {
+                LongVector r = next.rearrange(LONG_REVERSE);
+                clean(carry.min(r)).intoArray(dst, k);
+                k += LONG_LANES;
+                carry = clean(carry.max(r));
+                if (lo1 + LONG_LANES > hi1 || lo2 + LONG_LANES > hi2) {
+                    break;
+                }
+                int takeFirst = src[lo1] <= src[lo2] ? 1 : 0;
+                next = LongVector.fromArray(LONGS, src, takeFirst == 1 ? lo1 : lo2);
+                lo1 += takeFirst * LONG_LANES;
+                lo2 += (1 - takeFirst) * LONG_LANES;
+            }
+            long[] rest = new long[LONG_LANES];
+            carry.intoArray(rest, 0);
+            int c = 0;
+            while (c < LONG_LANES) {
+                long value = rest[c];
+                if (lo1 < hi1 && src[lo1] < value && (lo2 >= hi2 || src[lo1] <= src[lo2])) {
+                    dst[k++] = src[lo1++];
+                } else if (lo2 < hi2 && src[lo2] < value) {
+                    dst[k++] = src[lo2++];
+                } else {
+                    dst[k++] = value;
+                    c++;
+                }
+            }
+        }
+        SortStats.comparisons(k - dstLo);
+        SortingNetwork.scalarMerge(src, lo1, hi1, lo2, hi2, dst, k);
+    }
+}